@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.main.JsonSchema;
+import com.github.fge.jsonschema.main.JsonSchemaFactory;
+import com.jayway.jsonpath.JsonPath;
+import com.qmetry.qaf.automation.util.XPathUtils;
+
+/**
+ * Benchmarks evaluation used by assertion step families: json path, xpath and
+ * json schema, for parameterized payload sizes.
+ * 
+ * @author amit.bhoraniya
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AssertionBenchmark {
+
+	/**
+	 * Number of items in response body.
+	 */
+	@Param({ "1", "100", "10000" })
+	public int payloadSize;
+
+	private String json;
+	private String xml;
+	private JsonSchema schema;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, ProcessingException {
+		json = Payloads.json(payloadSize);
+		xml = Payloads.xml(payloadSize);
+		schema = JsonSchemaFactory.byDefault().getJsonSchema(JsonLoader.fromString(Payloads.JSON_SCHEMA));
+	}
+
+	@Benchmark
+	public Object jsonPathScalar() {
+		return JsonPath.read(json, "$.items[0].name");
+	}
+
+	@Benchmark
+	public Object jsonPathFilter() {
+		return JsonPath.read(json, "$.items[?(@.active == true)].id");
+	}
+
+	@Benchmark
+	public String xpathScalar() {
+		return XPathUtils.read(xml).getString("items/item[1]/name");
+	}
+
+	@Benchmark
+	public boolean jsonSchema() throws IOException, ProcessingException {
+		return schema.validate(JsonLoader.fromString(json)).isSuccess();
+	}
+}
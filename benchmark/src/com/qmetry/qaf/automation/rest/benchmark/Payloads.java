@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.benchmark;
+
+/**
+ * Generates representative json/xml payloads and json schema used by
+ * benchmarks.
+ * 
+ * @author amit.bhoraniya
+ */
+final class Payloads {
+
+	static final String JSON_SCHEMA = "{\"type\":\"object\",\"required\":[\"items\"],\"properties\":{\"total\":{\"type\":\"integer\"},"
+			+ "\"items\":{\"type\":\"array\",\"items\":{\"type\":\"object\",\"required\":[\"id\",\"name\"],"
+			+ "\"properties\":{\"id\":{\"type\":\"integer\"},\"name\":{\"type\":\"string\"},"
+			+ "\"price\":{\"type\":\"number\",\"minimum\":0},\"active\":{\"type\":\"boolean\"}}}}}}";
+
+	/**
+	 * Schema for {@link #json(int)} using shared definitions, references,
+	 * pattern, enum and closed objects, understood by both draft-04 and draft
+	 * 2020-12 validators.
+	 */
+	static final String JSON_SCHEMA_DEFINITIONS = "{\"type\":\"object\",\"required\":[\"total\",\"items\"],"
+			+ "\"additionalProperties\":false,\"properties\":{\"total\":{\"$ref\":\"#/definitions/count\"},"
+			+ "\"items\":{\"type\":\"array\",\"maxItems\":100000,\"items\":{\"$ref\":\"#/definitions/item\"}}},"
+			+ "\"definitions\":{\"count\":{\"type\":\"integer\",\"minimum\":0},"
+			+ "\"item\":{\"type\":\"object\",\"required\":[\"id\",\"name\",\"price\"],\"additionalProperties\":false,"
+			+ "\"properties\":{\"id\":{\"$ref\":\"#/definitions/count\"},"
+			+ "\"name\":{\"type\":\"string\",\"pattern\":\"^item-[0-9]+$\",\"maxLength\":64},"
+			+ "\"price\":{\"type\":\"number\",\"minimum\":0,\"maximum\":1000000},"
+			+ "\"active\":{\"enum\":[true,false]}}}}}";
+
+	private Payloads() {
+	}
+
+	/**
+	 * @param items
+	 *            number of items
+	 * @return json object with <code>total</code> and <code>items</code>
+	 *         array
+	 */
+	static String json(int items) {
+		StringBuilder sb = new StringBuilder(items * 64 + 32);
+		sb.append("{\"total\":").append(items).append(",\"items\":[");
+		for (int i = 0; i < items; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i).append("\",\"price\":")
+					.append(i + 0.5).append(",\"active\":").append(i % 2 == 0).append('}');
+		}
+		return sb.append("]}").toString();
+	}
+
+	/**
+	 * @param items
+	 *            number of items
+	 * @return xml document equivalent to {@link #json(int)}
+	 */
+	static String xml(int items) {
+		StringBuilder sb = new StringBuilder(items * 96 + 64);
+		sb.append("<catalog><total>").append(items).append("</total><items>");
+		for (int i = 0; i < items; i++) {
+			sb.append("<item><id>").append(i).append("</id><name>item-").append(i).append("</name><price>")
+					.append(i + 0.5).append("</price><active>").append(i % 2 == 0).append("</active></item>");
+		}
+		return sb.append("</items></catalog>").toString();
+	}
+}
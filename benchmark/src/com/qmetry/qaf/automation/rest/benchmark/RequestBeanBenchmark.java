@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.benchmark;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.qmetry.qaf.automation.rest.RestRequestBean;
+
+/**
+ * Benchmarks {@link RestRequestBean#fillData(Object)} and
+ * {@link RestRequestBean#resolveParameters(Map)} for plain call, call with
+ * <code>reference</code> chain and call with <code>file:</code> body.
+ * 
+ * @author amit.bhoraniya
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestBeanBenchmark {
+
+	@Param({ "plain", "reference", "file" })
+	public String call;
+
+	/**
+	 * Number of items in request body.
+	 */
+	@Param({ "1", "100", "10000" })
+	public int payloadSize;
+
+	private String key;
+	private Map<String, Object> data;
+	private File bodyFile;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		String body = Payloads.json(payloadSize).replace("\"item-1\"", "\"${name}\"");
+		getBundle().setProperty("bm.env.baseurl", "http://localhost:8080");
+		getBundle().setProperty("bm.base.call",
+				"{'headers':{'Content-Type':'application/json'},'endPoint':'/items/${id}','baseUrl':'${bm.env.baseurl}','method':'POST','query-parameters':{'q':'${q}'},'parameters':{'id':1,'q':'x','name':'n'}}");
+		getBundle().setProperty("bm.ref.1", "{'reference':'bm.base.call','parameters':{'q':'y'}}");
+		getBundle().setProperty("bm.ref.2", "{'reference':'bm.ref.1','headers':{'X-Trace':'${id}'}}");
+
+		bodyFile = File.createTempFile("bm-body", ".json");
+		FileUtils.writeStringToFile(bodyFile, body, StandardCharsets.UTF_8);
+
+		if (call.equals("reference")) {
+			getBundle().setProperty("bm.call", "{'reference':'bm.ref.2','body':'" + escape(body) + "'}");
+		} else if (call.equals("file")) {
+			getBundle().setProperty("bm.call",
+					"{'reference':'bm.base.call','body':'file:" + bodyFile.getAbsolutePath() + "'}");
+		} else {
+			getBundle().setProperty("bm.call",
+					"{'headers':{'Content-Type':'application/json'},'endPoint':'/items/${id}','baseUrl':'${bm.env.baseurl}','method':'POST','query-parameters':{'q':'${q}'},'parameters':{'id':1,'q':'x','name':'n'},'body':'"
+							+ escape(body) + "'}");
+		}
+		key = "bm.call";
+		data = new HashMap<String, Object>();
+		data.put("id", 10);
+		data.put("name", "benchmark");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		FileUtils.deleteQuietly(bodyFile);
+	}
+
+	@Benchmark
+	public RestRequestBean fillData() {
+		RestRequestBean bean = new RestRequestBean();
+		bean.fillData(key);
+		return bean;
+	}
+
+	@Benchmark
+	public RestRequestBean fillDataAndResolveParameters() {
+		RestRequestBean bean = new RestRequestBean();
+		bean.fillData(key);
+		bean.resolveParameters(data);
+		return bean;
+	}
+
+	private static String escape(String body) {
+		return body.replace("'", "\\'");
+	}
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.benchmark;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.qmetry.qaf.automation.rest.schema.SchemaValidator;
+import com.qmetry.qaf.automation.rest.schema.SchemaValidators;
+
+/**
+ * Compares json schema validation engines available through
+ * {@link SchemaValidators} for parameterized payload sizes and schemas, with
+ * document provided as string and as stream.
+ * 
+ * @author amit.bhoraniya
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SchemaBenchmark {
+
+	/**
+	 * Number of items in response body.
+	 */
+	@Param({ "1", "100", "10000" })
+	public int payloadSize;
+
+	@Param({ SchemaValidators.FGE, SchemaValidators.DRAFT_2020 })
+	public String engine;
+
+	@Param({ "simple", "definitions" })
+	public String schemaType;
+
+	private String json;
+	private String schema;
+	private SchemaValidator validator;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		json = Payloads.json(payloadSize);
+		schema = schemaType.equals("simple") ? Payloads.JSON_SCHEMA : Payloads.JSON_SCHEMA_DEFINITIONS;
+		validator = SchemaValidators.get(engine);
+		if (!validator.validate(schema, json).isEmpty()) {
+			throw new IllegalStateException("Payload is not valid for " + schemaType + " schema");
+		}
+	}
+
+	@Benchmark
+	public List<String> validate() {
+		return validator.validate(schema, json);
+	}
+
+	@Benchmark
+	public List<String> validateStream() {
+		return validator.validate(schema, new StringReader(json));
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.benchmark;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.qmetry.qaf.automation.rest.RestRequestBean;
+import com.qmetry.qaf.automation.rest.stub.WscStubServer;
+import com.qmetry.qaf.automation.step.WsStep;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Benchmarks {@link WsStep#request(RestRequestBean)} against local
+ * {@link WscStubServer} so that client side request pipeline is measured in
+ * isolation.
+ * 
+ * @author amit.bhoraniya
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WsRequestBenchmark {
+
+	/**
+	 * Size in bytes of response body served by stub.
+	 */
+	@Param({ "128", "16384", "1048576" })
+	public int payloadSize;
+
+	private RestRequestBean bean;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		getBundle().setProperty(WscStubServer.STUB_PAYLOAD_SIZE, payloadSize);
+		getBundle().setProperty("bm.get.items", "{'endPoint':'/items','method':'GET','baseUrl':'${ws.stub.baseurl}'}");
+		WscStubServer.startServer();
+
+		bean = new RestRequestBean();
+		bean.fillData("bm.get.items");
+		bean.resolveParameters(null);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		WscStubServer.stopServer();
+	}
+
+	@Benchmark
+	public String request() {
+		ClientResponse response = WsStep.request(bean);
+		try {
+			// read body, so connection can be reused
+			return response.getEntity(String.class);
+		} finally {
+			response.close();
+		}
+	}
+}
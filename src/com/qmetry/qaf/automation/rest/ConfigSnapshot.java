@@ -0,0 +1,321 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.event.ConfigurationEvent;
+import org.apache.commons.configuration.event.ConfigurationListener;
+import org.apache.commons.lang.text.StrLookup;
+import org.apache.commons.lang.text.StrSubstitutor;
+
+import com.qmetry.qaf.automation.util.PropertyUtil;
+
+/**
+ * Hash indexed cache of configuration used to build requests without going
+ * through synchronized configuration on each request. Values are read from
+ * configuration on first use and resolved same as configuration, variables
+ * with prefix like <code>${sys:name}</code> or not available in
+ * configuration are resolved by configuration. Keys not available in
+ * configuration are looked up in {@link IndexedWscRepository} given by
+ * {@link IndexedWscRepository#LAZY_REPOSITORY ws.repository.lazy} when it is
+ * used, files of repository modified after they were indexed are indexed
+ * again on {@link #refresh()}.
+ * <p>
+ * Each thread has its own configuration, snapshot is maintained for each
+ * configuration and threads using same configuration share snapshot. It is
+ * registered once as listener of configuration and when configuration is
+ * changed using <code>setProperty</code>, <code>addProperty</code> or
+ * <code>clearProperty</code>, only changed key is discarded and read again
+ * on next use.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class ConfigSnapshot implements ConfigurationListener {
+	private static final ThreadLocal<ConfigSnapshot> CURRENT = new ThreadLocal<ConfigSnapshot>();
+	private static final Object NULL = new Object();
+	// absent keys are cached only if short, request call json is also looked up as key
+	private static final int MAX_ABSENT_KEY_LENGTH = 256;
+
+	private final PropertyUtil bundle;
+	private final ConcurrentMap<String, Object> values = new ConcurrentHashMap<String, Object>();
+	private final ConcurrentMap<String, Map<String, Object>> subsets = new ConcurrentHashMap<String, Map<String, Object>>();
+	private final AtomicLong version = new AtomicLong();
+	private volatile Set<String> keys;
+	private final StrSubstitutor substitutor;
+
+	private ConfigSnapshot(PropertyUtil bundle) {
+		this.bundle = bundle;
+		substitutor = new StrSubstitutor(new StrLookup() {
+			@Override
+			public String lookup(String key) {
+				Object value = getValue(key);
+				if (null == value && key.indexOf(':') > 0) {
+					return ConfigSnapshot.this.bundle.getInterpolator().lookup(key);
+				}
+				return null == value ? null : String.valueOf(value);
+			}
+		});
+	}
+
+	/**
+	 * @return snapshot of configuration of current thread
+	 */
+	public static ConfigSnapshot get() {
+		PropertyUtil bundle = getBundle();
+		ConfigSnapshot snapshot = CURRENT.get();
+		if (null == snapshot || snapshot.bundle != bundle) {
+			snapshot = of(bundle);
+			CURRENT.set(snapshot);
+		}
+		return snapshot;
+	}
+
+	private static ConfigSnapshot of(PropertyUtil bundle) {
+		synchronized (bundle) {
+			for (Object listener : bundle.getConfigurationListeners()) {
+				if (listener instanceof ConfigSnapshot && ((ConfigSnapshot) listener).bundle == bundle) {
+					return (ConfigSnapshot) listener;
+				}
+			}
+			ConfigSnapshot snapshot = new ConfigSnapshot(bundle);
+			bundle.addConfigurationListener(snapshot);
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Discard all cached values of configuration of current thread, they
+	 * will be read again on next use. Files of {@link IndexedWscRepository}
+	 * are indexed again if modified.
+	 */
+	public static void refresh() {
+		get().clear();
+	}
+
+	public boolean containsKey(String key) {
+		return null != getProperty(key) || getRepository().containsKey(key);
+	}
+
+	/**
+	 * @param key
+	 * @return true if there is any key starting with <code>key.</code>
+	 */
+	public boolean hasChildren(String key) {
+		return !getRawSubset(key).isEmpty() || !getRepository().getSubset(key).isEmpty();
+	}
+
+	/**
+	 * @param key
+	 * @return raw value, first value in case of list, without resolving
+	 *         variables
+	 */
+	public Object getValue(String key) {
+		Object value = getProperty(key);
+		if (null == value) {
+			return getRepository().getValue(key);
+		}
+		if (value instanceof List) {
+			List<?> list = (List<?>) value;
+			return list.isEmpty() ? null : list.get(0);
+		}
+		return value;
+	}
+
+	/**
+	 * @param key
+	 * @return value with resolved variables, same as
+	 *         {@link PropertyUtil#getString(String)}
+	 */
+	public String getString(String key) {
+		Object value = getValue(key);
+		return null == value ? null : resolve(String.valueOf(value));
+	}
+
+	/**
+	 * @param prefix
+	 * @return map of keys starting with <code>prefix.</code>, without prefix,
+	 *         to value with resolved variables, same as values of
+	 *         {@link PropertyUtil#subset(String)}
+	 */
+	public Map<String, String> getSubset(String prefix) {
+		Map<String, String> subset = new LinkedHashMap<String, String>();
+		for (Entry<String, Object> entry : getRawSubset(prefix).entrySet()) {
+			Object value = entry.getValue();
+			if (value instanceof List) {
+				List<?> list = (List<?>) value;
+				value = list.isEmpty() ? null : list.get(0);
+			}
+			subset.put(entry.getKey(), null == value ? null : resolve(String.valueOf(value)));
+		}
+		for (Entry<String, String> entry : getRepository().getSubset(prefix).entrySet()) {
+			if (!subset.containsKey(entry.getKey())) {
+				subset.put(entry.getKey(), resolve(entry.getValue()));
+			}
+		}
+		return Collections.unmodifiableMap(subset);
+	}
+
+	/**
+	 * @return all keys of configuration, keys of {@link IndexedWscRepository}
+	 *         are not included
+	 */
+	public Collection<String> getKeys() {
+		Set<String> keySet = keys;
+		if (null == keySet) {
+			long current = version.get();
+			keySet = new HashSet<String>();
+			Iterator<?> iter = bundle.getKeys();
+			while (iter.hasNext()) {
+				keySet.add(String.valueOf(iter.next()));
+			}
+			keySet = Collections.unmodifiableSet(keySet);
+			if (current == version.get()) {
+				keys = keySet;
+			}
+		}
+		return keySet;
+	}
+
+	/**
+	 * Replace variables in source same as
+	 * <code>getBundle().getSubstitutor().replace(source)</code>.
+	 * 
+	 * @param source
+	 * @return source with resolved variables
+	 */
+	public String resolve(String source) {
+		return substitutor.replace(source);
+	}
+
+	@Override
+	public void configurationChanged(ConfigurationEvent event) {
+		if (event.isBeforeUpdate() || event.getType() == AbstractConfiguration.EVENT_READ_PROPERTY) {
+			return;
+		}
+		version.incrementAndGet();
+		String name = event.getPropertyName();
+		int type = event.getType();
+		if (null != name && (type == AbstractConfiguration.EVENT_SET_PROPERTY
+				|| type == AbstractConfiguration.EVENT_ADD_PROPERTY
+				|| type == AbstractConfiguration.EVENT_CLEAR_PROPERTY)) {
+			values.remove(name);
+			for (int i = name.indexOf('.'); i > 0; i = name.indexOf('.', i + 1)) {
+				subsets.remove(name.substring(0, i));
+			}
+			Set<String> keySet = keys;
+			if (null != keySet && (type == AbstractConfiguration.EVENT_CLEAR_PROPERTY || !keySet.contains(name))) {
+				keys = null;
+			}
+		} else {
+			// node or whole configuration changed
+			clear();
+		}
+	}
+
+	private void clear() {
+		version.incrementAndGet();
+		values.clear();
+		subsets.clear();
+		keys = null;
+		IndexedWscRepository.reload();
+	}
+
+	private IndexedWscRepository getRepository() {
+		// location is cached same as other values, so it is looked up without
+		// synchronized configuration and changes are seen on next use
+		Object location = getProperty(IndexedWscRepository.LAZY_REPOSITORY);
+		if (location instanceof List) {
+			List<?> list = (List<?>) location;
+			location = list.isEmpty() ? null : list.get(0);
+		}
+		return IndexedWscRepository.get(null == location ? "" : resolve(String.valueOf(location)));
+	}
+
+	private Object getProperty(String key) {
+		Object value = values.get(key);
+		if (null == value) {
+			long current = version.get();
+			value = bundle.getProperty(key);
+			if (null == value) {
+				if (key.length() > MAX_ABSENT_KEY_LENGTH) {
+					return null;
+				}
+				value = NULL;
+			}
+			values.put(key, value);
+			if (current != version.get()) {
+				// changed while reading
+				values.remove(key);
+			}
+		}
+		return value == NULL ? null : value;
+	}
+
+	private Map<String, Object> getRawSubset(String prefix) {
+		Map<String, Object> subset = subsets.get(prefix);
+		if (null == subset) {
+			long current = version.get();
+			subset = new LinkedHashMap<String, Object>();
+			Configuration config = bundle.subset(prefix);
+			Iterator<?> iter = config.getKeys();
+			while (iter.hasNext()) {
+				String key = String.valueOf(iter.next());
+				// value of prefix itself is available with empty key
+				if (key.length() > 0) {
+					subset.put(key, config.getProperty(key));
+				}
+			}
+			if (subset.isEmpty() && prefix.length() > MAX_ABSENT_KEY_LENGTH) {
+				return subset;
+			}
+			subset = Collections.unmodifiableMap(subset);
+			subsets.put(prefix, subset);
+			if (current != version.get()) {
+				subsets.remove(prefix);
+			}
+		}
+		return subset;
+	}
+}
@@ -0,0 +1,475 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.metrics.CacheStats;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
+import com.qmetry.qaf.automation.util.StringUtil;
+
+/**
+ * Call repository loaded on demand from <code>.wsc</code>/
+ * <code>.properties</code> files given by {@link #LAZY_REPOSITORY
+ * ws.repository.lazy} (comma separated files or directories), instead of
+ * loading them in configuration through <code>env.resources</code>. At
+ * first use each file is indexed (key to offset and length of entry in file)
+ * and index is saved in {@link #INDEX_DIR ws.repository.index.dir} (default
+ * <code>qaf-wsc-index</code> in temp directory). Saved index is used as long
+ * as size and last modified time of file are not changed. Value of entry is
+ * read from file when it is requested first time.
+ * <p>
+ * {@link ConfigSnapshot} looks up keys not available in configuration in
+ * this repository, so request calls and other properties in these files are
+ * available to request calls same as properties loaded in configuration.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class IndexedWscRepository {
+	public static final String LAZY_REPOSITORY = "ws.repository.lazy";
+	public static final String INDEX_DIR = "ws.repository.index.dir";
+
+	private static final Log logger = LogFactory.getLog(IndexedWscRepository.class);
+	private static final int INDEX_VERSION = 1;
+	private static final CacheStats STATS = WsMetrics.cache("call-definition");
+	private static final IndexedWscRepository EMPTY = new IndexedWscRepository("",
+			Collections.<File> emptyList(), null);
+	private static volatile IndexedWscRepository instance = EMPTY;
+
+	private final String location;
+	private final File indexDir;
+	private final List<Source> sources = new ArrayList<Source>();
+	private final TreeMap<String, IndexEntry> index = new TreeMap<String, IndexEntry>();
+	private final ConcurrentMap<String, String> values = new ConcurrentHashMap<String, String>();
+
+	private IndexedWscRepository(String location, List<File> files, File indexDir) {
+		this.location = location;
+		this.indexDir = indexDir;
+		for (File file : files) {
+			Source source = new Source(file);
+			sources.add(source);
+			for (IndexEntry entry : getIndex(source)) {
+				if (!index.containsKey(entry.key)) {
+					index.put(entry.key, entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return repository for files given by {@link #LAZY_REPOSITORY}, empty
+	 *         repository if property is not set.
+	 */
+	public static IndexedWscRepository get() {
+		return get(getBundle().getString(LAZY_REPOSITORY, ""));
+	}
+
+	/**
+	 * @param location
+	 *            comma separated files or directories
+	 * @return repository for given files, empty repository if location is
+	 *         blank.
+	 */
+	static IndexedWscRepository get(String location) {
+		IndexedWscRepository repository = instance;
+		if (!repository.location.equals(location)) {
+			synchronized (IndexedWscRepository.class) {
+				repository = instance;
+				if (!repository.location.equals(location)) {
+					repository = StringUtil.isBlank(location) ? EMPTY : create(location);
+					instance = repository;
+				}
+			}
+		}
+		return repository;
+	}
+
+	/**
+	 * Indexes files of repository again if any file is added, removed or
+	 * modified after it was indexed.
+	 */
+	static void reload() {
+		synchronized (IndexedWscRepository.class) {
+			IndexedWscRepository repository = instance;
+			if (repository != EMPTY && repository.isModified()) {
+				instance = create(repository.location);
+			}
+		}
+	}
+
+	private static IndexedWscRepository create(String location) {
+		long start = System.currentTimeMillis();
+		List<File> files = getFiles(location);
+		File indexDir = new File(getBundle().getString(INDEX_DIR,
+				new File(System.getProperty("java.io.tmpdir"), "qaf-wsc-index").getPath()));
+		IndexedWscRepository repository = new IndexedWscRepository(location, files, indexDir);
+		logger.info("Indexed " + repository.index.size() + " entries of " + files.size() + " files in "
+				+ (System.currentTimeMillis() - start) + "ms");
+		return repository;
+	}
+
+	private static List<File> getFiles(String location) {
+		List<File> files = new ArrayList<File>();
+		for (String path : location.split(",")) {
+			if (StringUtil.isNotBlank(path)) {
+				collect(new File(path.trim()), files);
+			}
+		}
+		return files;
+	}
+
+	private boolean isModified() {
+		List<File> files = getFiles(location);
+		if (files.size() != sources.size()) {
+			return true;
+		}
+		for (int i = 0; i < files.size(); i++) {
+			Source source = sources.get(i);
+			File file = files.get(i);
+			if (!file.equals(source.file) || file.length() != source.size
+					|| file.lastModified() != source.lastModified) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isEmpty() {
+		return index.isEmpty();
+	}
+
+	public boolean containsKey(String key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * @return all keys in repository, values are not loaded.
+	 */
+	public Collection<String> getKeys() {
+		return Collections.unmodifiableSet(index.keySet());
+	}
+
+	/**
+	 * @param key
+	 * @return true if value of key is request call definition in json
+	 *         format, value is not loaded.
+	 */
+	public boolean isCall(String key) {
+		IndexEntry entry = index.get(key);
+		return null != entry && entry.call;
+	}
+
+	/**
+	 * @param key
+	 * @return raw value, without resolving variables, or null if key is not
+	 *         available.
+	 */
+	public String getValue(String key) {
+		String value = values.get(key);
+		if (null == value) {
+			IndexEntry entry = index.get(key);
+			if (null == entry) {
+				return null;
+			}
+			STATS.miss();
+			value = entry.source.read(entry);
+			values.putIfAbsent(key, value);
+		} else {
+			STATS.hit();
+		}
+		return value;
+	}
+
+	/**
+	 * @param prefix
+	 * @return map of keys starting with <code>prefix.</code>, without prefix,
+	 *         to raw value
+	 */
+	public Map<String, String> getSubset(String prefix) {
+		if (index.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<String, String> subset = new LinkedHashMap<String, String>();
+		// '/' is next character after '.'
+		for (String key : index.subMap(prefix + ".", prefix + "/").keySet()) {
+			subset.put(key.substring(prefix.length() + 1), getValue(key));
+		}
+		return subset;
+	}
+
+	private List<IndexEntry> getIndex(Source source) {
+		File indexFile = getIndexFile(source.file);
+		if (indexFile.exists()) {
+			try {
+				List<IndexEntry> entries = readIndex(indexFile, source);
+				if (null != entries) {
+					return entries;
+				}
+			} catch (IOException e) {
+				logger.debug("Ignoring index " + indexFile + ": " + e.getMessage());
+			}
+		}
+		List<IndexEntry> entries = buildIndex(source);
+		try {
+			writeIndex(indexFile, source, entries);
+		} catch (IOException e) {
+			logger.warn("Unable to save index of " + source.file + ": " + e.getMessage());
+		}
+		return entries;
+	}
+
+	private File getIndexFile(File file) {
+		String path = file.getAbsolutePath();
+		return new File(indexDir, file.getName() + "-" + Integer.toHexString(path.hashCode()) + ".idx");
+	}
+
+	/**
+	 * @return entries of index, null if index is not of current version of
+	 *         file
+	 */
+	private List<IndexEntry> readIndex(File indexFile, Source source) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+			if (in.readInt() != INDEX_VERSION || !in.readUTF().equals(source.file.getAbsolutePath())
+					|| in.readLong() != source.size || in.readLong() != source.lastModified) {
+				return null;
+			}
+			int count = in.readInt();
+			List<IndexEntry> entries = new ArrayList<IndexEntry>(count);
+			for (int i = 0; i < count; i++) {
+				entries.add(new IndexEntry(source, in.readUTF(), in.readLong(), in.readInt(), in.readBoolean()));
+			}
+			return entries;
+		}
+	}
+
+	private void writeIndex(File indexFile, Source source, List<IndexEntry> entries) throws IOException {
+		if (!indexDir.exists() && !indexDir.mkdirs()) {
+			throw new IOException("Unable to create directory " + indexDir);
+		}
+		File tmp = File.createTempFile(indexFile.getName(), ".tmp", indexDir);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(INDEX_VERSION);
+			out.writeUTF(source.file.getAbsolutePath());
+			out.writeLong(source.size);
+			out.writeLong(source.lastModified);
+			out.writeInt(entries.size());
+			for (IndexEntry entry : entries) {
+				out.writeUTF(entry.key);
+				out.writeLong(entry.offset);
+				out.writeInt(entry.length);
+				out.writeBoolean(entry.call);
+			}
+		}
+		Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Scans logical lines of properties file, continuation lines are part
+	 * of entry.
+	 */
+	private static List<IndexEntry> buildIndex(Source source) {
+		byte[] content;
+		try {
+			content = Files.readAllBytes(source.file.toPath());
+		} catch (IOException e) {
+			throw new AutomationError("Unable to read " + source.file, e);
+		}
+		List<IndexEntry> entries = new ArrayList<IndexEntry>();
+		int pos = 0;
+		while (pos < content.length) {
+			int start = pos;
+			int end = lineEnd(content, pos);
+			pos = next(content, end);
+			int first = skipWhitespace(content, start, end);
+			if (first == end || content[first] == '#' || content[first] == '!') {
+				continue;
+			}
+			while (isContinued(content, start, end) && pos < content.length) {
+				end = lineEnd(content, pos);
+				pos = next(content, end);
+			}
+			Entry<String, String> property = parse(content, first, end - first);
+			if (null != property) {
+				entries.add(new IndexEntry(source, property.getKey(), first, end - first,
+						WscRepository.isCallDefinition(property.getValue())));
+			}
+		}
+		return entries;
+	}
+
+	private static Entry<String, String> parse(byte[] content, int offset, int length) {
+		Properties properties = new Properties();
+		try {
+			properties.load(new StringReader(new String(content, offset, length, StandardCharsets.UTF_8)));
+		} catch (IOException e) {
+			throw new AutomationError(e);
+		}
+		for (Entry<Object, Object> property : properties.entrySet()) {
+			return new SimpleEntry<String, String>(String.valueOf(property.getKey()),
+					String.valueOf(property.getValue()));
+		}
+		return null;
+	}
+
+	private static int lineEnd(byte[] content, int pos) {
+		while (pos < content.length && content[pos] != '\n' && content[pos] != '\r') {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static int next(byte[] content, int end) {
+		if (end < content.length && content[end] == '\r') {
+			end++;
+		}
+		if (end < content.length && content[end] == '\n') {
+			end++;
+		}
+		return end;
+	}
+
+	private static int skipWhitespace(byte[] content, int pos, int end) {
+		while (pos < end && (content[pos] == ' ' || content[pos] == '\t' || content[pos] == '\f')) {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static boolean isContinued(byte[] content, int start, int end) {
+		int backslashes = 0;
+		for (int i = end - 1; i >= start && content[i] == '\\'; i--) {
+			backslashes++;
+		}
+		return backslashes % 2 == 1;
+	}
+
+	private static void collect(File file, List<File> files) {
+		if (file.isDirectory()) {
+			File[] children = file.listFiles();
+			if (null != children) {
+				Arrays.sort(children);
+				for (File child : children) {
+					collect(child, files);
+				}
+			}
+		} else if (file.getName().endsWith(".wsc") || file.getName().endsWith(".properties")) {
+			files.add(file);
+		} else if (!file.exists()) {
+			logger.warn("Call repository " + file + " doesn't exist");
+		}
+	}
+
+	private static class Source {
+		final File file;
+		final long size;
+		final long lastModified;
+
+		Source(File file) {
+			this.file = file;
+			size = file.length();
+			lastModified = file.lastModified();
+		}
+
+		String read(IndexEntry entry) {
+			if (file.length() != size || file.lastModified() != lastModified) {
+				// offsets are not valid anymore
+				logger.warn(file + " is modified after it is indexed, reading " + entry.key + " from whole file");
+				Properties properties = new Properties();
+				try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+					properties.load(reader);
+				} catch (IOException e) {
+					throw new AutomationError("Unable to read " + entry.key + " from " + file, e);
+				}
+				return properties.getProperty(entry.key);
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+			try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer, entry.offset + buffer.position()) < 0) {
+						throw new IOException("Unexpected end of file");
+					}
+				}
+			} catch (IOException e) {
+				throw new AutomationError("Unable to read " + entry.key + " from " + file, e);
+			}
+			Entry<String, String> property = parse(buffer.array(), 0, entry.length);
+			return null == property ? null : property.getValue();
+		}
+	}
+
+	private static class IndexEntry {
+		final Source source;
+		final String key;
+		final long offset;
+		final int length;
+		final boolean call;
+
+		IndexEntry(Source source, String key, long offset, int length, boolean call) {
+			this.source = source;
+			this.key = key;
+			this.offset = offset;
+			this.length = length;
+			this.call = call;
+		}
+	}
+}
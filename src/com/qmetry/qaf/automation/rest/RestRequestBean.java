@@ -38,9 +38,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
-import org.apache.commons.configuration.Configuration;
-import org.apache.commons.configuration.HierarchicalConfiguration.Node;
 import org.apache.commons.lang.text.StrSubstitutor;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -49,6 +49,7 @@ import com.google.gson.annotations.SerializedName;
 import com.qmetry.qaf.automation.core.AutomationError;
 import com.qmetry.qaf.automation.data.BaseDataBean;
 import com.qmetry.qaf.automation.keys.ApplicationProperties;
+import com.qmetry.qaf.automation.rest.soap.SoapEnvelopeWriter;
 import com.qmetry.qaf.automation.util.FileUtil;
 import com.qmetry.qaf.automation.util.StringMatcher;
 import com.qmetry.qaf.automation.util.StringUtil;
@@ -63,6 +64,10 @@ public class RestRequestBean extends BaseDataBean implements Serializable {
 	 */
 	private static final long serialVersionUID = 423394605353099602L;
 
+	private static final String[] SOAP_TEMPLATES = { SoapEnvelopeWriter.HEADER, SoapEnvelopeWriter.BODY,
+			SoapEnvelopeWriter.REPEAT };
+	private static final Pattern SOAP_PLACEHOLDER = Pattern.compile("\\$\\{([^}]*)\\}");
+
 	private String method = "GET";
 
 	private String baseUrl = "";
@@ -87,6 +92,18 @@ public class RestRequestBean extends BaseDataBean implements Serializable {
 
 	private String reference = "";
 
+	private String auth = "";
+
+	private Map<String, Object> upload = new HashMap<String, Object>();
+
+	private Map<String, Object> soap = new HashMap<String, Object>();
+
+	private Map<String, Object> paging = new HashMap<String, Object>();
+
+	private transient String key;
+
+	private transient Map<String, Object> soapValues;
+
 	// private final transient Gson gson = getGson();
 
 	public String getBaseUrl() {
@@ -169,6 +186,14 @@ public class RestRequestBean extends BaseDataBean implements Serializable {
 		this.parameters = parameters;
 	}
 
+	/**
+	 * @return key of request call used to populate this request, null when
+	 *         request is populated from map or json
+	 */
+	public String getKey() {
+		return key;
+	}
+
 	public String getReference() {
 		return reference;
 	}
@@ -177,20 +202,80 @@ public class RestRequestBean extends BaseDataBean implements Serializable {
 		this.reference = reference;
 	}
 
+	/**
+	 * @return name of authentication profile to be used for request
+	 * @see com.qmetry.qaf.automation.rest.client.AuthClientRegistry
+	 */
+	public String getAuth() {
+		return auth;
+	}
+
+	public void setAuth(String auth) {
+		this.auth = auth;
+	}
+
+	/**
+	 * @return chunked upload settings, empty if body needs to be sent in
+	 *         single request
+	 * @see com.qmetry.qaf.automation.rest.upload.ChunkedUploader
+	 */
+	public Map<String, Object> getUpload() {
+		return upload;
+	}
+
+	public void setUpload(Map<String, Object> upload) {
+		this.upload = upload;
+	}
+
+	/**
+	 * @return SOAP envelope settings, empty if request is not SOAP call
+	 * @see SoapEnvelopeWriter
+	 */
+	public Map<String, Object> getSoap() {
+		return soap;
+	}
+
+	public void setSoap(Map<String, Object> soap) {
+		this.soap = soap;
+	}
+
+	/**
+	 * @return pagination settings used to traverse items of paginated
+	 *         collection
+	 * @see com.qmetry.qaf.automation.rest.paging.PageTraversal
+	 */
+	public Map<String, Object> getPaging() {
+		return paging;
+	}
+
+	public void setPaging(Map<String, Object> paging) {
+		this.paging = paging;
+	}
+
 	/**
 	 * Priority for resolver is:
 	 * <ol>
 	 * <li>data provided in argument
 	 * <li>parameter in request call
 	 * <li>parameter in request reference
+	 * <li>variable in {@link ScenarioVariables scenario scope}
 	 * <li>configuration property
 	 * </ol>
 	 * To ignore specific query or form parameter provide blank ('') value for that key.
 	 * @param data
 	 */
 	public void resolveParameters(Map<String, Object> data) {
+		// soap templates are resolved while writing envelope, writer escapes
+		// values for xml
+		Map<String, Object> soapTemplates = new HashMap<String, Object>();
+		for (String key : SOAP_TEMPLATES) {
+			if (soap.containsKey(key)) {
+				soapTemplates.put(key, soap.remove(key));
+			}
+		}
 		JSONObject j = new JSONObject(this);
 		j.remove("reference");
+		j.remove("key");
 		String source = resolveParameters(j.toString(), data);
 
 		fillFromJsonString(source);
@@ -211,13 +296,39 @@ public class RestRequestBean extends BaseDataBean implements Serializable {
 				}
 			}
 		}
+		soapValues = new HashMap<String, Object>();
+		for (Entry<String, Object> template : soapTemplates.entrySet()) {
+			String xml = String.valueOf(template.getValue());
+			if (StringMatcher.startsWithIgnoringCase("file:").match(xml)) {
+				String file = resolveParameters(xml.split(":", 2)[1], data);
+				try {
+					xml = FileUtil.readFileToString(new File(file), StandardCharsets.UTF_8);
+				} catch (IOException e) {
+					throw new AutomationError("Unable to read file: " + file, e);
+				}
+			}
+			// template is resolved while writing, so field of record is not
+			// shadowed by parameter with same name
+			soap.put(template.getKey(), xml);
+			resolveXmlParameters(xml, data, soapValues);
+		}
+	}
+
+	/**
+	 * @return writer of SOAP envelope of this request, placeholders of soap
+	 *         templates not provided by record are resolved using values of
+	 *         last {@link #resolveParameters(Map)}
+	 */
+	public SoapEnvelopeWriter createSoapEnvelopeWriter() {
+		return new SoapEnvelopeWriter(soap).withValues(soapValues);
 	}
 
 	@Override
 	public void fillData(Object obj) {
 		try {
 			boolean isString = (obj instanceof String);
-			if (isString && (getBundle().containsKey((String) obj) || !getBundle().subset((String) obj).isEmpty())) {
+			ConfigSnapshot config = ConfigSnapshot.get();
+			if (isString && (config.containsKey((String) obj) || config.hasChildren((String) obj))) {
 				fillFromConfig((String) obj);
 
 			} else {
@@ -231,19 +342,48 @@ public class RestRequestBean extends BaseDataBean implements Serializable {
 
 	@Override
 	public void fillFromConfig(String reqkey) {
-		Node node = getBundle().configurationAt(reqkey).getRoot();
-		if (!node.hasChildren()) {
-			fillFromJsonString(getBundle().getString(reqkey));
+		ConfigSnapshot config = ConfigSnapshot.get();
+		if (!config.hasChildren(reqkey)) {
+			if (!config.containsKey(reqkey)) {
+				// fails same as configuration for missing key
+				getBundle().configurationAt(reqkey);
+			}
+			fillFromJsonString(config.getString(reqkey));
 		} else {
-			Configuration config = getBundle().subset(reqkey);
-			Iterator<?> keys = config.getKeys();
-			Map<String, String> map = new HashMap<String, String>();
-			while (keys.hasNext()) {
-				String dataKey = String.valueOf(keys.next());
-				String value = config.getString(dataKey);
-				map.put(dataKey, value);
+			fillData(new HashMap<String, String>(config.getSubset(reqkey)));
+		}
+		if (!soap.isEmpty()) {
+			keepRawSoapTemplates(reqkey);
+		}
+		// set after references are filled
+		key = reqkey;
+	}
+
+	/**
+	 * Soap templates are resolved while writing envelope, template with
+	 * variables resolved from configuration would shadow field of record with
+	 * same name.
+	 */
+	private void keepRawSoapTemplates(String reqkey) {
+		ConfigSnapshot config = ConfigSnapshot.get();
+		boolean hierarchical = config.hasChildren(reqkey);
+		Object raw = hierarchical ? config.getValue(reqkey + "." + WSCRepositoryConstants.SOAP)
+				: config.getValue(reqkey);
+		if (null == raw || !String.valueOf(raw).trim().startsWith("{")) {
+			return;
+		}
+		try {
+			JSONObject definition = new JSONObject(String.valueOf(raw));
+			JSONObject rawSoap = hierarchical ? definition : definition.optJSONObject(WSCRepositoryConstants.SOAP);
+			if (null != rawSoap) {
+				for (String template : SOAP_TEMPLATES) {
+					if (rawSoap.has(template)) {
+						soap.put(template, String.valueOf(rawSoap.get(template)));
+					}
+				}
 			}
-			fillData(map);
+		} catch (JSONException e) {
+			// keep resolved templates
 		}
 	}
 
@@ -299,16 +439,58 @@ public class RestRequestBean extends BaseDataBean implements Serializable {
 		setMap(val, parameters);
 	}
 
+	public void setUpload(String val) {
+		setMap(val, upload);
+	}
+
+	public void setSoap(String val) {
+		setMap(val, soap);
+	}
+
+	public void setPaging(String val) {
+		setMap(val, paging);
+	}
+
 	private String resolveParameters(String source, Map<String, Object> data) {
 		if (null != data && !data.isEmpty()) {
 			source = StrSubstitutor.replace(source, data);
 		}
 		source = StrSubstitutor.replace(source, getParameters());
-		source = getBundle().getSubstitutor().replace(source);
+		if (!ScenarioVariables.isEmpty()) {
+			source = StrSubstitutor.replace(source, ScenarioVariables.getVariables());
+		}
+		source = ConfigSnapshot.get().resolve(source);
 
 		return source;
 	}
 
+	/**
+	 * Collects values of placeholders in template, resolved with same priority
+	 * as {@link #resolveParameters(String, Map)}. Placeholders without value
+	 * are not collected, so that they can be resolved from record.
+	 */
+	private void resolveXmlParameters(String source, Map<String, Object> data, Map<String, Object> values) {
+		Matcher matcher = SOAP_PLACEHOLDER.matcher(source);
+		while (matcher.find()) {
+			String key = matcher.group(1);
+			Object value;
+			if (null != data && data.containsKey(key)) {
+				value = data.get(key);
+			} else if (getParameters().containsKey(key)) {
+				value = getParameters().get(key);
+			} else if (ScenarioVariables.getVariables().containsKey(key)) {
+				value = ScenarioVariables.get(key);
+			} else {
+				String variable = "${" + key + "}";
+				String resolved = ConfigSnapshot.get().resolve(variable);
+				value = variable.equals(resolved) ? null : resolved;
+			}
+			if (null != value) {
+				values.put(key, value);
+			}
+		}
+	}
+
 	private void setMap(String val, Map<String, Object> map) {
 		if (StringUtil.isNotBlank(val)) {
 			JSONObject jsonObject = new JSONObject(val);
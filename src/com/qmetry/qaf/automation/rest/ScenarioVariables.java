@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread confined store for variables extracted from response, for example
+ * by <code>say {var-name} is value at jsonpath {jsonpath}</code>. When
+ * {@link #VARIABLE_SCOPE ws.variable.scope} is <code>scenario</code>,
+ * extracted values are stored here instead of global configuration, so they
+ * are not visible to scenarios running in parallel and doesn't require
+ * synchronized access. Request parameters are resolved from this store
+ * before configuration. Default scope is <code>global</code> that stores
+ * values in configuration, as required to use them in BDD step arguments.
+ * <p>
+ * Store is cleared before each test by {@link ScenarioVariablesListener}.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class ScenarioVariables {
+	public static final String VARIABLE_SCOPE = "ws.variable.scope";
+	public static final String SCOPE_SCENARIO = "scenario";
+	public static final String SCOPE_GLOBAL = "global";
+
+	private static final ThreadLocal<Map<String, Object>> VARIABLES = new ThreadLocal<Map<String, Object>>() {
+		@Override
+		protected Map<String, Object> initialValue() {
+			return new HashMap<String, Object>();
+		}
+	};
+
+	private ScenarioVariables() {
+	}
+
+	/**
+	 * Store variable in configured {@link #VARIABLE_SCOPE scope}.
+	 * 
+	 * @param name
+	 * @param value
+	 */
+	public static void store(String name, Object value) {
+		if (isScenarioScope()) {
+			put(name, value);
+		} else {
+			getBundle().setProperty(name, value);
+		}
+	}
+
+	/**
+	 * Store variable in scenario scope of current thread.
+	 * 
+	 * @param name
+	 * @param value
+	 */
+	public static void put(String name, Object value) {
+		VARIABLES.get().put(name, value);
+	}
+
+	/**
+	 * @param name
+	 * @return value from scenario scope, if not available then from
+	 *         configuration
+	 */
+	public static Object get(String name) {
+		Map<String, Object> variables = VARIABLES.get();
+		if (variables.containsKey(name)) {
+			return variables.get(name);
+		}
+		return getBundle().getProperty(name);
+	}
+
+	/**
+	 * @return read only view of variables in scenario scope of current thread
+	 */
+	public static Map<String, Object> getVariables() {
+		return Collections.unmodifiableMap(VARIABLES.get());
+	}
+
+	/**
+	 * @return true if no variable available in scenario scope of current
+	 *         thread
+	 */
+	public static boolean isEmpty() {
+		return VARIABLES.get().isEmpty();
+	}
+
+	/**
+	 * Remove all variables from scenario scope of current thread.
+	 */
+	public static void clear() {
+		VARIABLES.get().clear();
+	}
+
+	/**
+	 * Thread factory for worker threads that send requests on behalf of
+	 * current thread. Variables in scenario scope of current thread, at the
+	 * time factory is created, are copied to scenario scope of each worker
+	 * thread.
+	 * 
+	 * @return thread factory
+	 */
+	public static ThreadFactory threadFactory() {
+		final Map<String, Object> variables = new HashMap<String, Object>(VARIABLES.get());
+		final ThreadFactory factory = Executors.defaultThreadFactory();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable r) {
+				return factory.newThread(new Runnable() {
+					@Override
+					public void run() {
+						VARIABLES.get().putAll(variables);
+						r.run();
+					}
+				});
+			}
+		};
+	}
+
+	/**
+	 * @return true if {@link #VARIABLE_SCOPE scope} is <code>scenario</code>,
+	 *         read through {@link ConfigSnapshot} without synchronized
+	 *         configuration
+	 */
+	public static boolean isScenarioScope() {
+		return SCOPE_SCENARIO.equalsIgnoreCase(ConfigSnapshot.get().getString(VARIABLE_SCOPE));
+	}
+}
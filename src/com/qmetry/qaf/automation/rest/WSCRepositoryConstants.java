@@ -44,4 +44,9 @@ public interface WSCRepositoryConstants {
 	Object RESPONSE_SCHEMA = "response-schema";
 	String REFERENCE = "reference";
 	String PARAMETERS = "parameters";
+	String STUB_RESPONSE = "stub-response";
+	String AUTH = "auth";
+	String UPLOAD = "upload";
+	String SOAP = "soap";
+	String PAGING = "paging";
 }
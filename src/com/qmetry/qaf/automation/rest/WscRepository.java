@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.configuration.Configuration;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.qmetry.qaf.automation.util.StringUtil;
+
+/**
+ * Utility to look up web-service call definitions loaded from
+ * <code>.wsc</code>/<code>.properties</code> call repository files, in
+ * configuration or in {@link IndexedWscRepository}.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class WscRepository {
+
+	private static final String[] CALL_ATTRIBUTES = { WSCRepositoryConstants.END_POINT,
+			WSCRepositoryConstants.BASE_URL, WSCRepositoryConstants.METHOD, WSCRepositoryConstants.REFERENCE };
+
+	private WscRepository() {
+	}
+
+	/**
+	 * Scans configuration for request call definitions. Both json format
+	 * (<code>my.call={'endPoint':'/x',...}</code>) and hierarchical format
+	 * (<code>my.call.endPoint=/x</code>) are considered.
+	 * 
+	 * @return keys of all request calls available in repository
+	 */
+	public static Set<String> getCallKeys() {
+		Set<String> callKeys = new LinkedHashSet<String>();
+		Iterator<?> keys = getBundle().getKeys();
+		while (keys.hasNext()) {
+			String key = String.valueOf(keys.next());
+			String parent = getParentKey(key);
+			if (null != parent) {
+				callKeys.add(parent);
+			} else {
+				Object value = getBundle().getProperty(key);
+				if (value instanceof String && isCallDefinition((String) value)) {
+					callKeys.add(key);
+				}
+			}
+		}
+		IndexedWscRepository repository = IndexedWscRepository.get();
+		for (String key : repository.getKeys()) {
+			String parent = getParentKey(key);
+			if (null != parent) {
+				callKeys.add(parent);
+			} else if (repository.isCall(key) && !getBundle().containsKey(key)) {
+				callKeys.add(key);
+			}
+		}
+		return callKeys;
+	}
+
+	/**
+	 * @param key
+	 *            request call key
+	 * @return definition of request call as json object or null if key is not
+	 *         a request call.
+	 */
+	public static JSONObject getDefinition(String key) {
+		if (getBundle().containsKey(key)) {
+			Object value = getBundle().getProperty(key);
+			return value instanceof String && isCallDefinition((String) value) ? new JSONObject((String) value)
+					: null;
+		}
+		IndexedWscRepository repository = IndexedWscRepository.get();
+		if (repository.containsKey(key)) {
+			return repository.isCall(key) ? new JSONObject(repository.getValue(key)) : null;
+		}
+		Configuration config = getBundle().subset(key);
+		Map<String, String> indexed = repository.getSubset(key);
+		if (config.isEmpty() && indexed.isEmpty()) {
+			return null;
+		}
+		JSONObject definition = new JSONObject();
+		for (Entry<String, String> entry : indexed.entrySet()) {
+			put(definition, entry.getKey(), ConfigSnapshot.get().resolve(entry.getValue()));
+		}
+		Iterator<?> keys = config.getKeys();
+		while (keys.hasNext()) {
+			String dataKey = String.valueOf(keys.next());
+			put(definition, dataKey, config.getString(dataKey));
+		}
+		return definition;
+	}
+
+	/**
+	 * Looks up attribute of request call, following
+	 * {@link WSCRepositoryConstants#REFERENCE reference} if attribute not
+	 * provided in request call itself.
+	 * 
+	 * @param key
+	 *            request call key
+	 * @param attribute
+	 *            attribute name
+	 * @return attribute value or null if not available.
+	 */
+	public static Object getAttribute(String key, String attribute) {
+		Set<String> visited = new LinkedHashSet<String>();
+		JSONObject definition = getDefinition(key);
+		while (null != definition && visited.add(key)) {
+			if (definition.has(attribute)) {
+				return definition.get(attribute);
+			}
+			key = definition.optString(WSCRepositoryConstants.REFERENCE, "");
+			definition = StringUtil.isBlank(key) ? null : getDefinition(key);
+		}
+		return null;
+	}
+
+	/**
+	 * Looks up {@link WSCRepositoryConstants#RESPONSE_SCHEMA response-schema}
+	 * of request call same as request is built from repository, request call
+	 * can be in configuration or in {@link IndexedWscRepository}, in json or
+	 * hierarchical format.
+	 * 
+	 * @param key
+	 *            request call key or request call in json format
+	 * @return schema with resolved variables, json schema, xsd, file or url,
+	 *         null if not provided
+	 */
+	public static String getResponseSchema(String key) {
+		String attribute = String.valueOf(WSCRepositoryConstants.RESPONSE_SCHEMA);
+		Object schema = key.trim().startsWith("{") ? new JSONObject(key).opt(attribute)
+				: getAttribute(key, attribute);
+		return null == schema ? null : ConfigSnapshot.get().resolve(String.valueOf(schema));
+	}
+
+	static boolean isCallDefinition(String value) {
+		if (StringUtil.isBlank(value) || !value.trim().startsWith("{")) {
+			return false;
+		}
+		try {
+			JSONObject jsonObject = new JSONObject(value);
+			for (String attribute : CALL_ATTRIBUTES) {
+				if (jsonObject.has(attribute)) {
+					return true;
+				}
+			}
+		} catch (JSONException e) {
+			// not a request call
+		}
+		return false;
+	}
+
+	private static void put(JSONObject definition, String key, String value) {
+		definition.put(key, StringUtil.isNotBlank(value) && value.trim().startsWith("{") ? new JSONObject(value) : value);
+	}
+
+	private static String getParentKey(String key) {
+		int index = key.lastIndexOf('.');
+		if (index > 0) {
+			String attribute = key.substring(index + 1);
+			if (attribute.equals(WSCRepositoryConstants.END_POINT)
+					|| attribute.equals(WSCRepositoryConstants.REFERENCE)) {
+				return key.substring(0, index);
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.assertion;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.qmetry.qaf.automation.rest.metrics.CacheStats;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
+import com.qmetry.qaf.automation.util.StringMatcher;
+
+/**
+ * Compiled form of {@link StringMatcher} specification
+ * (<code>prefix:value</code>, for example <code>gte:1.90</code> or
+ * <code>containsIgnoringCase:admin</code>). Expected value is parsed once
+ * when plan is compiled and recently used plans are cached, so same
+ * specification used in data driven loop doesn't get parsed again. Actual
+ * value is matched with {@link #match(Object)} that compares numbers and
+ * booleans natively instead of converting them to string. Result of match is
+ * same as {@link StringMatcher} applied on <code>String.valueOf(actual)</code>.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class AssertionPlan extends StringMatcher {
+	private static final int MAX_CACHE_SIZE = 1024;
+	// least recently used plans are evicted, accessed under lock of map
+	private static final Map<String, AssertionPlan> PLANS = new PlanCache();
+	private static final Map<String, AssertionPlan> EXACT_PLANS = new PlanCache();
+	private static final CacheStats STATS = WsMetrics.cache("assertion-plan");
+	private static final Map<String, Kind> KINDS = new HashMap<String, Kind>();
+
+	private enum Kind {
+		EXACT("Exact"), EXACT_IGNORING_CASE("ExactIgnoringCase"), STARTS_WITH("StartsWith"), STARTS_WITH_IGNORING_CASE(
+				"StartsWithIgnoringCase"), ENDS_WITH("EndsWith"), ENDS_WITH_IGNORING_CASE(
+						"EndsWithIgnoringCase"), CONTAINS("Contains"), CONTAINS_IGNORING_CASE(
+								"ContainsIgnoringCase"), LIKE("Like"), LIKE_IGNORING_CASE(
+										"LikeIgnoringCase"), GT("GT"), GTE("GTE"), LT("LT"), LTE("LTE"), EQ("EQ"), CUSTOM(null);
+
+		private final String displayName;
+
+		private Kind(String displayName) {
+			this.displayName = displayName;
+		}
+	}
+
+	static {
+		for (Kind kind : Kind.values()) {
+			if (null != kind.displayName) {
+				KINDS.put(kind.displayName.toLowerCase(), kind);
+			}
+		}
+	}
+
+	private final Kind kind;
+	private final StringMatcher delegate;
+	private final Pattern pattern;
+	private final double number;
+	private final boolean isLong;
+	private final long longValue;
+	private final boolean isDouble;
+
+	private AssertionPlan(Kind kind, String expected, StringMatcher delegate) {
+		super(expected);
+		this.kind = kind;
+		this.delegate = delegate;
+		pattern = kind == Kind.LIKE ? Pattern.compile(expected)
+				: kind == Kind.LIKE_IGNORING_CASE ? Pattern.compile(expected, Pattern.CASE_INSENSITIVE) : null;
+		number = parseDouble(expected);
+		long l = 0;
+		boolean canonicalLong = false;
+		try {
+			l = Long.parseLong(expected);
+			canonicalLong = Long.toString(l).equals(expected);
+		} catch (NumberFormatException e) {
+			// not a long
+		}
+		longValue = l;
+		isLong = canonicalLong;
+		isDouble = !Double.isNaN(number) && Double.toString(number).equals(expected);
+	}
+
+	/**
+	 * Get compiled plan for matcher specification. Specification without
+	 * known prefix is treated as exact match.
+	 * 
+	 * @param spec
+	 *            {@link StringMatcher}, {@link AssertionPlan} or
+	 *            <code>prefix:value</code> string
+	 * @return compiled plan
+	 */
+	public static AssertionPlan compile(Object spec) {
+		if (spec instanceof AssertionPlan) {
+			return (AssertionPlan) spec;
+		}
+		if (spec instanceof StringMatcher) {
+			StringMatcher matcher = (StringMatcher) spec;
+			return new AssertionPlan(Kind.CUSTOM, matcher.toString(), matcher);
+		}
+		String s = String.valueOf(spec);
+		AssertionPlan plan;
+		synchronized (PLANS) {
+			plan = PLANS.get(s);
+		}
+		STATS.record(null != plan);
+		if (null == plan) {
+			plan = create(s);
+			synchronized (PLANS) {
+				PLANS.put(s, plan);
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * Get compiled exact match plan for expected value. Unlike
+	 * {@link #compile(Object)} value is not checked for matcher prefix.
+	 * 
+	 * @param expected
+	 * @return compiled plan
+	 */
+	public static AssertionPlan exact(String expected) {
+		AssertionPlan plan;
+		synchronized (EXACT_PLANS) {
+			plan = EXACT_PLANS.get(expected);
+		}
+		STATS.record(null != plan);
+		if (null == plan) {
+			plan = new AssertionPlan(Kind.EXACT, expected, null);
+			synchronized (EXACT_PLANS) {
+				EXACT_PLANS.put(expected, plan);
+			}
+		}
+		return plan;
+	}
+
+	private static AssertionPlan create(String spec) {
+		int index = spec.indexOf(':');
+		if (index > 0) {
+			String prefix = spec.substring(0, index);
+			String expected = spec.substring(index + 1);
+			Kind kind = KINDS.get(prefix.toLowerCase());
+			if (null != kind) {
+				return new AssertionPlan(kind, expected, null);
+			}
+			StringMatcher matcher = StringMatcher.get(prefix, expected);
+			if (null != matcher) {
+				return new AssertionPlan(Kind.CUSTOM, expected, matcher);
+			}
+		}
+		return new AssertionPlan(Kind.EXACT, spec, null);
+	}
+
+	/**
+	 * @param actual
+	 *            actual value, number and boolean values are compared without
+	 *            converting to string.
+	 * @return true if actual value matches this plan
+	 */
+	public boolean match(Object actual) {
+		switch (kind) {
+			case EXACT :
+				return matchExact(actual);
+			case GT :
+				return toDouble(actual) > number;
+			case GTE :
+				return toDouble(actual) >= number;
+			case LT :
+				return toDouble(actual) < number;
+			case LTE :
+				return toDouble(actual) <= number;
+			case EQ :
+				return toDouble(actual) == number;
+			default :
+				return match(actual instanceof String ? (String) actual : String.valueOf(actual));
+		}
+	}
+
+	@Override
+	public boolean match(String target) {
+		switch (kind) {
+			case EXACT :
+				return stringToMatch.equals(target);
+			case EXACT_IGNORING_CASE :
+				return stringToMatch.equalsIgnoreCase(target);
+			case STARTS_WITH :
+				return target.startsWith(stringToMatch);
+			case STARTS_WITH_IGNORING_CASE :
+				return target.regionMatches(true, 0, stringToMatch, 0, stringToMatch.length());
+			case ENDS_WITH :
+				return target.endsWith(stringToMatch);
+			case ENDS_WITH_IGNORING_CASE :
+				return target.regionMatches(true, target.length() - stringToMatch.length(), stringToMatch, 0,
+						stringToMatch.length());
+			case CONTAINS :
+				return target.contains(stringToMatch);
+			case CONTAINS_IGNORING_CASE :
+				for (int i = 0, last = target.length() - stringToMatch.length(); i <= last; i++) {
+					if (target.regionMatches(true, i, stringToMatch, 0, stringToMatch.length())) {
+						return true;
+					}
+				}
+				return false;
+			case LIKE :
+			case LIKE_IGNORING_CASE :
+				return pattern.matcher(target).matches();
+			case CUSTOM :
+				return delegate.match(target);
+			default :
+				return match((Object) target);
+		}
+	}
+
+	private boolean matchExact(Object actual) {
+		if (actual instanceof String) {
+			return stringToMatch.equals(actual);
+		}
+		if (actual instanceof Integer || actual instanceof Long || actual instanceof Short
+				|| actual instanceof Byte) {
+			return isLong && ((Number) actual).longValue() == longValue;
+		}
+		if (actual instanceof Double) {
+			return isDouble && ((Double) actual).doubleValue() == number;
+		}
+		if (actual instanceof Boolean) {
+			return stringToMatch.equals(((Boolean) actual).booleanValue() ? "true" : "false");
+		}
+		if (null == actual) {
+			return "null".equals(stringToMatch);
+		}
+		return stringToMatch.equals(String.valueOf(actual));
+	}
+
+	/**
+	 * Numeric value of actual value, {@link Number} is used as is while other
+	 * values are parsed from string representation.
+	 * 
+	 * @param actual
+	 * @return double value or {@link Double#NaN} if value is not a number
+	 */
+	public static double toDouble(Object actual) {
+		if (actual instanceof Number && !(actual instanceof Float)) {
+			// float widening doesn't match value parsed from its string
+			return ((Number) actual).doubleValue();
+		}
+		return parseDouble(actual instanceof String ? (String) actual : String.valueOf(actual));
+	}
+
+	private static double parseDouble(String s) {
+		// avoid cost of exception for values that can't be a number
+		String value = s.trim();
+		if (value.isEmpty() || "+-.0123456789NI".indexOf(value.charAt(0)) < 0) {
+			return Double.NaN;
+		}
+		try {
+			return Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return kind == Kind.CUSTOM ? delegate.toString() : kind.displayName + ":" + stringToMatch;
+	}
+
+	private static class PlanCache extends LinkedHashMap<String, AssertionPlan> {
+		private static final long serialVersionUID = 1L;
+
+		PlanCache() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, AssertionPlan> eldest) {
+			return size() > MAX_CACHE_SIZE;
+		}
+	}
+}
@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.client;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.core.TestBaseProvider;
+import com.qmetry.qaf.automation.keys.ApplicationProperties;
+import com.qmetry.qaf.automation.util.PropertyUtil;
+import com.qmetry.qaf.automation.util.StringUtil;
+import com.qmetry.qaf.automation.ws.rest.DefaultRestClient;
+import com.qmetry.qaf.automation.ws.rest.RequestTracker;
+import com.qmetry.qaf.automation.ws.rest.RestClientFactory;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.multipart.impl.MultiPartWriter;
+
+/**
+ * Registry of rest clients per authentication profile, that can be used by
+ * request call using <code>auth</code> attribute. Profile is defined using
+ * properties with prefix <code>rest.client.auth.profile.&lt;name&gt;</code>:
+ * <ul>
+ * <li><code>type</code> - one of <code>basic</code>, <code>digest</code>,
+ * <code>ntlm</code>, <code>hawk</code> or fully qualified name of
+ * {@link RestClientFactory} implementing {@link SharedClientFactory}
+ * <li><code>username</code>, <code>password</code> - credentials for basic,
+ * digest and ntlm
+ * <li><code>workstation</code>, <code>domain</code> - for ntlm
+ * <li><code>keyId</code>, <code>key</code>, <code>algorithm</code>,
+ * <code>payload.hash</code> - for hawk
+ * </ul>
+ * For example:
+ * 
+ * <pre>
+ * rest.client.auth.profile.admin.type=basic
+ * rest.client.auth.profile.admin.username=admin
+ * rest.client.auth.profile.admin.password=secret
+ * get.users={'endPoint':'/users','auth':'admin'}
+ * </pre>
+ * 
+ * Client with authentication and connection handling of a profile is created
+ * once and shared by all threads. Each thread gets light weight client on top
+ * of it, with request logger and tracker of that thread, so response of the
+ * request is available same as request using default client.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class AuthClientRegistry {
+	public static final String AUTH_PROFILE_PREFIX = "rest.client.auth.profile";
+
+	private static final String THREAD_CLIENTS_KEY = "rest.client.auth.clients";
+	// same key as RestTestBase, so tracked response is available as last
+	// response
+	private static final String REQUEST_TRACKER_KEY = "rest.client.requesttracker";
+	private static final ConcurrentMap<String, Client> SHARED_CLIENTS = new ConcurrentHashMap<String, Client>();
+	// clients of threads created before reset are discarded on next use
+	private static final AtomicInteger GENERATION = new AtomicInteger();
+
+	private AuthClientRegistry() {
+	}
+
+	/**
+	 * @param profile
+	 *            name of authentication profile
+	 * @return client for current thread using shared client of given profile
+	 */
+	public static Client getClient(String profile) {
+		Map<String, Client> clients = getThreadClients();
+		Client client = clients.get(profile);
+		if (null == client) {
+			client = new DefaultRestClient(createThreadClient(profile)).getClient();
+			clients.put(profile, client);
+		}
+		return client;
+	}
+
+	/**
+	 * Client for current thread without request logger, that buffers response
+	 * body to log it. Response is tracked, so status and headers are available
+	 * to response steps, but body is available only to the caller. It can be
+	 * used to stream large response body.
+	 * 
+	 * @param profile
+	 *            name of authentication profile or blank for client
+	 *            configured using <code>rest.client.impl</code>
+	 * @return client for current thread using shared client of given profile
+	 */
+	public static Client getStreamingClient(String profile) {
+		Map<String, Client> clients = getThreadClients();
+		String key = "streaming." + profile;
+		Client client = clients.get(key);
+		if (null == client) {
+			client = createThreadClient(profile);
+			client.addFilter(getRequestTracker());
+			clients.put(key, client);
+		}
+		return client;
+	}
+
+	/**
+	 * @return tracker of last request of current thread
+	 */
+	public static RequestTracker getRequestTracker() {
+		PropertyUtil context = getContext();
+		RequestTracker requestTracker = (RequestTracker) context.getObject(REQUEST_TRACKER_KEY);
+		if (null == requestTracker) {
+			requestTracker = new RequestTracker();
+			context.setProperty(REQUEST_TRACKER_KEY, requestTracker);
+		}
+		return requestTracker;
+	}
+
+	/**
+	 * Removes all shared clients, so that they will be created again using
+	 * current profile properties. Clients of each thread are discarded on
+	 * next use by that thread.
+	 */
+	public static void reset() {
+		SHARED_CLIENTS.clear();
+		GENERATION.incrementAndGet();
+	}
+
+	/**
+	 * Client shared by all threads, without request logger and tracker. It
+	 * can be used to send requests from worker threads, for example parts of
+	 * chunked upload.
+	 * 
+	 * @param profile
+	 *            name of authentication profile or blank for client
+	 *            configured using <code>rest.client.impl</code>
+	 * @return shared client
+	 */
+	public static Client getSharedClient(String profile) {
+		Client client = SHARED_CLIENTS.get(profile);
+		if (null == client) {
+			synchronized (SHARED_CLIENTS) {
+				client = SHARED_CLIENTS.get(profile);
+				if (null == client) {
+					client = createClient(getFactory(profile));
+					SHARED_CLIENTS.put(profile, client);
+				}
+			}
+		}
+		return client;
+	}
+
+	private static Client createThreadClient(String profile) {
+		Client shared = getSharedClient(profile);
+		DefaultClientConfig config = new DefaultClientConfig();
+		config.getClasses().add(MultiPartWriter.class);
+		config.getProperties().putAll(shared.getProperties());
+		return new Client(shared.getHeadHandler(), config);
+	}
+
+	private static Map<String, Client> getThreadClients() {
+		PropertyUtil context = getContext();
+		ThreadClients clients = (ThreadClients) context.getObject(THREAD_CLIENTS_KEY);
+		int generation = GENERATION.get();
+		if (null == clients || clients.generation != generation) {
+			clients = new ThreadClients(generation);
+			context.setProperty(THREAD_CLIENTS_KEY, clients);
+		}
+		return clients.clients;
+	}
+
+	private static PropertyUtil getContext() {
+		return TestBaseProvider.instance().get().getContext();
+	}
+
+	private static RestClientFactory getFactory(String profile) {
+		if (StringUtil.isBlank(profile)) {
+			String type = ApplicationProperties.REST_CLIENT_FACTORY_IMPL.getStringVal(DefaultRestClient.class.getName());
+			if (DefaultRestClient.class.getName().equals(type)) {
+				return new DefaultSharedClientFactory();
+			}
+			try {
+				return (RestClientFactory) Class.forName(type).newInstance();
+			} catch (Exception e) {
+				throw new AutomationError("Unable to create rest client using " + type, e);
+			}
+		}
+		String prefix = AUTH_PROFILE_PREFIX + "." + profile + ".";
+		String type = getBundle().getString(prefix + "type", "");
+		String username = getBundle().getString(prefix + "username", "");
+		String password = getBundle().getString(prefix + "password", "");
+
+		if (StringUtil.isBlank(type)) {
+			throw new AutomationError("Authentication profile " + profile + " is not defined, provide "
+					+ prefix + "type property");
+		}
+		if ("basic".equalsIgnoreCase(type)) {
+			return new BasicAuthRestClient(username, password);
+		}
+		if ("digest".equalsIgnoreCase(type)) {
+			return new DigestAuthRestClient(username, password);
+		}
+		if ("ntlm".equalsIgnoreCase(type)) {
+			return new NTLMAuthClient(username, password, getBundle().getString(prefix + "workstation", ""),
+					getBundle().getString(prefix + "domain", ""));
+		}
+		if ("hawk".equalsIgnoreCase(type)) {
+			return new HawkAuthRestClient(getBundle().getString(prefix + "keyId", ""),
+					getBundle().getString(prefix + "key", ""), getBundle().getString(prefix + "algorithm", "sha256"),
+					getBundle().getBoolean(prefix + "payload.hash", false));
+		}
+		try {
+			return (RestClientFactory) Class.forName(type).newInstance();
+		} catch (Exception e) {
+			throw new AutomationError("Unable to create rest client for authentication profile " + profile, e);
+		}
+	}
+
+	private static Client createClient(RestClientFactory factory) {
+		// RestClientFactory.getClient adds filters of current thread, shared
+		// client requires only client created by factory.
+		if (!(factory instanceof SharedClientFactory)) {
+			throw new AutomationError("Unable to create shared rest client using " + factory.getClass().getName()
+					+ ", it should implement " + SharedClientFactory.class.getName());
+		}
+		return ((SharedClientFactory) factory).createClient();
+	}
+
+	private static class DefaultSharedClientFactory extends DefaultRestClient implements SharedClientFactory {
+		@Override
+		public Client createClient() {
+			return super.createClient();
+		}
+	}
+
+	private static class ThreadClients {
+		final int generation;
+		final Map<String, Client> clients = new HashMap<String, Client>();
+
+		ThreadClients(int generation) {
+			this.generation = generation;
+		}
+	}
+}
@@ -5,23 +5,32 @@ import com.qmetry.qaf.automation.ws.rest.DefaultRestClient;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.filter.HTTPBasicAuthFilter;
 
-public class BasicAuthRestClient extends DefaultRestClient {
+public class BasicAuthRestClient extends DefaultRestClient implements SharedClientFactory {
 
 	public static final String REST_CLIENT_BASIC_AUTH_USER =
 			"rest.client.basic.auth.username";
 	public static final String REST_CLIENT_BASIC_AUTH_PASSWORD =
 			"rest.client.basic.auth.password";
 
+	private final String username;
+	private final String password;
+
+	public BasicAuthRestClient() {
+		this(ConfigurationManager.getBundle().getString(REST_CLIENT_BASIC_AUTH_USER, ""),
+				ConfigurationManager.getBundle().getString(REST_CLIENT_BASIC_AUTH_PASSWORD, ""));
+	}
+
+	public BasicAuthRestClient(String username, String password) {
+		this.username = username;
+		this.password = password;
+	}
+
 	@Override
-	protected Client createClient() {
+	public Client createClient() {
 
 		Client client = super.createClient();
 		client.getProperties().put("jersey.config.client.followRedirects", true);
-		client.addFilter(new HTTPBasicAuthFilter(
-				ConfigurationManager.getBundle().getString(REST_CLIENT_BASIC_AUTH_USER,
-						""),
-				ConfigurationManager.getBundle()
-						.getString(REST_CLIENT_BASIC_AUTH_PASSWORD, "")));
+		client.addFilter(new HTTPBasicAuthFilter(username, password));
 		return client;
 	}
 }
\ No newline at end of file
@@ -3,19 +3,29 @@ package com.qmetry.qaf.automation.rest.client;
 import com.qmetry.qaf.automation.core.ConfigurationManager;
 import com.qmetry.qaf.automation.ws.rest.DefaultRestClient;
 import com.sun.jersey.api.client.Client;
-import com.sun.jersey.api.client.filter.HTTPDigestAuthFilter;
 
-public class DigestAuthRestClient extends DefaultRestClient {
+public class DigestAuthRestClient extends DefaultRestClient implements SharedClientFactory {
 
 	public static final String REST_CLIENT_DIGEST_AUTH_USER = "rest.client.digest.auth.username";
 	public static final String REST_CLIENT_DIGEST_AUTH_PASSWORD = "rest.client.digest.auth.password";
 
+	private final String username;
+	private final String password;
+
+	public DigestAuthRestClient() {
+		this(ConfigurationManager.getBundle().getString(REST_CLIENT_DIGEST_AUTH_USER, ""),
+				ConfigurationManager.getBundle().getString(REST_CLIENT_DIGEST_AUTH_PASSWORD, ""));
+	}
+
+	public DigestAuthRestClient(String username, String password) {
+		this.username = username;
+		this.password = password;
+	}
+
 	@Override
-	protected Client createClient() {
+	public Client createClient() {
 		Client client = super.createClient();
-		client.addFilter(
-				new HTTPDigestAuthFilter(ConfigurationManager.getBundle().getString(REST_CLIENT_DIGEST_AUTH_USER, ""),
-						ConfigurationManager.getBundle().getString(REST_CLIENT_DIGEST_AUTH_PASSWORD, "")));
+		client.addFilter(new PreemptiveDigestAuthFilter(username, password));
 		return client;
 	}
 }
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.client;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Locale;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+import com.wealdtech.hawk.Hawk;
+import com.wealdtech.hawk.HawkCredentials;
+
+/**
+ * Adds Hawk authorization header to request. {@link Mac} and
+ * {@link MessageDigest} instances are initialized once per thread and reused
+ * for subsequent requests.
+ * <p>
+ * When payload validation is enabled, hash of request payload is included in
+ * header. Hash is computed by feeding <code>String</code>,
+ * <code>byte[]</code> or {@link File} entity to digest in fixed size chunks,
+ * without creating copy of payload. Header needs to be sent before payload,
+ * so payload is read once for hash and once while sending. Other entity
+ * types are sent without payload hash. Hash includes content type, when
+ * request doesn't have it, default content type of entity is set on request
+ * (<code>text/plain</code> for <code>String</code>,
+ * <code>application/octet-stream</code> otherwise), so that server computes
+ * hash with same content type.
+ * 
+ * @author amit.bhoraniya
+ */
+public class HawkAuthFilter extends ClientFilter {
+	private static final int BUFFER_SIZE = 8192;
+	private static final char[] NONCE_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
+			.toCharArray();
+	private static final SecureRandom RANDOM = new SecureRandom();
+	private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(BUFFER_SIZE);
+		}
+	};
+
+	private final HawkCredentials credentials;
+	private final boolean payloadHash;
+	private final ThreadLocal<Mac> mac;
+	private final ThreadLocal<MessageDigest> digest;
+
+	public HawkAuthFilter(final HawkCredentials credentials, boolean payloadHash) {
+		this.credentials = credentials;
+		this.payloadHash = payloadHash;
+		mac = new ThreadLocal<Mac>() {
+			@Override
+			protected Mac initialValue() {
+				try {
+					Mac mac = Mac.getInstance(credentials.getJavaAlgorithm());
+					mac.init(new SecretKeySpec(credentials.getKey().getBytes(StandardCharsets.UTF_8),
+							credentials.getJavaAlgorithm()));
+					return mac;
+				} catch (GeneralSecurityException e) {
+					throw new AutomationError("Unable to initialize hawk mac", e);
+				}
+			}
+		};
+		digest = new ThreadLocal<MessageDigest>() {
+			@Override
+			protected MessageDigest initialValue() {
+				try {
+					return MessageDigest.getInstance(
+							credentials.getAlgorithm() == HawkCredentials.Algorithm.SHA1 ? "SHA-1" : "SHA-256");
+				} catch (GeneralSecurityException e) {
+					throw new AutomationError("Unable to initialize hawk payload digest", e);
+				}
+			}
+		};
+	}
+
+	@Override
+	public ClientResponse handle(ClientRequest cr) throws ClientHandlerException {
+		if (!cr.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)) {
+			String hash = payloadHash ? hash(cr) : null;
+			cr.getHeaders().add(HttpHeaders.AUTHORIZATION, getAuthorizationHeader(cr.getURI(), cr.getMethod(), hash));
+		}
+		return getNext().handle(cr);
+	}
+
+	private String getAuthorizationHeader(URI uri, String method, String hash) {
+		long timestamp = System.currentTimeMillis() / 1000L;
+		String nonce = nonce();
+		int port = uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+
+		StringBuilder normalized = new StringBuilder(256);
+		normalized.append("hawk.").append(Hawk.HAWKVERSION).append(".header\n").append(timestamp).append('\n')
+				.append(nonce).append('\n').append(method.toUpperCase(Locale.ENGLISH)).append('\n')
+				.append(uri.getRawPath());
+		if (null != uri.getRawQuery()) {
+			normalized.append('?').append(uri.getRawQuery());
+		}
+		normalized.append('\n').append(uri.getHost().toLowerCase(Locale.ENGLISH)).append('\n').append(port)
+				.append('\n').append(null == hash ? "" : hash).append("\n\n");
+		byte[] macBytes = this.mac.get().doFinal(normalized.toString().getBytes(StandardCharsets.UTF_8));
+		String mac = Base64.encodeBase64String(macBytes);
+
+		StringBuilder header = new StringBuilder(256);
+		header.append("Hawk id=\"").append(credentials.getKeyId()).append("\", ts=\"").append(timestamp)
+				.append("\", nonce=\"").append(nonce);
+		if (null != hash) {
+			header.append("\", hash=\"").append(hash);
+		}
+		header.append("\", mac=\"").append(mac).append('"');
+		return header.toString();
+	}
+
+	/**
+	 * @return base64 encoded hash of payload as per hawk specification or
+	 *         null if entity type is not supported
+	 */
+	private String hash(ClientRequest cr) {
+		Object entity = cr.getEntity();
+		if (!(entity instanceof String || entity instanceof byte[] || entity instanceof File)) {
+			return null;
+		}
+		Object contentType = cr.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+		if (null == contentType) {
+			// same default as message body writer of entity
+			contentType = entity instanceof String ? MediaType.TEXT_PLAIN_TYPE
+					: MediaType.APPLICATION_OCTET_STREAM_TYPE;
+			cr.getHeaders().putSingle(HttpHeaders.CONTENT_TYPE, contentType);
+		}
+		String mediaType = String.valueOf(contentType);
+		int paramsIndex = mediaType.indexOf(';');
+		if (paramsIndex >= 0) {
+			mediaType = mediaType.substring(0, paramsIndex);
+		}
+
+		MessageDigest md = digest.get();
+		md.reset();
+		md.update(("hawk." + Hawk.HAWKVERSION + ".payload\n" + mediaType.trim().toLowerCase(Locale.ENGLISH) + "\n")
+				.getBytes(StandardCharsets.UTF_8));
+		if (entity instanceof String) {
+			update(md, (String) entity);
+		} else if (entity instanceof byte[]) {
+			md.update((byte[]) entity);
+		} else {
+			update(md, (File) entity);
+		}
+		md.update((byte) '\n');
+		return Base64.encodeBase64String(md.digest());
+	}
+
+	private static void update(MessageDigest md, String payload) {
+		CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer in = CharBuffer.wrap(payload);
+		ByteBuffer out = BUFFER.get();
+		out.clear();
+		CoderResult result;
+		do {
+			result = encoder.encode(in, out, true);
+			if (result.isOverflow() || !in.hasRemaining()) {
+				out.flip();
+				md.update(out);
+				out.clear();
+			}
+		} while (result.isOverflow());
+		encoder.flush(out);
+		out.flip();
+		md.update(out);
+	}
+
+	private static void update(MessageDigest md, File file) {
+		ByteBuffer buffer = BUFFER.get();
+		try (FileInputStream in = new FileInputStream(file)) {
+			FileChannel channel = in.getChannel();
+			buffer.clear();
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				md.update(buffer);
+				buffer.clear();
+			}
+		} catch (IOException e) {
+			throw new AutomationError("Unable to read payload file: " + file, e);
+		}
+	}
+
+	private static String nonce() {
+		char[] nonce = new char[6];
+		for (int i = 0; i < nonce.length; i++) {
+			nonce[i] = NONCE_CHARS[RANDOM.nextInt(NONCE_CHARS.length)];
+		}
+		return new String(nonce);
+	}
+}
@@ -1,28 +1,52 @@
 package com.qmetry.qaf.automation.rest.client;
 
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import com.qmetry.qaf.automation.ws.rest.DefaultRestClient;
 import com.sun.jersey.api.client.Client;
-import com.wealdtech.hawk.HawkClient;
 import com.wealdtech.hawk.HawkCredentials;
-import com.wealdtech.hawk.jersey.HawkAuthorizationFilter;
 
-public class HawkAuthRestClient extends DefaultRestClient {
+public class HawkAuthRestClient extends DefaultRestClient implements SharedClientFactory {
 
 	public static final String REST_CLIENT_HAWK_KEY_ID = "rest.client.hawk.auth.keyId";
 	public static final String REST_CLIENT_HAWK_KEY = "rest.client.hawk.auth.key";
+	public static final String REST_CLIENT_HAWK_ALGORITHM = "rest.client.hawk.auth.algorithm";
+	public static final String REST_CLIENT_HAWK_PAYLOAD_HASH = "rest.client.hawk.auth.payload.hash";
 
-	@Override
-	protected Client createClient() {
+	private static final ConcurrentMap<String, HawkCredentials> CREDENTIALS = new ConcurrentHashMap<String, HawkCredentials>();
 
-		HawkCredentials hawkCredentials = new HawkCredentials.Builder()
-				.keyId(REST_CLIENT_HAWK_KEY_ID).key(REST_CLIENT_HAWK_KEY)
-				.algorithm(HawkCredentials.Algorithm.SHA256).build();
+	private final HawkCredentials credentials;
+	private final boolean payloadHash;
 
-		HawkClient hawkClient =
-				new HawkClient.Builder().credentials(hawkCredentials).build();
+	public HawkAuthRestClient() {
+		this(getBundle().getString(REST_CLIENT_HAWK_KEY_ID, ""), getBundle().getString(REST_CLIENT_HAWK_KEY, ""),
+				getBundle().getString(REST_CLIENT_HAWK_ALGORITHM, "sha256"),
+				getBundle().getBoolean(REST_CLIENT_HAWK_PAYLOAD_HASH, false));
+	}
 
+	public HawkAuthRestClient(String keyId, String key, String algorithm, boolean payloadHash) {
+		this.credentials = getCredentials(keyId, key, algorithm);
+		this.payloadHash = payloadHash;
+	}
+
+	@Override
+	public Client createClient() {
 		Client client = super.createClient();
-		client.addFilter(new HawkAuthorizationFilter(hawkClient));
+		client.addFilter(new HawkAuthFilter(credentials, payloadHash));
 		return client;
 	}
-}
\ No newline at end of file
+
+	private static HawkCredentials getCredentials(String keyId, String key, String algorithm) {
+		String cacheKey = keyId + "\n" + key + "\n" + algorithm;
+		HawkCredentials hawkCredentials = CREDENTIALS.get(cacheKey);
+		if (null == hawkCredentials) {
+			hawkCredentials = new HawkCredentials.Builder().keyId(keyId).key(key)
+					.algorithm(HawkCredentials.Algorithm.parse(algorithm)).build();
+			CREDENTIALS.putIfAbsent(cacheKey, hawkCredentials);
+		}
+		return hawkCredentials;
+	}
+}
@@ -42,6 +42,7 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
 import com.qmetry.qaf.automation.ws.rest.RestClientFactory;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.client.apache4.ApacheHttpClient4Handler;
@@ -63,16 +64,29 @@ import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
  * @author Chirag Jayswal
  * @since 2.1.12
  */
-public class NTLMAuthClient extends RestClientFactory {
+public class NTLMAuthClient extends RestClientFactory implements SharedClientFactory {
 
-	private static final String USERNAME = getBundle().getString("ntlm.user");
-	private static final String PASSWORD = getBundle().getString("ntlm.password");
-	private static final String WORKSTATION = getBundle().getString("ntlm.workstation","");
-	private static final String DOMAIN = getBundle().getString("ntlm.domain","");
+	private final String username;
+	private final String password;
+	private final String workstation;
+	private final String domain;
+
+	public NTLMAuthClient() {
+		this(getBundle().getString("ntlm.user"), getBundle().getString("ntlm.password"),
+				getBundle().getString("ntlm.workstation", ""), getBundle().getString("ntlm.domain", ""));
+	}
+
+	public NTLMAuthClient(String username, String password, String workstation, String domain) {
+		this.username = username;
+		this.password = password;
+		this.workstation = workstation;
+		this.domain = domain;
+	}
 
 	@Override
-	protected Client createClient() {
+	public Client createClient() {
 		PoolingHttpClientConnectionManager cm = new PoolingHttpClientConnectionManager();
+		WsMetrics.registerPool("ntlm:" + domain + "\\" + username, cm);
 		
 		RequestConfig requestConfig = RequestConfig.custom().setSocketTimeout(30000)
 				.setConnectionRequestTimeout(30000)
@@ -81,7 +95,7 @@ public class NTLMAuthClient extends RestClientFactory {
 				.build();
 		
 		CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-		credentialsProvider.setCredentials(AuthScope.ANY, new NTCredentials(USERNAME, PASSWORD, WORKSTATION, DOMAIN));
+		credentialsProvider.setCredentials(AuthScope.ANY, new NTCredentials(username, password, workstation, domain));
 		
 		CloseableHttpClient closeableHttpClient = HttpClients.custom().setConnectionManager(cm)
 				.setDefaultCredentialsProvider(credentialsProvider)
@@ -4,6 +4,7 @@ import com.qmetry.qaf.automation.core.ConfigurationManager;
 import com.qmetry.qaf.automation.rest.auth.oauth.OAuth2Details;
 import com.qmetry.qaf.automation.rest.auth.oauth.OAuthConstants;
 import com.qmetry.qaf.automation.rest.auth.oauth.OAuthUtils;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
 import com.qmetry.qaf.automation.util.StringUtil;
 import com.qmetry.qaf.automation.ws.rest.DefaultRestClient;
 import com.sun.jersey.api.client.Client;
@@ -13,10 +14,10 @@ import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.filter.ClientFilter;
 
-public class OAuthRestClient extends DefaultRestClient {
+public class OAuthRestClient extends DefaultRestClient implements SharedClientFactory {
 	
 	@Override
-	protected Client createClient() {
+	public Client createClient() {
 		Client client = super.createClient();
 		client.addFilter(new ClientFilter() {
 
@@ -46,6 +47,7 @@ public class OAuthRestClient extends DefaultRestClient {
 					// Generate new Access token
 					accessToken = OAuthUtils.getAccessToken(oauthDetails);
 
+					WsMetrics.tokenRefresh("oauth");
 					if (OAuthUtils.isValid(accessToken)) {
 						ConfigurationManager.getBundle()
 								.setProperty(OAuthConstants.ACCESS_TOKEN, accessToken);
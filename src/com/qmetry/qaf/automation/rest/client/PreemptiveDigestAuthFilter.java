@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.client;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
+import com.sun.jersey.api.client.ClientHandlerException;
+import com.sun.jersey.api.client.ClientRequest;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.filter.ClientFilter;
+
+/**
+ * Digest authentication filter that caches challenge (realm, nonce, opaque,
+ * qop and algorithm) received from server per host and authorizes subsequent
+ * requests to that host preemptively, with incrementing nonce count, without
+ * 401 challenge round trip. Challenge flow is used for first request to the
+ * host and when server rejects cached nonce, for example reports it as
+ * stale. Cache is shared across threads, so nonce count of parallel requests
+ * may reach server out of order, request rejected with same nonce is retried
+ * once with next nonce count.
+ * 
+ * @author amit.bhoraniya
+ */
+public class PreemptiveDigestAuthFilter extends ClientFilter {
+	private static final Pattern PARAM_PATTERN = Pattern.compile("(\\w+)\\s*=\\s*(\"([^\"]*)\"|[^,\\s]*)");
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private final String username;
+	private final String password;
+	private final ConcurrentMap<String, Challenge> challenges = new ConcurrentHashMap<String, Challenge>();
+
+	public PreemptiveDigestAuthFilter(String username, String password) {
+		this.username = username;
+		this.password = password;
+	}
+
+	@Override
+	public ClientResponse handle(ClientRequest cr) throws ClientHandlerException {
+		String host = getHostKey(cr.getURI());
+		Challenge challenge = challenges.get(host);
+		if (null != challenge) {
+			cr.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, challenge.authorize(cr, username, password));
+		}
+		ClientResponse response = getNext().handle(cr);
+		if (response.getStatus() != ClientResponse.Status.UNAUTHORIZED.getStatusCode()) {
+			return response;
+		}
+		Challenge newChallenge = Challenge.parse(response.getHeaders().get(HttpHeaders.WWW_AUTHENTICATE));
+		if (null == newChallenge) {
+			return response;
+		}
+		if (null != challenge && !newChallenge.stale && newChallenge.nonce.equals(challenge.nonce)) {
+			// nonce count may reach server out of order when requests are sent
+			// in parallel, retry once with next count before treating
+			// credentials as rejected
+			newChallenge = challenge;
+		} else {
+			if (null != challenge) {
+				WsMetrics.tokenRefresh("digest");
+			}
+			challenges.put(host, newChallenge);
+		}
+		response.close();
+		cr.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, newChallenge.authorize(cr, username, password));
+		return getNext().handle(cr);
+	}
+
+	private static String getHostKey(URI uri) {
+		return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+	}
+
+	private static class Challenge {
+		private final String realm;
+		private final String nonce;
+		private final String opaque;
+		private final String qop;
+		private final String algorithm;
+		private final boolean stale;
+		private final AtomicInteger nonceCount = new AtomicInteger();
+		private volatile String ha1;
+
+		private Challenge(Map<String, String> params) {
+			realm = params.get("realm");
+			nonce = params.get("nonce");
+			opaque = params.get("opaque");
+			algorithm = params.get("algorithm");
+			stale = "true".equalsIgnoreCase(params.get("stale"));
+			String offeredQop = params.get("qop");
+			qop = null != offeredQop && offeredQop.matches("(?i).*\\bauth\\b(?!-).*") ? "auth" : null;
+		}
+
+		static Challenge parse(List<String> headers) {
+			if (null == headers) {
+				return null;
+			}
+			for (String header : headers) {
+				if (header.regionMatches(true, 0, "Digest ", 0, 7)) {
+					Map<String, String> params = new HashMap<String, String>();
+					Matcher matcher = PARAM_PATTERN.matcher(header.substring(7));
+					while (matcher.find()) {
+						params.put(matcher.group(1).toLowerCase(),
+								null != matcher.group(3) ? matcher.group(3) : matcher.group(2));
+					}
+					if (params.containsKey("nonce")) {
+						return new Challenge(params);
+					}
+				}
+			}
+			return null;
+		}
+
+		String authorize(ClientRequest cr, String username, String password) {
+			URI uri = cr.getURI();
+			String digestUri = uri.getRawPath() + (null == uri.getRawQuery() ? "" : "?" + uri.getRawQuery());
+			String nc = String.format("%08x", nonceCount.incrementAndGet());
+			String cnonce = randomHex();
+
+			String ha1 = this.ha1;
+			if (null == ha1) {
+				ha1 = md5(username + ":" + realm + ":" + password);
+				this.ha1 = ha1;
+			}
+			if ("MD5-sess".equalsIgnoreCase(algorithm)) {
+				ha1 = md5(ha1 + ":" + nonce + ":" + cnonce);
+			}
+			String ha2 = md5(cr.getMethod() + ":" + digestUri);
+			String response = null == qop ? md5(ha1 + ":" + nonce + ":" + ha2)
+					: md5(ha1 + ":" + nonce + ":" + nc + ":" + cnonce + ":" + qop + ":" + ha2);
+
+			StringBuilder header = new StringBuilder("Digest ");
+			header.append("username=\"").append(username).append("\", realm=\"").append(realm)
+					.append("\", nonce=\"").append(nonce).append("\", uri=\"").append(digestUri)
+					.append("\", response=\"").append(response).append('"');
+			if (null != algorithm) {
+				header.append(", algorithm=").append(algorithm);
+			}
+			if (null != opaque) {
+				header.append(", opaque=\"").append(opaque).append('"');
+			}
+			if (null != qop) {
+				header.append(", qop=").append(qop).append(", nc=").append(nc).append(", cnonce=\"").append(cnonce)
+						.append('"');
+			}
+			return header.toString();
+		}
+	}
+
+	private static String randomHex() {
+		byte[] bytes = new byte[8];
+		RANDOM.nextBytes(bytes);
+		return toHex(bytes);
+	}
+
+	private static String md5(String s) {
+		try {
+			return toHex(MessageDigest.getInstance("MD5").digest(s.getBytes(StandardCharsets.ISO_8859_1)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new AutomationError("MD5 algorithm not available", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.data;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.RestRequestBean;
+import com.qmetry.qaf.automation.rest.ScenarioVariables;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Sends request call once for each record of data file, using record as
+ * data to resolve parameters of request call, same as
+ * <code>user requests {request} with data {data}</code>. Records are read
+ * lazily by {@link RecordIterator} and requests are sent by
+ * {@link #CONCURRENCY ws.data.concurrency} (default 1) threads. Reading is
+ * blocked while {@link #BACKLOG ws.data.backlog} (default twice the
+ * concurrency) records are waiting or in progress, so memory use doesn't
+ * depend on size of data file.
+ * 
+ * @author amit.bhoraniya
+ */
+public class DataReplay {
+	public static final String CONCURRENCY = "ws.data.concurrency";
+	public static final String BACKLOG = "ws.data.backlog";
+
+	private static final int MAX_MESSAGES = 20;
+
+	/**
+	 * Sends request, called from worker thread.
+	 */
+	public interface Requester {
+		ClientResponse request(RestRequestBean bean);
+	}
+
+	/**
+	 * Checks response of record, called from worker thread. Response is
+	 * closed after visit.
+	 */
+	public interface RecordVisitor {
+		/**
+		 * @param record
+		 * @param index
+		 *            0 based index of record
+		 * @param response
+		 * @return failure message or null if response is as expected
+		 */
+		String visit(Map<String, Object> record, long index, ClientResponse response);
+	}
+
+	private final Object request;
+	private final String file;
+	private final Requester requester;
+	private final int concurrency;
+	private final int backlog;
+	private final AtomicLong records = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+	/**
+	 * @param request
+	 *            key or map of request call
+	 * @param file
+	 *            data file supported by {@link RecordIterator}
+	 * @param requester
+	 *            sends request of record
+	 */
+	public DataReplay(Object request, String file, Requester requester) {
+		this.request = request;
+		this.file = file;
+		this.requester = requester;
+		concurrency = Math.max(1, getBundle().getInt(CONCURRENCY, 1));
+		backlog = Math.max(concurrency, getBundle().getInt(BACKLOG, concurrency * 2));
+	}
+
+	/**
+	 * Sends request for each record and waits for all responses.
+	 * 
+	 * @param visitor
+	 *            checks response of each record
+	 * @return time taken in milliseconds
+	 */
+	public long replay(final RecordVisitor visitor) {
+		long start = System.currentTimeMillis();
+		final Semaphore permits = new Semaphore(backlog);
+		// parameters are resolved by workers using scenario variables of caller
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency, ScenarioVariables.threadFactory());
+		RecordIterator iterator = RecordIterator.open(file);
+		try {
+			long index = 0;
+			while (true) {
+				permits.acquire();
+				if (!iterator.hasNext()) {
+					permits.release();
+					break;
+				}
+				final Map<String, Object> record = iterator.next();
+				final long recordIndex = index++;
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							process(record, recordIndex, visitor);
+						} finally {
+							permits.release();
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AutomationError("Replay of " + file + " interrupted", e);
+		} finally {
+			executor.shutdownNow();
+			iterator.close();
+		}
+		return System.currentTimeMillis() - start;
+	}
+
+	private void process(Map<String, Object> record, long index, RecordVisitor visitor) {
+		String message;
+		try {
+			RestRequestBean bean = new RestRequestBean();
+			bean.fillData(request);
+			bean.resolveParameters(record);
+			ClientResponse response = requester.request(bean);
+			try {
+				message = visitor.visit(record, index, response);
+			} finally {
+				response.close();
+			}
+		} catch (RuntimeException e) {
+			message = String.valueOf(e.getMessage());
+		}
+		records.incrementAndGet();
+		if (null != message && failures.incrementAndGet() <= MAX_MESSAGES) {
+			messages.add("Record " + (index + 1) + ": " + message);
+		}
+	}
+
+	/**
+	 * @return number of records processed
+	 */
+	public long getRecords() {
+		return records.get();
+	}
+
+	/**
+	 * @return number of records with failure
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * @return messages of first 20 failures, in order of completion
+	 */
+	public List<String> getMessages() {
+		return messages;
+	}
+}
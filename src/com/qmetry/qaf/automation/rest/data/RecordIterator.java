@@ -0,0 +1,316 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.data;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.json.JsonValues;
+
+/**
+ * Iterator over data records read lazily from file, only current record is
+ * in memory. Supported formats, by file extension:
+ * <ul>
+ * <li><code>.csv</code> - first line is header, values can be quoted with
+ * <code>"</code>
+ * <li><code>.json</code> - array of objects
+ * <li><code>.ndjson</code>, <code>.jsonl</code> - one json object per line
+ * </ul>
+ * Iterator should be closed when not consumed completely.
+ * 
+ * @author amit.bhoraniya
+ */
+public abstract class RecordIterator implements Iterator<Map<String, Object>>, Closeable {
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private Map<String, Object> next;
+	private boolean fetched;
+	private boolean closed;
+	private long count;
+
+	/**
+	 * @param source
+	 *            data file
+	 * @return iterator over records of file
+	 */
+	public static RecordIterator open(String source) {
+		String file = source.trim();
+		String name = file.toLowerCase(Locale.ROOT);
+		boolean csv = name.endsWith(".csv");
+		boolean lines = name.endsWith(".ndjson") || name.endsWith(".jsonl");
+		if (!csv && !lines && !name.endsWith(".json")) {
+			throw new AutomationError("Unsupported data file: " + file + ", expected csv, json, ndjson or jsonl");
+		}
+		Reader reader = null;
+		boolean opened = false;
+		try {
+			reader = reader(file);
+			RecordIterator iterator = csv ? new CsvRecordIterator(reader)
+					: lines ? new LineJsonRecordIterator(reader)
+							: new JsonArrayRecordIterator(JSON_FACTORY.createParser(reader));
+			opened = true;
+			return iterator;
+		} catch (IOException e) {
+			throw new AutomationError("Unable to read data file: " + file, e);
+		} finally {
+			if (!opened && null != reader) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return next record or null if there are no more records
+	 * @throws IOException
+	 */
+	protected abstract Map<String, Object> read() throws IOException;
+
+	/**
+	 * releases underlying resource
+	 * 
+	 * @throws IOException
+	 */
+	protected abstract void release() throws IOException;
+
+	@Override
+	public boolean hasNext() {
+		if (!fetched && !closed) {
+			try {
+				next = read();
+			} catch (IOException e) {
+				throw new AutomationError("Unable to read record " + (count + 1), e);
+			}
+			fetched = true;
+			if (null == next) {
+				close();
+			}
+		}
+		return null != next;
+	}
+
+	@Override
+	public Map<String, Object> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		fetched = false;
+		count++;
+		return next;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * @return number of records returned so far
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			try {
+				release();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	private static Reader reader(String file) throws IOException {
+		return new BufferedReader(
+				new InputStreamReader(new FileInputStream(new File(file)), StandardCharsets.UTF_8), 64 * 1024);
+	}
+
+	private static final class CsvRecordIterator extends RecordIterator {
+		private final Reader reader;
+		private final List<String> header;
+		private final StringBuilder value = new StringBuilder();
+
+		CsvRecordIterator(Reader reader) throws IOException {
+			this.reader = reader;
+			header = readLine();
+			if (null == header) {
+				throw new IOException("Missing header");
+			}
+		}
+
+		@Override
+		protected Map<String, Object> read() throws IOException {
+			List<String> values = readLine();
+			while (null != values && values.size() == 1 && values.get(0).isEmpty()) {
+				// blank line
+				values = readLine();
+			}
+			if (null == values) {
+				return null;
+			}
+			Map<String, Object> record = new LinkedHashMap<String, Object>();
+			for (int i = 0; i < header.size(); i++) {
+				record.put(header.get(i), i < values.size() ? values.get(i) : "");
+			}
+			return record;
+		}
+
+		/**
+		 * @return values of next line, null at end of stream
+		 */
+		private List<String> readLine() throws IOException {
+			int c = reader.read();
+			if (c < 0) {
+				return null;
+			}
+			List<String> values = new ArrayList<String>();
+			boolean quoted = false;
+			value.setLength(0);
+			while (c >= 0) {
+				if (quoted) {
+					if (c == '"') {
+						reader.mark(1);
+						int n = reader.read();
+						if (n == '"') {
+							value.append('"');
+						} else {
+							quoted = false;
+							if (n >= 0) {
+								reader.reset();
+							}
+						}
+					} else {
+						value.append((char) c);
+					}
+				} else if (c == '"') {
+					quoted = true;
+				} else if (c == ',') {
+					values.add(value.toString());
+					value.setLength(0);
+				} else if (c == '\n') {
+					break;
+				} else if (c != '\r') {
+					value.append((char) c);
+				}
+				c = reader.read();
+			}
+			values.add(value.toString());
+			return values;
+		}
+
+		@Override
+		protected void release() throws IOException {
+			reader.close();
+		}
+	}
+
+	private static final class JsonArrayRecordIterator extends RecordIterator {
+		private final JsonParser parser;
+
+		JsonArrayRecordIterator(JsonParser parser) throws IOException {
+			this.parser = parser;
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("Expected json array of records");
+			}
+		}
+
+		@Override
+		protected Map<String, Object> read() throws IOException {
+			JsonToken token = parser.nextToken();
+			if (null == token || token == JsonToken.END_ARRAY) {
+				return null;
+			}
+			if (token != JsonToken.START_OBJECT) {
+				throw new IOException("Expected json object but found " + token);
+			}
+			return JsonValues.readMembers(parser, parser.nextToken());
+		}
+
+		@Override
+		protected void release() throws IOException {
+			parser.close();
+		}
+	}
+
+	private static final class LineJsonRecordIterator extends RecordIterator {
+		private final BufferedReader reader;
+
+		LineJsonRecordIterator(Reader reader) {
+			this.reader = (BufferedReader) reader;
+		}
+
+		@Override
+		protected Map<String, Object> read() throws IOException {
+			String line;
+			do {
+				line = reader.readLine();
+			} while (null != line && line.trim().isEmpty());
+			if (null == line) {
+				return null;
+			}
+			JsonParser parser = JSON_FACTORY.createParser(line);
+			try {
+				if (parser.nextToken() != JsonToken.START_OBJECT) {
+					throw new IOException("Expected json object in line " + (getCount() + 1));
+				}
+				return JsonValues.readMembers(parser, parser.nextToken());
+			} finally {
+				parser.close();
+			}
+		}
+
+		@Override
+		protected void release() throws IOException {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.codec.binary.Hex;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+
+/**
+ * Result of streaming response body to file. Body is copied from response
+ * stream to file through fixed size buffer, SHA-256 digest and size are
+ * computed while writing, so body is never held in memory and file doesn't
+ * need to be read again for verification. Last download of current thread is
+ * available using {@link #getLast()}.
+ * 
+ * @author amit.bhoraniya
+ */
+public class StreamingDownload {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final ThreadLocal<StreamingDownload> LAST = new ThreadLocal<StreamingDownload>();
+	private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+	};
+
+	private final File file;
+	private final long size;
+	private final String sha256;
+
+	private StreamingDownload(File file, long size, String sha256) {
+		this.file = file;
+		this.size = size;
+		this.sha256 = sha256;
+	}
+
+	/**
+	 * Writes content of stream to file. Stream is not closed.
+	 * 
+	 * @param in
+	 *            response body stream
+	 * @param file
+	 *            file to write, parent directories will be created if not
+	 *            exist
+	 * @return download result, also available using {@link #getLast()}
+	 */
+	public static StreamingDownload save(InputStream in, File file) {
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (null != parent && !parent.exists() && !parent.mkdirs()) {
+			throw new AutomationError("Unable to create directory: " + parent);
+		}
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new AutomationError("SHA-256 algorithm not available", e);
+		}
+		ByteBuffer buffer = BUFFER.get();
+		buffer.clear();
+		long size = 0;
+		ReadableByteChannel source = Channels.newChannel(in);
+		try (FileChannel target = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (source.read(buffer) >= 0) {
+				buffer.flip();
+				size += buffer.remaining();
+				digest.update(buffer.duplicate());
+				while (buffer.hasRemaining()) {
+					target.write(buffer);
+				}
+				buffer.clear();
+			}
+		} catch (IOException e) {
+			throw new AutomationError("Unable to save response body to " + file, e);
+		}
+		StreamingDownload download = new StreamingDownload(file, size, Hex.encodeHexString(digest.digest()));
+		LAST.set(download);
+		return download;
+	}
+
+	/**
+	 * @return last download of current thread or null if nothing downloaded
+	 */
+	public static StreamingDownload getLast() {
+		return LAST.get();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return number of bytes written
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return lower case hex encoded SHA-256 digest of content
+	 */
+	public String getSha256() {
+		return sha256;
+	}
+
+	@Override
+	public String toString() {
+		return file + " [size: " + size + ", sha256: " + sha256 + "]";
+	}
+}
@@ -0,0 +1,443 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.flow;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.ConfigSnapshot;
+import com.qmetry.qaf.automation.rest.RestRequestBean;
+import com.qmetry.qaf.automation.rest.ScenarioVariables;
+import com.qmetry.qaf.automation.rest.json.JsonPathEvaluator;
+import com.qmetry.qaf.automation.util.StringUtil;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Flow of request calls with data dependencies, executed as directed acyclic
+ * graph. Flow is json object of named steps, it can be provided as
+ * configuration key, json string or map:
+ * 
+ * <pre>
+ * checkout.flow={'login':{'request':'auth.login'},
+ *   'user':{'request':'get.user','inputs':{'token':'login:$.access_token'}},
+ *   'cart':{'request':'get.cart','inputs':{'token':'login:$.access_token'}},
+ *   'order':{'request':'create.order','inputs':{'token':'login:$.access_token','userId':'user:$.id','cartId':'cart:$.id'},'store':{'orderId':'$.id'}}}
+ * </pre>
+ * 
+ * Step attributes:
+ * <ul>
+ * <li><code>request</code> - key or map of request call
+ * <li><code>inputs</code> - parameter of request call to
+ * <code>step:jsonpath</code> of value in response of other step
+ * <li><code>data</code> - additional data to resolve parameters
+ * <li><code>after</code> - steps to complete before, without data
+ * dependency
+ * <li><code>store</code> - variable name to jsonpath of value in response,
+ * see {@link #getStoredValues()}
+ * </ul>
+ * Step is started as soon as steps it depends on are completed, independent
+ * steps run concurrently using up to {@link #THREADS ws.flow.threads}
+ * (default 8) threads. Values are passed from response to request in memory.
+ * Response with status 400 or above fails the step and steps depending on
+ * it are skipped.
+ * 
+ * @author amit.bhoraniya
+ */
+public class CallFlow {
+	public static final String THREADS = "ws.flow.threads";
+
+	public static final String REQUEST = "request";
+	public static final String INPUTS = "inputs";
+	public static final String DATA = "data";
+	public static final String AFTER = "after";
+	public static final String STORE = "store";
+
+	/**
+	 * Sends request, called from worker thread.
+	 */
+	public interface Requester {
+		ClientResponse request(RestRequestBean bean);
+	}
+
+	private final String name;
+	private final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+	private final Requester requester;
+	private final Map<String, Object> storedValues = new LinkedHashMap<String, Object>();
+	private final Map<String, String> failures = new LinkedHashMap<String, String>();
+	private final List<String> skipped = new ArrayList<String>();
+	private final List<Node> criticalPath = new ArrayList<Node>();
+	private long time;
+
+	/**
+	 * @param flow
+	 *            configuration key, json string or map of flow
+	 * @param requester
+	 *            sends request of step
+	 * @throws AutomationError
+	 *             if flow is not valid or has cyclic dependency
+	 */
+	public CallFlow(Object flow, Requester requester) {
+		this.requester = requester;
+		name = flow instanceof String && ConfigSnapshot.get().containsKey((String) flow) ? (String) flow : "flow";
+		JSONObject definition;
+		try {
+			definition = flow instanceof Map ? new JSONObject((Map<?, ?>) flow)
+					: new JSONObject(name.equals(flow) ? ConfigSnapshot.get().getString(name) : String.valueOf(flow));
+		} catch (JSONException e) {
+			throw new AutomationError(flow + " is not valid flow", e);
+		}
+		for (String step : definition.keySet()) {
+			nodes.put(step, new Node(step, definition.getJSONObject(step)));
+		}
+		for (Node node : nodes.values()) {
+			for (String dependency : node.dependencies) {
+				Node other = nodes.get(dependency);
+				if (null == other) {
+					throw new AutomationError("Step " + node.name + " of " + name + " depends on unknown step "
+							+ dependency);
+				}
+				other.dependents.add(node);
+			}
+		}
+		checkCycle();
+	}
+
+	/**
+	 * Executes flow and waits for completion of all steps.
+	 * 
+	 * @return time taken in milliseconds
+	 */
+	public long run() {
+		final long start = System.currentTimeMillis();
+		Map<Node, Integer> pending = new HashMap<Node, Integer>();
+		int threads = Math.max(1, Math.min(nodes.size(), getBundle().getInt(THREADS, 8)));
+		// parameters are resolved by workers using scenario variables of caller
+		ExecutorService executor = Executors.newFixedThreadPool(threads, ScenarioVariables.threadFactory());
+		CompletionService<Node> completion = new ExecutorCompletionService<Node>(executor);
+		int running = 0;
+		try {
+			for (Node node : nodes.values()) {
+				pending.put(node, node.dependencies.size());
+				if (node.dependencies.isEmpty()) {
+					submit(completion, node, start);
+					running++;
+				}
+			}
+			while (running > 0) {
+				Node node = completion.take().get();
+				running--;
+				if (null != node.failure) {
+					failures.put(node.name, node.failure);
+					skip(node, pending);
+					continue;
+				}
+				for (Node dependent : node.dependents) {
+					int count = pending.get(dependent) - 1;
+					pending.put(dependent, count);
+					if (count == 0) {
+						submit(completion, dependent, start);
+						running++;
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AutomationError("Execution of " + name + " interrupted", e);
+		} catch (ExecutionException e) {
+			// failure of step is recorded by node
+			throw new AutomationError("Execution of " + name + " failed", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		time = System.currentTimeMillis() - start;
+		for (Node node : nodes.values()) {
+			if (null != node.values && null == node.failure) {
+				for (Entry<String, String> store : node.store.entrySet()) {
+					if (node.values.containsKey(store.getValue())) {
+						storedValues.put(store.getKey(), node.values.get(store.getValue()));
+					}
+				}
+			}
+		}
+		computeCriticalPath();
+		return time;
+	}
+
+	/**
+	 * @return values to store as per <code>store</code> attribute of steps
+	 */
+	public Map<String, Object> getStoredValues() {
+		return storedValues;
+	}
+
+	/**
+	 * @return failure message by failed step
+	 */
+	public Map<String, String> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return steps not executed because step they depend on failed
+	 */
+	public List<String> getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * @return chain of dependent steps that determined completion time of
+	 *         flow
+	 */
+	public List<String> getCriticalPath() {
+		List<String> path = new ArrayList<String>();
+		for (Node node : criticalPath) {
+			path.add(node.name);
+		}
+		return path;
+	}
+
+	/**
+	 * @return summary with time of each step and critical path
+	 */
+	public String getReport() {
+		long total = 0;
+		StringBuilder steps = new StringBuilder();
+		for (Node node : nodes.values()) {
+			if (node.end > 0 || null != node.failure) {
+				total += node.end - node.start;
+				steps.append("\n  ").append(node.name).append(": ")
+						.append(node.end > 0 ? node.start + "-" + node.end + "ms" : "not started")
+						.append(null == node.failure ? "" : " failed: " + node.failure);
+			}
+		}
+		StringBuilder path = new StringBuilder();
+		for (Node node : criticalPath) {
+			path.append(path.length() == 0 ? "" : " -> ").append(node.name).append(" (")
+					.append(node.end - node.start).append("ms)");
+		}
+		return name + ": " + nodes.size() + " steps in " + time + "ms, sum of step times " + total
+				+ "ms, critical path " + path + (skipped.isEmpty() ? "" : ", skipped " + skipped) + steps;
+	}
+
+	private void submit(CompletionService<Node> completion, final Node node, final long start) {
+		final Map<String, Object> data = new HashMap<String, Object>(node.data);
+		for (Entry<String, String[]> input : node.inputs.entrySet()) {
+			Node source = nodes.get(input.getValue()[0]);
+			Object value = source.values.get(input.getValue()[1]);
+			if (null == value && !source.values.containsKey(input.getValue()[1])) {
+				node.failure = "No value at " + input.getValue()[1] + " in response of " + source.name;
+			}
+			data.put(input.getKey(), value);
+		}
+		completion.submit(new Callable<Node>() {
+			@Override
+			public Node call() throws Exception {
+				if (null == node.failure) {
+					node.start = System.currentTimeMillis() - start;
+					try {
+						node.execute(data);
+					} catch (RuntimeException e) {
+						node.failure = String.valueOf(e.getMessage());
+					}
+					node.end = System.currentTimeMillis() - start;
+				}
+				return node;
+			}
+		});
+	}
+
+	private void skip(Node node, Map<Node, Integer> pending) {
+		for (Node dependent : node.dependents) {
+			if (pending.put(dependent, -1) >= 0) {
+				skipped.add(dependent.name);
+				skip(dependent, pending);
+			}
+		}
+	}
+
+	private void checkCycle() {
+		Map<Node, Integer> pending = new HashMap<Node, Integer>();
+		LinkedList<Node> ready = new LinkedList<Node>();
+		for (Node node : nodes.values()) {
+			pending.put(node, node.dependencies.size());
+			if (node.dependencies.isEmpty()) {
+				ready.add(node);
+			}
+		}
+		int visited = 0;
+		while (!ready.isEmpty()) {
+			Node node = ready.removeFirst();
+			visited++;
+			for (Node dependent : node.dependents) {
+				int count = pending.get(dependent) - 1;
+				pending.put(dependent, count);
+				if (count == 0) {
+					ready.add(dependent);
+				}
+			}
+		}
+		if (visited < nodes.size()) {
+			Set<String> cyclic = new LinkedHashSet<String>();
+			for (Entry<Node, Integer> entry : pending.entrySet()) {
+				if (entry.getValue() > 0) {
+					cyclic.add(entry.getKey().name);
+				}
+			}
+			throw new AutomationError(name + " has cyclic dependency between steps " + cyclic);
+		}
+	}
+
+	private void computeCriticalPath() {
+		criticalPath.clear();
+		Node last = null;
+		for (Node node : nodes.values()) {
+			if (node.end > 0 && (null == last || node.end > last.end)) {
+				last = node;
+			}
+		}
+		while (null != last) {
+			criticalPath.add(last);
+			Node previous = null;
+			for (String dependency : last.dependencies) {
+				Node node = nodes.get(dependency);
+				if (null == previous || node.end > previous.end) {
+					previous = node;
+				}
+			}
+			last = previous;
+		}
+		Collections.reverse(criticalPath);
+	}
+
+	private class Node {
+		final String name;
+		final Object request;
+		final Map<String, String[]> inputs = new LinkedHashMap<String, String[]>();
+		final Map<String, Object> data;
+		final Map<String, String> store = new LinkedHashMap<String, String>();
+		final Set<String> dependencies = new LinkedHashSet<String>();
+		final Set<Node> dependents = new LinkedHashSet<Node>();
+		// jsonpaths required by dependents and store
+		final Set<String> paths = new HashSet<String>();
+		volatile Map<String, Object> values;
+		volatile String failure;
+		volatile long start;
+		volatile long end;
+
+		Node(String name, JSONObject step) {
+			this.name = name;
+			if (!step.has(REQUEST)) {
+				throw new AutomationError("Step " + name + " of " + CallFlow.this.name + " doesn't have " + REQUEST);
+			}
+			Object value = step.get(REQUEST);
+			request = value instanceof JSONObject ? ((JSONObject) value).toMap() : String.valueOf(value);
+			JSONObject inputsDef = step.optJSONObject(INPUTS);
+			if (null != inputsDef) {
+				for (String param : inputsDef.keySet()) {
+					String[] source = inputsDef.getString(param).split(":", 2);
+					if (source.length < 2 || StringUtil.isBlank(source[1])) {
+						throw new AutomationError("Input " + param + " of step " + name
+								+ " should be step:jsonpath but found " + inputsDef.getString(param));
+					}
+					source[0] = source[0].trim();
+					source[1] = source[1].trim().startsWith("$") ? source[1].trim() : "$." + source[1].trim();
+					inputs.put(param, source);
+					dependencies.add(source[0]);
+				}
+			}
+			JSONObject dataDef = step.optJSONObject(DATA);
+			data = null == dataDef ? new HashMap<String, Object>() : dataDef.toMap();
+			Object after = step.opt(AFTER);
+			if (after instanceof JSONArray) {
+				for (Object dependency : (JSONArray) after) {
+					dependencies.add(String.valueOf(dependency).trim());
+				}
+			} else if (null != after) {
+				dependencies.add(String.valueOf(after).trim());
+			}
+			JSONObject storeDef = step.optJSONObject(STORE);
+			if (null != storeDef) {
+				for (String variable : storeDef.keySet()) {
+					String path = storeDef.getString(variable).trim();
+					path = path.startsWith("$") ? path : "$." + path;
+					store.put(variable, path);
+					paths.add(path);
+				}
+			}
+		}
+
+		void execute(Map<String, Object> data) {
+			RestRequestBean bean = new RestRequestBean();
+			bean.fillData(request);
+			bean.resolveParameters(data);
+			ClientResponse response = requester.request(bean);
+			String body;
+			try {
+				if (response.getStatus() >= 400) {
+					throw new AutomationError("Response status " + response.getStatus());
+				}
+				body = response.hasEntity() ? response.getEntity(String.class) : "";
+			} finally {
+				response.close();
+			}
+			Set<String> required = new HashSet<String>(paths);
+			for (Node dependent : dependents) {
+				for (String[] input : dependent.inputs.values()) {
+					if (input[0].equals(name)) {
+						required.add(input[1]);
+					}
+				}
+			}
+			values = required.isEmpty() || StringUtil.isBlank(body) ? new HashMap<String, Object>()
+					: JsonPathEvaluator.read(body, required);
+		}
+	}
+}
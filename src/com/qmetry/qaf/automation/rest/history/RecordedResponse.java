@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.history;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.json.JsonPathEvaluator;
+import com.qmetry.qaf.automation.ws.Response;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Response kept in {@link ResponseHistory}. Message body is read once when
+ * response is recorded and json document is parsed on first jsonpath
+ * evaluation, parsed document is reused by subsequent evaluations. Body
+ * larger than {@link JsonPathEvaluator#STREAMING_THRESHOLD streaming
+ * threshold} is not parsed, jsonpath is evaluated by streaming evaluator
+ * instead.
+ * 
+ * @author amit.bhoraniya
+ */
+public class RecordedResponse {
+	private final String alias;
+	private final int status;
+	private final MultivaluedMap<String, String> headers;
+	private final String messageBody;
+	private DocumentContext document;
+
+	RecordedResponse(String alias, ClientResponse response) {
+		this.alias = alias;
+		messageBody = readMessageBody(response);
+		status = response.getStatus();
+		headers = response.getHeaders();
+	}
+
+	private static String readMessageBody(ClientResponse response) {
+		InputStream entity = response.getEntityInputStream();
+		if (!(entity instanceof ByteArrayInputStream)) {
+			// buffers entity, so response can be read again
+			return new Response(response).getMessageBody();
+		}
+		ByteArrayInputStream in = (ByteArrayInputStream) entity;
+		// entity buffered by request logger is read in place, same as
+		// message body of Response, without copying it
+		if (in.available() == 0) {
+			return null;
+		}
+		in.mark(0);
+		try {
+			StringBuilder body = new StringBuilder(in.available());
+			Reader reader = new InputStreamReader(in, Charset.defaultCharset());
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer)) >= 0) {
+				body.append(buffer, 0, read);
+			}
+			return body.toString();
+		} catch (IOException e) {
+			throw new AutomationError("Unable to read response body", e);
+		} finally {
+			in.reset();
+		}
+	}
+
+	/**
+	 * @return alias or request call key, null for request call provided as
+	 *         json without alias
+	 */
+	public String getAlias() {
+		return alias;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public MultivaluedMap<String, String> getHeaders() {
+		return headers;
+	}
+
+	public String getMessageBody() {
+		return messageBody;
+	}
+
+	/**
+	 * Same as {@link JsonPathEvaluator#read(String, String)} on message body.
+	 * 
+	 * @param path
+	 * @return value at path
+	 * @throws PathNotFoundException
+	 *             if definite path doesn't exist
+	 * @throws AutomationError
+	 *             if response has no body
+	 */
+	public <T> T read(String path) {
+		if (null == messageBody) {
+			throw new AutomationError("Unable to read " + path + " from " + this + ", response has no body");
+		}
+		if (JsonPathEvaluator.useStreaming(messageBody)) {
+			return JsonPathEvaluator.read(messageBody, path);
+		}
+		if (null == document) {
+			document = JsonPath.parse(messageBody);
+			ResponseHistory.trim();
+		}
+		return document.read(path);
+	}
+
+	/**
+	 * @return true if json document of message body is parsed and kept
+	 */
+	public boolean isParsed() {
+		return null != document;
+	}
+
+	/**
+	 * @return estimated memory used by message body in bytes, doubled once
+	 *         document is parsed
+	 */
+	long getSize() {
+		long size = null == messageBody ? 0 : 2L * messageBody.length();
+		return null == document ? size : 2 * size;
+	}
+
+	@Override
+	public String toString() {
+		return (null == alias ? "response" : alias) + " [" + status + "]";
+	}
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.history;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.ConfigSnapshot;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Thread confined history of last {@link #SIZE ws.history.size} responses,
+ * so steps can verify or compare response of earlier request call
+ * without storing values in configuration. Response is looked up by alias,
+ * that is request call key or alias given in
+ * <code>user requests {request} as {alias}</code>, or by index where 0 is
+ * latest response, 1 is previous and so on.
+ * <p>
+ * Besides count, memory of history is limited by
+ * {@link #MAX_BYTES ws.history.max.bytes} (default 16MB) of estimated size of
+ * message bodies and parsed documents. Oldest responses are evicted when
+ * limit exceeds, latest response is always kept. History is disabled by
+ * default, as message body of each response is copied when it is recorded,
+ * set size to number of responses to keep to enable it. History is cleared before each test by
+ * {@link com.qmetry.qaf.automation.rest.ScenarioVariablesListener}.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class ResponseHistory {
+	public static final String SIZE = "ws.history.size";
+	public static final String MAX_BYTES = "ws.history.max.bytes";
+
+	private static final int DEFAULT_SIZE = 0;
+	private static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+	// latest first
+	private static final ThreadLocal<LinkedList<RecordedResponse>> RESPONSES = new ThreadLocal<LinkedList<RecordedResponse>>() {
+		@Override
+		protected LinkedList<RecordedResponse> initialValue() {
+			return new LinkedList<RecordedResponse>();
+		}
+	};
+
+	private ResponseHistory() {
+	}
+
+	/**
+	 * Add response to history of current thread. Entity of response is
+	 * buffered, so it can be read again.
+	 * 
+	 * @param alias
+	 *            alias or request call key, may be null
+	 * @param response
+	 * @return recorded response or null if history is disabled
+	 */
+	public static RecordedResponse record(String alias, ClientResponse response) {
+		if (getMaxSize() <= 0) {
+			return null;
+		}
+		RecordedResponse recorded = new RecordedResponse(alias, response);
+		RESPONSES.get().addFirst(recorded);
+		trim();
+		return recorded;
+	}
+
+	/**
+	 * @param aliasOrIndex
+	 *            alias or request call key of response, or index where 0 is
+	 *            latest response
+	 * @return latest response with given alias or response at given index
+	 * @throws AutomationError
+	 *             if response is not available in history
+	 */
+	public static RecordedResponse get(String aliasOrIndex) {
+		LinkedList<RecordedResponse> responses = RESPONSES.get();
+		if (aliasOrIndex.matches("\\d+")) {
+			int index = Integer.parseInt(aliasOrIndex);
+			if (index < responses.size()) {
+				return responses.get(index);
+			}
+		} else {
+			for (RecordedResponse response : responses) {
+				if (aliasOrIndex.equals(response.getAlias())) {
+					return response;
+				}
+			}
+		}
+		if (getMaxSize() <= 0) {
+			throw new AutomationError("Response " + aliasOrIndex + " is not available, response history is disabled,"
+					+ " set " + SIZE + " to keep responses");
+		}
+		throw new AutomationError("Response " + aliasOrIndex + " is not available in history of last "
+				+ responses.size() + " responses " + responses);
+	}
+
+	/**
+	 * @return latest response
+	 * @throws AutomationError
+	 *             if history is empty
+	 */
+	public static RecordedResponse latest() {
+		return get("0");
+	}
+
+	/**
+	 * @return copy of responses in history of current thread, latest first
+	 */
+	public static List<RecordedResponse> getResponses() {
+		return Collections.unmodifiableList(new ArrayList<RecordedResponse>(RESPONSES.get()));
+	}
+
+	/**
+	 * @return estimated memory used by history of current thread in bytes
+	 */
+	public static long getSize() {
+		long size = 0;
+		for (RecordedResponse response : RESPONSES.get()) {
+			size += response.getSize();
+		}
+		return size;
+	}
+
+	/**
+	 * Remove all responses from history of current thread.
+	 */
+	public static void clear() {
+		RESPONSES.get().clear();
+	}
+
+	/**
+	 * Evicts oldest responses exceeding count or memory limit.
+	 */
+	static void trim() {
+		LinkedList<RecordedResponse> responses = RESPONSES.get();
+		int maxSize = Math.max(1, getMaxSize());
+		Object value = ConfigSnapshot.get().getValue(MAX_BYTES);
+		long maxBytes = null == value ? DEFAULT_MAX_BYTES : Long.parseLong(String.valueOf(value).trim());
+		long size = 0;
+		int count = 0;
+		for (Iterator<RecordedResponse> iter = responses.iterator(); iter.hasNext();) {
+			RecordedResponse response = iter.next();
+			size += response.getSize();
+			if (count > 0 && (count >= maxSize || size > maxBytes)) {
+				iter.remove();
+			} else {
+				count++;
+			}
+		}
+	}
+
+	private static int getMaxSize() {
+		Object value = ConfigSnapshot.get().getValue(SIZE);
+		return null == value ? DEFAULT_SIZE : Integer.parseInt(String.valueOf(value).trim());
+	}
+}
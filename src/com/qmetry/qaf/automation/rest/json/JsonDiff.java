@@ -0,0 +1,495 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.json;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.json.SimpleJsonPath.Segment;
+import com.qmetry.qaf.automation.rest.json.SimpleJsonPath.Type;
+
+/**
+ * Structural comparison of json documents, typically expected (golden) file
+ * with actual response. Both documents are compared token by token while
+ * object members appear in same order and arrays are compared by position,
+ * so nothing is materialized for identical documents. Remaining members of
+ * object are materialized only when member order differs, and array is
+ * materialized when it is configured to be compared ignoring order.
+ * <p>
+ * Paths to ignore and arrays to compare ignoring order are jsonpath in
+ * {@link SimpleJsonPath supported subset} without filter, for example
+ * <code>$.meta.timestamp</code>, <code>$.items[*].id</code>. Deep scan path
+ * <code>$..name</code> matches member with given name at any level and
+ * <code>*</code> matches all arrays.
+ * <p>
+ * Numbers are compared by value (<code>1.0</code> equals <code>1</code>)
+ * with optional absolute tolerance.
+ * 
+ * @author amit.bhoraniya
+ */
+public class JsonDiff {
+	/**
+	 * Comma separated paths of arrays to compare ignoring order of elements,
+	 * <code>*</code> for all arrays.
+	 */
+	public static final String UNORDERED_ARRAYS = "ws.json.diff.unordered.arrays";
+	/**
+	 * Absolute tolerance for numeric values, default 0.
+	 */
+	public static final String NUMERIC_TOLERANCE = "ws.json.diff.numeric.tolerance";
+	/**
+	 * Comparison stops after given number of differences, default 20.
+	 */
+	public static final String MAX_DIFFERENCES = "ws.json.diff.max.differences";
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final int MAX_VALUE_LENGTH = 60;
+
+	private final PathSet ignore;
+	private final PathSet unordered;
+	private final BigDecimal tolerance;
+	private final int maxDifferences;
+
+	/**
+	 * @param ignorePaths
+	 *            paths to be ignored, can be null
+	 * @param unorderedArrays
+	 *            paths of arrays to compare ignoring order, can be null
+	 * @param tolerance
+	 *            absolute tolerance for numeric values, can be null
+	 * @param maxDifferences
+	 *            comparison stops after given number of differences
+	 */
+	public JsonDiff(Collection<String> ignorePaths, Collection<String> unorderedArrays, BigDecimal tolerance,
+			int maxDifferences) {
+		ignore = new PathSet(ignorePaths);
+		unordered = new PathSet(unorderedArrays);
+		this.tolerance = null == tolerance || tolerance.signum() == 0 ? null : tolerance.abs();
+		this.maxDifferences = maxDifferences > 0 ? maxDifferences : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Creates diff with given ignore paths and options from configuration
+	 * properties {@link #UNORDERED_ARRAYS}, {@link #NUMERIC_TOLERANCE} and
+	 * {@link #MAX_DIFFERENCES}.
+	 * 
+	 * @param ignorePaths
+	 * @return
+	 */
+	public static JsonDiff fromConfig(Collection<String> ignorePaths) {
+		List<String> unorderedArrays = new ArrayList<String>();
+		for (String path : getBundle().getStringArray(UNORDERED_ARRAYS)) {
+			if (!path.trim().isEmpty()) {
+				unorderedArrays.add(path.trim());
+			}
+		}
+		String tolerance = getBundle().getString(NUMERIC_TOLERANCE, "0");
+		return new JsonDiff(ignorePaths, unorderedArrays, new BigDecimal(tolerance.trim()),
+				getBundle().getInt(MAX_DIFFERENCES, 20));
+	}
+
+	/**
+	 * @param expected
+	 *            expected json file
+	 * @param actual
+	 *            actual json
+	 * @return differences, empty list if documents are matching
+	 */
+	public List<String> compare(File expected, String actual) {
+		try {
+			return compare(JSON_FACTORY.createParser(expected), JSON_FACTORY.createParser(actual));
+		} catch (IOException e) {
+			throw new AutomationError("Unable to compare json with " + expected, e);
+		}
+	}
+
+	/**
+	 * @param expected
+	 *            expected json
+	 * @param actual
+	 *            actual json
+	 * @return differences, empty list if documents are matching
+	 */
+	public List<String> compare(String expected, String actual) {
+		try {
+			return compare(JSON_FACTORY.createParser(expected), JSON_FACTORY.createParser(actual));
+		} catch (IOException e) {
+			throw new AutomationError("Unable to compare json", e);
+		}
+	}
+
+	private List<String> compare(JsonParser expected, JsonParser actual) throws IOException {
+		try {
+			Comparison comparison = new Comparison(maxDifferences);
+			JsonToken expectedToken = expected.nextToken();
+			JsonToken actualToken = actual.nextToken();
+			if (null == expectedToken || null == actualToken) {
+				if (expectedToken != actualToken) {
+					comparison.add(null == expectedToken ? "expected empty document" : "actual is empty document");
+				}
+			} else {
+				comparison.compare(expected, actual);
+			}
+			if (comparison.isFull()) {
+				comparison.differences.add("(comparison stopped after " + maxDifferences + " differences)");
+			}
+			return comparison.differences;
+		} finally {
+			expected.close();
+			actual.close();
+		}
+	}
+
+	private class Comparison {
+		private final List<Object> path = new ArrayList<Object>();
+		private List<String> differences = new ArrayList<String>();
+		private int limit;
+
+		Comparison(int limit) {
+			this.limit = limit;
+		}
+
+		boolean isFull() {
+			return differences.size() >= limit;
+		}
+
+		/**
+		 * Both parsers are positioned at value to compare.
+		 */
+		void compare(JsonParser expected, JsonParser actual) throws IOException {
+			JsonToken expectedToken = expected.getCurrentToken();
+			JsonToken actualToken = actual.getCurrentToken();
+			if (ignore.matches(path)) {
+				expected.skipChildren();
+				actual.skipChildren();
+			} else if (expectedToken == JsonToken.START_OBJECT && actualToken == JsonToken.START_OBJECT) {
+				compareObjects(expected, actual);
+			} else if (expectedToken == JsonToken.START_ARRAY && actualToken == JsonToken.START_ARRAY) {
+				if (unordered.matches(path)) {
+					compare(JsonValues.read(expected, expectedToken), JsonValues.read(actual, actualToken));
+				} else {
+					compareArrays(expected, actual);
+				}
+			} else if (isContainer(expectedToken) || isContainer(actualToken)) {
+				add("expected " + describe(expected) + " but was " + describe(actual));
+				expected.skipChildren();
+				actual.skipChildren();
+			} else {
+				compare(JsonValues.read(expected, expectedToken), JsonValues.read(actual, actualToken));
+			}
+		}
+
+		private void compareObjects(JsonParser expected, JsonParser actual) throws IOException {
+			while (true) {
+				JsonToken expectedToken = expected.nextToken();
+				JsonToken actualToken = actual.nextToken();
+				if (expectedToken == JsonToken.END_OBJECT && actualToken == JsonToken.END_OBJECT) {
+					return;
+				}
+				if (expectedToken != JsonToken.FIELD_NAME || actualToken != JsonToken.FIELD_NAME
+						|| !expected.getCurrentName().equals(actual.getCurrentName())) {
+					// member order differs, compare rest of the members in
+					// memory
+					compareMembers(JsonValues.readMembers(expected, expectedToken),
+							JsonValues.readMembers(actual, actualToken));
+					return;
+				}
+				path.add(expected.getCurrentName());
+				expected.nextToken();
+				actual.nextToken();
+				compare(expected, actual);
+				path.remove(path.size() - 1);
+				if (isFull()) {
+					return;
+				}
+			}
+		}
+
+		private void compareArrays(JsonParser expected, JsonParser actual) throws IOException {
+			int index = 0;
+			JsonToken expectedToken = expected.nextToken();
+			JsonToken actualToken = actual.nextToken();
+			while (expectedToken != JsonToken.END_ARRAY && actualToken != JsonToken.END_ARRAY) {
+				path.add(index++);
+				compare(expected, actual);
+				path.remove(path.size() - 1);
+				if (isFull()) {
+					return;
+				}
+				expectedToken = expected.nextToken();
+				actualToken = actual.nextToken();
+			}
+			for (int i = index; expectedToken != JsonToken.END_ARRAY && !isFull(); i++) {
+				addAt(i, "missing " + describe(expected));
+				expected.skipChildren();
+				expectedToken = expected.nextToken();
+			}
+			for (int i = index; actualToken != JsonToken.END_ARRAY && !isFull(); i++) {
+				addAt(i, "unexpected " + describe(actual));
+				actual.skipChildren();
+				actualToken = actual.nextToken();
+			}
+		}
+
+		private void compare(Object expected, Object actual) {
+			if (ignore.matches(path)) {
+				return;
+			}
+			if (expected instanceof Map && actual instanceof Map) {
+				compareMembers(toMap(expected), toMap(actual));
+			} else if (expected instanceof List && actual instanceof List) {
+				if (unordered.matches(path)) {
+					compareUnordered((List<?>) expected, (List<?>) actual);
+				} else {
+					compareElements((List<?>) expected, (List<?>) actual);
+				}
+			} else if (expected instanceof BigDecimal && actual instanceof BigDecimal) {
+				if (!numberEquals((BigDecimal) expected, (BigDecimal) actual)) {
+					add("expected " + describe(expected) + " but was " + describe(actual)
+							+ (null == tolerance ? "" : " (tolerance " + tolerance.toPlainString() + ")"));
+				}
+			} else if (null == expected ? null != actual : !expected.equals(actual)) {
+				add("expected " + describe(expected) + " but was " + describe(actual));
+			}
+		}
+
+		private void compareMembers(Map<String, Object> expected, Map<String, Object> actual) {
+			for (Entry<String, Object> member : expected.entrySet()) {
+				path.add(member.getKey());
+				if (actual.containsKey(member.getKey())) {
+					compare(member.getValue(), actual.get(member.getKey()));
+				} else if (!ignore.matches(path)) {
+					add("missing " + describe(member.getValue()));
+				}
+				path.remove(path.size() - 1);
+				if (isFull()) {
+					return;
+				}
+			}
+			for (Entry<String, Object> member : actual.entrySet()) {
+				if (!expected.containsKey(member.getKey())) {
+					path.add(member.getKey());
+					if (!ignore.matches(path)) {
+						add("unexpected " + describe(member.getValue()));
+					}
+					path.remove(path.size() - 1);
+					if (isFull()) {
+						return;
+					}
+				}
+			}
+		}
+
+		private void compareElements(List<?> expected, List<?> actual) {
+			for (int i = 0; i < Math.max(expected.size(), actual.size()) && !isFull(); i++) {
+				if (i >= actual.size()) {
+					addAt(i, "missing " + describe(expected.get(i)));
+				} else if (i >= expected.size()) {
+					addAt(i, "unexpected " + describe(actual.get(i)));
+				} else {
+					path.add(i);
+					compare(expected.get(i), actual.get(i));
+					path.remove(path.size() - 1);
+				}
+			}
+		}
+
+		private void compareUnordered(List<?> expected, List<?> actual) {
+			boolean[] matched = new boolean[actual.size()];
+			for (int i = 0; i < expected.size() && !isFull(); i++) {
+				path.add(i);
+				boolean found = false;
+				for (int j = 0; j < actual.size() && !found; j++) {
+					if (!matched[j] && matches(expected.get(i), actual.get(j))) {
+						matched[j] = found = true;
+					}
+				}
+				if (!found) {
+					add("no matching element for " + describe(expected.get(i)));
+				}
+				path.remove(path.size() - 1);
+			}
+			for (int j = 0; j < actual.size() && !isFull(); j++) {
+				if (!matched[j]) {
+					addAt(j, "unexpected " + describe(actual.get(j)));
+				}
+			}
+		}
+
+		private boolean matches(Object expected, Object actual) {
+			List<String> recorded = differences;
+			int recordedLimit = limit;
+			differences = new ArrayList<String>(1);
+			limit = 1;
+			try {
+				compare(expected, actual);
+				return differences.isEmpty();
+			} finally {
+				differences = recorded;
+				limit = recordedLimit;
+			}
+		}
+
+		private boolean numberEquals(BigDecimal expected, BigDecimal actual) {
+			if (null == tolerance) {
+				return expected.compareTo(actual) == 0;
+			}
+			return expected.subtract(actual).abs().compareTo(tolerance) <= 0;
+		}
+
+		private void addAt(int index, String difference) {
+			path.add(index);
+			if (!ignore.matches(path)) {
+				add(difference);
+			}
+			path.remove(path.size() - 1);
+		}
+
+		private void add(String difference) {
+			differences.add(JsonValues.formatPath(path) + ": " + difference);
+		}
+	}
+
+	private static boolean isContainer(JsonToken token) {
+		return token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> toMap(Object value) {
+		return (Map<String, Object>) value;
+	}
+
+	private static String describe(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+			case START_OBJECT :
+				return "object";
+			case START_ARRAY :
+				return "array";
+			default :
+				return describe(JsonValues.read(parser, parser.getCurrentToken()));
+		}
+	}
+
+	private static String describe(Object value) {
+		if (value instanceof Map) {
+			return "object";
+		}
+		if (value instanceof List) {
+			return "array[" + ((List<?>) value).size() + "]";
+		}
+		if (value instanceof BigDecimal) {
+			return ((BigDecimal) value).toPlainString();
+		}
+		if (value instanceof String) {
+			String s = (String) value;
+			return "\"" + (s.length() > MAX_VALUE_LENGTH ? s.substring(0, MAX_VALUE_LENGTH) + "..." : s) + "\"";
+		}
+		return String.valueOf(value);
+	}
+
+	/**
+	 * Set of paths matched against concrete path of value being compared.
+	 */
+	private static final class PathSet {
+		private final List<SimpleJsonPath> paths = new ArrayList<SimpleJsonPath>();
+		private final Set<String> anyLevel = new HashSet<String>();
+		private boolean all;
+
+		PathSet(Collection<String> paths) {
+			for (String path : null == paths ? Collections.<String> emptyList() : paths) {
+				String p = path.trim();
+				if (p.equals("*")) {
+					all = true;
+				} else if (p.startsWith("$..") && p.substring(3).matches("[\\w\\-$]+")) {
+					anyLevel.add(p.substring(3));
+				} else {
+					SimpleJsonPath compiled = SimpleJsonPath.compile(p.startsWith("$") ? p : "$." + p);
+					if (null == compiled || hasFilter(compiled)) {
+						throw new AutomationError("Unsupported json diff path: " + path);
+					}
+					this.paths.add(compiled);
+				}
+			}
+		}
+
+		boolean matches(List<Object> path) {
+			if (all) {
+				return true;
+			}
+			if (!anyLevel.isEmpty() && !path.isEmpty() && anyLevel.contains(path.get(path.size() - 1))) {
+				return true;
+			}
+			for (SimpleJsonPath candidate : paths) {
+				if (matches(candidate, path)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private static boolean matches(SimpleJsonPath candidate, List<Object> path) {
+			if (candidate.size() != path.size()) {
+				return false;
+			}
+			for (int i = 0; i < path.size(); i++) {
+				Segment segment = candidate.get(i);
+				Object actual = path.get(i);
+				if (segment.type == Type.FIELD ? !segment.name.equals(actual)
+						: segment.type == Type.INDEX && !Integer.valueOf(segment.index).equals(actual)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean hasFilter(SimpleJsonPath path) {
+			for (Segment segment : path.getSegments()) {
+				if (segment.type == Type.FILTER) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.json;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.JsonPathException;
+import com.jayway.jsonpath.PathNotFoundException;
+
+import com.qmetry.qaf.automation.rest.ConfigSnapshot;
+import com.qmetry.qaf.automation.rest.metrics.CacheStats;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
+
+/**
+ * Evaluates jsonpath on json document choosing evaluation engine based on
+ * document size. For document larger than
+ * {@link #STREAMING_THRESHOLD ws.jsonpath.streaming.threshold} characters
+ * (default 1MB) and path in {@link SimpleJsonPath supported subset},
+ * {@link StreamingJsonPathEvaluator} is used, otherwise jayway
+ * {@link JsonPath}. Set threshold to -1 to disable streaming evaluation.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class JsonPathEvaluator {
+	public static final String STREAMING_THRESHOLD = "ws.jsonpath.streaming.threshold";
+
+	private static final int DEFAULT_STREAMING_THRESHOLD = 1024 * 1024;
+	private static final SimpleJsonPath NOT_SUPPORTED = SimpleJsonPath.compile("$");
+	private static final ConcurrentMap<String, SimpleJsonPath> COMPILED_PATHS = new ConcurrentHashMap<String, SimpleJsonPath>();
+	private static final CacheStats STATS = WsMetrics.cache("jsonpath");
+
+	private JsonPathEvaluator() {
+	}
+
+	/**
+	 * Same as {@link JsonPath#read(String, String, com.jayway.jsonpath.Predicate...)}
+	 * 
+	 * @param json
+	 * @param path
+	 * @return value at path
+	 * @throws PathNotFoundException
+	 *             if definite path doesn't exist
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T read(String json, String path) {
+		SimpleJsonPath simplePath = useStreaming(json) ? compile(path) : null;
+		if (null == simplePath) {
+			return JsonPath.read(json, path);
+		}
+		List<SimpleJsonPath> paths = new ArrayList<SimpleJsonPath>(1);
+		paths.add(simplePath);
+		Map<String, Object> result = new StreamingJsonPathEvaluator(paths).evaluate(json);
+		if (!result.containsKey(simplePath.getPath())) {
+			throw new PathNotFoundException("No results for path: " + path);
+		}
+		return (T) result.get(simplePath.getPath());
+	}
+
+	/**
+	 * Evaluates multiple paths on document. Document is parsed only once.
+	 * 
+	 * @param json
+	 * @param paths
+	 * @return map of path to value, path that doesn't exist in document will
+	 *         not be available in map.
+	 */
+	public static Map<String, Object> read(String json, Collection<String> paths) {
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		List<SimpleJsonPath> simplePaths = new ArrayList<SimpleJsonPath>();
+		List<String> otherPaths = new ArrayList<String>();
+		boolean streaming = useStreaming(json);
+		for (String path : paths) {
+			SimpleJsonPath simplePath = streaming ? compile(path) : null;
+			if (null != simplePath) {
+				simplePaths.add(simplePath);
+			} else {
+				otherPaths.add(path);
+			}
+		}
+		if (!simplePaths.isEmpty()) {
+			Map<String, Object> values = new StreamingJsonPathEvaluator(simplePaths).evaluate(json);
+			for (String path : paths) {
+				SimpleJsonPath simplePath = COMPILED_PATHS.get(path);
+				if (null != simplePath && values.containsKey(simplePath.getPath())) {
+					result.put(path, values.get(simplePath.getPath()));
+				}
+			}
+		}
+		if (!otherPaths.isEmpty()) {
+			DocumentContext document = JsonPath.parse(json);
+			for (String path : otherPaths) {
+				try {
+					result.put(path, document.read(path));
+				} catch (PathNotFoundException e) {
+					// not available in result
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Compiles path for both evaluation engines, compiled path is cached and
+	 * used by subsequent evaluation.
+	 * 
+	 * @param path
+	 * @throws InvalidPathException
+	 *             if path is not valid
+	 */
+	public static void precompile(String path) {
+		compile(path);
+		JsonPath.compile(path);
+		try {
+			// json-path caches compiled path on read
+			JsonPath.parse("{}").read(path);
+		} catch (JsonPathException e) {
+			// path doesn't exist in empty document
+		}
+	}
+
+	/**
+	 * @param path
+	 * @return compiled path or null if path is not supported by streaming
+	 *         evaluator.
+	 */
+	static SimpleJsonPath compile(String path) {
+		SimpleJsonPath compiled = COMPILED_PATHS.get(path);
+		STATS.record(null != compiled);
+		if (null == compiled) {
+			compiled = SimpleJsonPath.compile(path);
+			COMPILED_PATHS.putIfAbsent(path, null == compiled ? NOT_SUPPORTED : compiled);
+		}
+		return compiled == NOT_SUPPORTED ? null : compiled;
+	}
+
+	/**
+	 * @param json
+	 * @return true if jsonpath on given document is evaluated by
+	 *         {@link StreamingJsonPathEvaluator} when supported
+	 */
+	public static boolean useStreaming(String json) {
+		Object value = ConfigSnapshot.get().getValue(STREAMING_THRESHOLD);
+		int threshold = null == value ? DEFAULT_STREAMING_THRESHOLD : Integer.parseInt(String.valueOf(value).trim());
+		return null != json && threshold >= 0 && json.length() >= threshold;
+	}
+}
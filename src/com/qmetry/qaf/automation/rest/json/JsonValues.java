@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.json;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads json values from streaming parser into plain java objects:
+ * {@link LinkedHashMap} for object, {@link ArrayList} for array,
+ * {@link BigDecimal} for number, {@link String}, {@link Boolean} and null.
+ * Numbers are kept as {@link BigDecimal} so that they can be compared by
+ * value without loosing precision.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class JsonValues {
+
+	private JsonValues() {
+	}
+
+	/**
+	 * @param parser
+	 *            parser positioned at value
+	 * @param token
+	 *            current token
+	 * @return value, parser is positioned at last token of the value
+	 * @throws IOException
+	 */
+	public static Object read(JsonParser parser, JsonToken token) throws IOException {
+		switch (token) {
+			case START_OBJECT :
+				return readMembers(parser, parser.nextToken());
+			case START_ARRAY :
+				List<Object> array = new ArrayList<Object>();
+				JsonToken elementToken;
+				while ((elementToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+					array.add(read(parser, elementToken));
+				}
+				return array;
+			case VALUE_STRING :
+				return parser.getText();
+			case VALUE_NUMBER_INT :
+			case VALUE_NUMBER_FLOAT :
+				return parser.getDecimalValue();
+			case VALUE_TRUE :
+				return Boolean.TRUE;
+			case VALUE_FALSE :
+				return Boolean.FALSE;
+			default :
+				return null;
+		}
+	}
+
+	/**
+	 * Reads remaining members of object.
+	 * 
+	 * @param parser
+	 * @param token
+	 *            current token, {@link JsonToken#FIELD_NAME} or
+	 *            {@link JsonToken#END_OBJECT}
+	 * @return members
+	 * @throws IOException
+	 */
+	public static Map<String, Object> readMembers(JsonParser parser, JsonToken token) throws IOException {
+		Map<String, Object> members = new LinkedHashMap<String, Object>();
+		while (token == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			members.put(name, read(parser, parser.nextToken()));
+			token = parser.nextToken();
+		}
+		return members;
+	}
+
+	/**
+	 * @param path
+	 *            member names and array indexes from root
+	 * @return path in jsonpath notation, for example <code>$.items[0].id</code>
+	 */
+	public static String formatPath(List<Object> path) {
+		StringBuilder sb = new StringBuilder("$");
+		for (Object segment : path) {
+			if (segment instanceof Integer) {
+				sb.append('[').append(segment).append(']');
+			} else if (((String) segment).matches("[\\w\\-$]+")) {
+				sb.append('.').append(segment);
+			} else {
+				sb.append("['").append(segment).append("']");
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.json;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled form of simple subset of jsonpath that can be evaluated while
+ * streaming: dotted or bracket fields, non-negative array index, wildcard
+ * and filter comparing scalar (<code>[?(@.active == true)]</code>,
+ * <code>[?(@.price &gt; 10)]</code>, <code>[?(@.name)]</code>). Use
+ * {@link #compile(String)} that returns null for expression outside this
+ * subset.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class SimpleJsonPath {
+
+	enum Type {
+		FIELD, INDEX, WILDCARD, FILTER
+	}
+
+	static final class Segment {
+		final Type type;
+		final String name;
+		final int index;
+		final Filter filter;
+
+		Segment(Type type, String name, int index, Filter filter) {
+			this.type = type;
+			this.name = name;
+			this.index = index;
+			this.filter = filter;
+		}
+	}
+
+	static final class Filter {
+		private final String[] fields;
+		private final String operator;
+		private final Object value;
+
+		Filter(String[] fields, String operator, Object value) {
+			this.fields = fields;
+			this.operator = operator;
+			this.value = value;
+		}
+
+		boolean matches(Object element) {
+			Object actual = element;
+			for (String field : fields) {
+				if (!(actual instanceof Map) || !((Map<?, ?>) actual).containsKey(field)) {
+					return false;
+				}
+				actual = ((Map<?, ?>) actual).get(field);
+			}
+			if (null == operator) {
+				return true;
+			}
+			int res;
+			if (actual instanceof Number && value instanceof Number) {
+				res = new BigDecimal(actual.toString()).compareTo(new BigDecimal(value.toString()));
+			} else if (actual instanceof String && value instanceof String) {
+				res = ((String) actual).compareTo((String) value);
+			} else if (operator.equals("==") || operator.equals("!=")) {
+				boolean equal = null == actual ? null == value : actual.equals(value);
+				return operator.equals("==") == equal;
+			} else {
+				return false;
+			}
+			if (operator.equals("==")) {
+				return res == 0;
+			}
+			if (operator.equals("!=")) {
+				return res != 0;
+			}
+			if (operator.equals("<")) {
+				return res < 0;
+			}
+			if (operator.equals("<=")) {
+				return res <= 0;
+			}
+			if (operator.equals(">")) {
+				return res > 0;
+			}
+			return res >= 0;
+		}
+	}
+
+	private static final String[] OPERATORS = { "==", "!=", "<=", ">=", "<", ">" };
+
+	private final String path;
+	private final List<Segment> segments;
+	private final int firstIndefinite;
+
+	private SimpleJsonPath(String path, List<Segment> segments) {
+		this.path = path;
+		this.segments = Collections.unmodifiableList(segments);
+		int i = 0;
+		while (i < segments.size() && (segments.get(i).type == Type.FIELD || segments.get(i).type == Type.INDEX)) {
+			i++;
+		}
+		firstIndefinite = i;
+	}
+
+	/**
+	 * @param path
+	 *            jsonpath starting with <code>$</code>
+	 * @return compiled path or null if path is not in supported subset
+	 */
+	public static SimpleJsonPath compile(String path) {
+		String p = path.trim();
+		if (!p.startsWith("$")) {
+			return null;
+		}
+		List<Segment> segments = new ArrayList<Segment>();
+		int i = 1;
+		int len = p.length();
+		while (i < len) {
+			char c = p.charAt(i);
+			if (c == '.') {
+				i++;
+				if (i >= len || p.charAt(i) == '.' || p.charAt(i) == '[') {
+					return null;
+				}
+				if (p.charAt(i) == '*') {
+					segments.add(new Segment(Type.WILDCARD, null, -1, null));
+					i++;
+					continue;
+				}
+				int start = i;
+				while (i < len && p.charAt(i) != '.' && p.charAt(i) != '[') {
+					char n = p.charAt(i);
+					if (n == '(' || n == ')' || n == ' ' || n == '@' || n == '?') {
+						return null;
+					}
+					i++;
+				}
+				segments.add(new Segment(Type.FIELD, p.substring(start, i), -1, null));
+			} else if (c == '[') {
+				int end = findBracketEnd(p, i);
+				if (end < 0) {
+					return null;
+				}
+				Segment segment = parseBracket(p.substring(i + 1, end).trim());
+				if (null == segment) {
+					return null;
+				}
+				segments.add(segment);
+				i = end + 1;
+			} else {
+				return null;
+			}
+		}
+		return new SimpleJsonPath(p, segments);
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return true if path points to single value (no wildcard or filter)
+	 */
+	public boolean isDefinite() {
+		return firstIndefinite == segments.size();
+	}
+
+	List<Segment> getSegments() {
+		return segments;
+	}
+
+	int size() {
+		return segments.size();
+	}
+
+	Segment get(int index) {
+		return segments.get(index);
+	}
+
+	/**
+	 * @return index of first wildcard or filter segment, size of segments if
+	 *         path is definite
+	 */
+	int getFirstIndefinite() {
+		return firstIndefinite;
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+
+	private static int findBracketEnd(String p, int start) {
+		char quote = 0;
+		int depth = 0;
+		for (int i = start; i < p.length(); i++) {
+			char c = p.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '\'' || c == '"') {
+				quote = c;
+			} else if (c == '[' || c == '(') {
+				depth++;
+			} else if (c == ']' || c == ')') {
+				depth--;
+				if (depth == 0) {
+					return c == ']' ? i : -1;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static Segment parseBracket(String content) {
+		if (content.equals("*")) {
+			return new Segment(Type.WILDCARD, null, -1, null);
+		}
+		if (isQuoted(content)) {
+			String name = content.substring(1, content.length() - 1);
+			return name.indexOf('\'') >= 0 || name.indexOf('"') >= 0 ? null
+					: new Segment(Type.FIELD, name, -1, null);
+		}
+		if (content.matches("\\d+")) {
+			return new Segment(Type.INDEX, null, Integer.parseInt(content), null);
+		}
+		if (content.startsWith("?(") && content.endsWith(")")) {
+			Filter filter = parseFilter(content.substring(2, content.length() - 1).trim());
+			return null == filter ? null : new Segment(Type.FILTER, null, -1, filter);
+		}
+		return null;
+	}
+
+	private static Filter parseFilter(String expression) {
+		if (expression.contains("&&") || expression.contains("||") || expression.contains("=~")
+				|| !expression.startsWith("@.")) {
+			return null;
+		}
+		String operator = null;
+		int opIndex = -1;
+		for (String op : OPERATORS) {
+			int index = expression.indexOf(op);
+			if (index > 0 && (opIndex < 0 || index < opIndex)) {
+				operator = op;
+				opIndex = index;
+			}
+		}
+		String left = null == operator ? expression : expression.substring(0, opIndex).trim();
+		String[] fields = left.substring(2).split("\\.");
+		for (String field : fields) {
+			if (!field.matches("[\\w\\-$]+")) {
+				return null;
+			}
+		}
+		if (null == operator) {
+			return new Filter(fields, null, null);
+		}
+		String right = expression.substring(opIndex + operator.length()).trim();
+		Object value;
+		if (isQuoted(right)) {
+			value = right.substring(1, right.length() - 1);
+		} else if (right.equals("true") || right.equals("false")) {
+			value = Boolean.valueOf(right);
+		} else if (right.equals("null")) {
+			value = null;
+		} else {
+			try {
+				value = new BigDecimal(right);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		return new Filter(fields, operator, value);
+	}
+
+	private static boolean isQuoted(String s) {
+		return s.length() >= 2 && ((s.startsWith("'") && s.endsWith("'")) || (s.startsWith("\"") && s.endsWith("\"")));
+	}
+}
@@ -0,0 +1,332 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.json.SimpleJsonPath.Segment;
+import com.qmetry.qaf.automation.rest.json.SimpleJsonPath.Type;
+
+import net.minidev.json.JSONArray;
+
+/**
+ * Evaluates one or more {@link SimpleJsonPath} over streaming
+ * {@link JsonParser} in single pass, without building object tree of
+ * document. Only sub-trees that are result of path or array elements
+ * required to evaluate filter are materialized. Parsing stops as soon as all
+ * paths are resolved. Results are represented same as jayway json-path with
+ * json-smart provider: {@link LinkedHashMap} for object, {@link JSONArray}
+ * for array and for result of indefinite path.
+ * <p>
+ * Instance is not thread safe and intended for single evaluation.
+ * 
+ * @author amit.bhoraniya
+ */
+public class StreamingJsonPathEvaluator {
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final SimpleJsonPath[] paths;
+	private final Object[] values;
+	private final boolean[] found;
+	private final boolean[] done;
+	private int doneCount;
+
+	public StreamingJsonPathEvaluator(List<SimpleJsonPath> paths) {
+		this.paths = paths.toArray(new SimpleJsonPath[paths.size()]);
+		values = new Object[this.paths.length];
+		found = new boolean[this.paths.length];
+		done = new boolean[this.paths.length];
+		for (int i = 0; i < this.paths.length; i++) {
+			if (!this.paths[i].isDefinite()) {
+				values[i] = new JSONArray();
+				found[i] = true;
+			}
+		}
+	}
+
+	/**
+	 * @param json
+	 *            json document
+	 * @return map of path to value. Definite path that doesn't exist in
+	 *         document will not be available in map.
+	 */
+	public Map<String, Object> evaluate(String json) {
+		try {
+			return evaluate(JSON_FACTORY.createParser(json));
+		} catch (IOException e) {
+			throw new AutomationError("Unable to parse json", e);
+		}
+	}
+
+	/**
+	 * @param json
+	 *            reader of json document
+	 * @return map of path to value. Definite path that doesn't exist in
+	 *         document will not be available in map.
+	 */
+	public Map<String, Object> evaluate(Reader json) {
+		try {
+			return evaluate(JSON_FACTORY.createParser(json));
+		} catch (IOException e) {
+			throw new AutomationError("Unable to parse json", e);
+		}
+	}
+
+	private Map<String, Object> evaluate(JsonParser parser) throws IOException {
+		try {
+			JsonToken token = parser.nextToken();
+			if (null != token) {
+				int[] states = new int[paths.length];
+				for (int i = 0; i < paths.length; i++) {
+					states[i] = state(i, 0);
+				}
+				walk(parser, token, states, paths.length);
+			}
+		} finally {
+			parser.close();
+		}
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		for (int i = 0; i < paths.length; i++) {
+			if (found[i]) {
+				result.put(paths[i].getPath(), values[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return true if all paths are resolved and parsing can be stopped.
+	 */
+	private boolean walk(JsonParser parser, JsonToken token, int[] states, int n) throws IOException {
+		boolean capture = false;
+		for (int i = 0; i < n; i++) {
+			if (segmentOf(states[i]) == paths[pathOf(states[i])].size()) {
+				capture = true;
+				break;
+			}
+		}
+		if (capture) {
+			Object value = readValue(parser, token);
+			for (int i = 0; i < n; i++) {
+				evaluate(value, pathOf(states[i]), segmentOf(states[i]));
+			}
+		} else if (token == JsonToken.START_OBJECT) {
+			int[] childStates = new int[n];
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken valueToken = parser.nextToken();
+				int childCount = 0;
+				for (int i = 0; i < n; i++) {
+					int path = pathOf(states[i]);
+					int seg = segmentOf(states[i]);
+					if (done[path]) {
+						continue;
+					}
+					Segment segment = paths[path].get(seg);
+					if (segment.type == Type.WILDCARD
+							|| (segment.type == Type.FIELD && segment.name.equals(name))) {
+						childStates[childCount++] = state(path, seg + 1);
+					}
+				}
+				if (childCount == 0) {
+					parser.skipChildren();
+				} else if (walk(parser, valueToken, childStates, childCount)) {
+					return true;
+				}
+			}
+		} else if (token == JsonToken.START_ARRAY) {
+			int[] childStates = new int[n];
+			// child state is predicate to be applied on element itself
+			boolean[] filterStates = new boolean[n];
+			int index = 0;
+			JsonToken elementToken;
+			while ((elementToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+				int childCount = 0;
+				boolean filter = false;
+				for (int i = 0; i < n; i++) {
+					int path = pathOf(states[i]);
+					int seg = segmentOf(states[i]);
+					if (done[path]) {
+						continue;
+					}
+					Segment segment = paths[path].get(seg);
+					if (segment.type == Type.WILDCARD || (segment.type == Type.INDEX && segment.index == index)) {
+						filterStates[childCount] = false;
+						childStates[childCount++] = state(path, seg + 1);
+					} else if (segment.type == Type.FILTER) {
+						filterStates[childCount] = true;
+						childStates[childCount++] = state(path, seg);
+						filter = true;
+					}
+				}
+				if (childCount == 0) {
+					parser.skipChildren();
+				} else if (filter) {
+					// element is required to evaluate predicate
+					Object element = readValue(parser, elementToken);
+					for (int i = 0; i < childCount; i++) {
+						int path = pathOf(childStates[i]);
+						int seg = segmentOf(childStates[i]);
+						if (filterStates[i]) {
+							if (paths[path].get(seg).filter.matches(element)) {
+								evaluate(element, path, seg + 1);
+							}
+						} else {
+							evaluate(element, path, seg);
+						}
+					}
+				} else if (walk(parser, elementToken, childStates, childCount)) {
+					return true;
+				}
+				index++;
+			}
+		}
+		finish(states, n);
+		return doneCount == paths.length;
+	}
+
+	/**
+	 * Marks paths that can not have more results once node processed with
+	 * given states is completed.
+	 */
+	private void finish(int[] states, int n) {
+		for (int i = 0; i < n; i++) {
+			int path = pathOf(states[i]);
+			if (!done[path] && segmentOf(states[i]) <= paths[path].getFirstIndefinite()) {
+				done[path] = true;
+				doneCount++;
+			}
+		}
+	}
+
+	private void evaluate(Object node, int path, int seg) {
+		SimpleJsonPath jsonPath = paths[path];
+		if (seg == jsonPath.size()) {
+			record(path, node);
+			return;
+		}
+		Segment segment = jsonPath.get(seg);
+		switch (segment.type) {
+			case FIELD :
+				if (node instanceof Map && ((Map<?, ?>) node).containsKey(segment.name)) {
+					evaluate(((Map<?, ?>) node).get(segment.name), path, seg + 1);
+				}
+				break;
+			case INDEX :
+				if (node instanceof List && ((List<?>) node).size() > segment.index) {
+					evaluate(((List<?>) node).get(segment.index), path, seg + 1);
+				}
+				break;
+			case WILDCARD :
+				if (node instanceof Map) {
+					for (Object child : ((Map<?, ?>) node).values()) {
+						evaluate(child, path, seg + 1);
+					}
+				} else if (node instanceof List) {
+					for (Object child : (List<?>) node) {
+						evaluate(child, path, seg + 1);
+					}
+				}
+				break;
+			case FILTER :
+				if (node instanceof List) {
+					for (Object child : (List<?>) node) {
+						if (segment.filter.matches(child)) {
+							evaluate(child, path, seg + 1);
+						}
+					}
+				}
+				break;
+		}
+	}
+
+	private void record(int path, Object value) {
+		if (paths[path].isDefinite()) {
+			if (!found[path]) {
+				values[path] = value;
+				found[path] = true;
+				done[path] = true;
+				doneCount++;
+			}
+		} else {
+			((JSONArray) values[path]).add(value);
+		}
+	}
+
+	private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+		switch (token) {
+			case START_OBJECT :
+				Map<String, Object> map = new LinkedHashMap<String, Object>();
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String name = parser.getCurrentName();
+					map.put(name, readValue(parser, parser.nextToken()));
+				}
+				return map;
+			case START_ARRAY :
+				JSONArray array = new JSONArray();
+				JsonToken elementToken;
+				while ((elementToken = parser.nextToken()) != JsonToken.END_ARRAY) {
+					array.add(readValue(parser, elementToken));
+				}
+				return array;
+			case VALUE_STRING :
+				return parser.getText();
+			case VALUE_NUMBER_INT :
+				return parser.getNumberValue();
+			case VALUE_NUMBER_FLOAT :
+				return parser.getDoubleValue();
+			case VALUE_TRUE :
+				return Boolean.TRUE;
+			case VALUE_FALSE :
+				return Boolean.FALSE;
+			default :
+				return null;
+		}
+	}
+
+	private static int state(int path, int seg) {
+		return (path << 16) | seg;
+	}
+
+	private static int pathOf(int state) {
+		return state >>> 16;
+	}
+
+	private static int segmentOf(int state) {
+		return state & 0xFFFF;
+	}
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with fixed buckets from 1ms to 30s, same
+ * buckets are used for all request calls so that they can be aggregated.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class LatencyHistogram {
+	/**
+	 * Upper bounds of buckets in milliseconds, last bucket is unbounded.
+	 */
+	static final long[] BOUNDS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000 };
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param nanos
+	 *            latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		int i = 0;
+		while (i < BOUNDS.length && nanos > BOUNDS[i] * 1000000L) {
+			i++;
+		}
+		buckets.incrementAndGet(i);
+		count.incrementAndGet();
+		sum.addAndGet(nanos);
+		long current;
+		while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+			// retry
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return sum of latencies in nanoseconds
+	 */
+	public long getSum() {
+		return sum.get();
+	}
+
+	/**
+	 * @return max latency in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return cumulative count of each bucket, last one is total count
+	 */
+	public long[] getCumulativeCounts() {
+		long[] counts = new long[BOUNDS.length + 1];
+		long total = 0;
+		for (int i = 0; i < counts.length; i++) {
+			total += buckets.get(i);
+			counts[i] = total;
+		}
+		return counts;
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return upper bound, in milliseconds, of bucket containing percentile.
+	 *         Max latency for unbounded bucket.
+	 */
+	public double getPercentile(double percentile) {
+		long[] counts = getCumulativeCounts();
+		long total = counts[counts.length - 1];
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(total * percentile / 100);
+		for (int i = 0; i < BOUNDS.length; i++) {
+			if (counts[i] >= rank) {
+				return Math.min(BOUNDS[i], getMax() / 1000000.0);
+			}
+		}
+		return getMax() / 1000000.0;
+	}
+}
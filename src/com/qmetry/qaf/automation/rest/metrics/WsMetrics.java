@@ -0,0 +1,472 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.metrics;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+
+import com.google.gson.GsonBuilder;
+import com.qmetry.qaf.automation.keys.ApplicationProperties;
+
+/**
+ * Registry of web-service metrics of current JVM:
+ * <ul>
+ * <li>latency histogram, failures (status 400 or above) and errors
+ * (exception) of requests by request call key, <code>inline</code> for
+ * request call provided as map or json
+ * <li>hit and miss counts of caches of compiled templates, paths, schemas
+ * and call definitions
+ * <li>leased, pending, available and max connections of pooling clients
+ * <li>retries, rate limit waits and token refreshes by source
+ * </ul>
+ * Metrics are available through JMX as
+ * <code>com.qmetry.qaf.automation.rest:type=WsMetrics</code> and can be
+ * written in prometheus text format and json using {@link #write(File)},
+ * {@link WsMetricsListener} writes them at suite end.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class WsMetrics {
+	/**
+	 * Directory for metrics files, default <code>metrics</code> in
+	 * <code>test.results.dir</code>.
+	 */
+	public static final String DIR = "ws.metrics.dir";
+	public static final String PROMETHEUS_FILE = "ws-metrics.prom";
+	public static final String JSON_FILE = "ws-metrics.json";
+	public static final String INLINE = "inline";
+
+	private static final Log logger = LogFactory.getLog(WsMetrics.class);
+
+	private static final ConcurrentMap<String, LatencyHistogram> LATENCIES = new ConcurrentHashMap<String, LatencyHistogram>();
+	private static final ConcurrentMap<String, AtomicLong> FAILURES = new ConcurrentHashMap<String, AtomicLong>();
+	private static final ConcurrentMap<String, AtomicLong> ERRORS = new ConcurrentHashMap<String, AtomicLong>();
+	private static final ConcurrentMap<String, AtomicLong> RETRIES = new ConcurrentHashMap<String, AtomicLong>();
+	private static final ConcurrentMap<String, AtomicLong> WAITS = new ConcurrentHashMap<String, AtomicLong>();
+	private static final ConcurrentMap<String, AtomicLong> REFRESHES = new ConcurrentHashMap<String, AtomicLong>();
+	private static final ConcurrentMap<String, CacheStats> CACHES = new ConcurrentHashMap<String, CacheStats>();
+	private static final ConcurrentMap<String, ConnPoolControl<?>> POOLS = new ConcurrentHashMap<String, ConnPoolControl<?>>();
+
+	static {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new MXBean(),
+					new ObjectName("com.qmetry.qaf.automation.rest:type=WsMetrics"));
+		} catch (Exception e) {
+			logger.debug("Unable to register metrics MBean: " + e.getMessage());
+		}
+	}
+
+	private WsMetrics() {
+	}
+
+	/**
+	 * @param key
+	 *            request call key, null for inline request call
+	 * @param nanos
+	 *            time to receive response in nanoseconds
+	 * @param status
+	 *            response status
+	 */
+	public static void recordRequest(String key, long nanos, int status) {
+		String call = null == key ? INLINE : key;
+		get(LATENCIES, call).record(nanos);
+		if (status >= 400) {
+			counter(FAILURES, call).incrementAndGet();
+		}
+	}
+
+	/**
+	 * @param key
+	 *            request call key, null for inline request call
+	 */
+	public static void recordError(String key) {
+		counter(ERRORS, null == key ? INLINE : key).incrementAndGet();
+	}
+
+	/**
+	 * @param source
+	 *            for example <code>upload</code> or <code>poll</code>
+	 */
+	public static void retry(String source) {
+		counter(RETRIES, source).incrementAndGet();
+	}
+
+	/**
+	 * @param source
+	 * @param millis
+	 *            time waited as requested by server, for example by
+	 *            <code>Retry-After</code> header
+	 */
+	public static void rateLimitWait(String source, long millis) {
+		counter(WAITS, source).addAndGet(millis);
+	}
+
+	/**
+	 * @param source
+	 *            for example <code>oauth</code> or <code>digest</code>
+	 */
+	public static void tokenRefresh(String source) {
+		counter(REFRESHES, source).incrementAndGet();
+	}
+
+	/**
+	 * @param name
+	 *            name of cache
+	 * @return stats of cache to record hit and miss
+	 */
+	public static CacheStats cache(String name) {
+		CacheStats stats = CACHES.get(name);
+		if (null == stats) {
+			CACHES.putIfAbsent(name, new CacheStats());
+			stats = CACHES.get(name);
+		}
+		return stats;
+	}
+
+	/**
+	 * Registers connection pool, pool registered earlier with same name is
+	 * replaced.
+	 * 
+	 * @param name
+	 * @param pool
+	 */
+	public static void registerPool(String name, ConnPoolControl<?> pool) {
+		POOLS.put(name, pool);
+	}
+
+	/**
+	 * @param key
+	 *            request call key
+	 * @return latency histogram of request call, null if there is no request
+	 */
+	public static LatencyHistogram getLatency(String key) {
+		return LATENCIES.get(key);
+	}
+
+	/**
+	 * Clears request metrics and counters, caches and pools stay registered.
+	 */
+	public static void reset() {
+		LATENCIES.clear();
+		FAILURES.clear();
+		ERRORS.clear();
+		RETRIES.clear();
+		WAITS.clear();
+		REFRESHES.clear();
+		for (CacheStats stats : CACHES.values()) {
+			stats.reset();
+		}
+	}
+
+	/**
+	 * Writes metrics to {@value #PROMETHEUS_FILE} and {@value #JSON_FILE}.
+	 * 
+	 * @param dir
+	 */
+	public static void write(File dir) {
+		try {
+			FileUtils.writeStringToFile(new File(dir, PROMETHEUS_FILE), toPrometheus(), "UTF-8");
+			FileUtils.writeStringToFile(new File(dir, JSON_FILE), toJson(), "UTF-8");
+		} catch (IOException e) {
+			logger.warn("Unable to write metrics to " + dir, e);
+		}
+	}
+
+	/**
+	 * @return directory configured using {@link #DIR}
+	 */
+	public static File getDir() {
+		String dir = getBundle().getString(DIR, "");
+		if (dir.isEmpty()) {
+			return new File(ApplicationProperties.REPORT_DIR.getStringVal("test-results"), "metrics");
+		}
+		return new File(dir);
+	}
+
+	/**
+	 * @return metrics in prometheus text exposition format
+	 */
+	public static String toPrometheus() {
+		StringBuilder sb = new StringBuilder();
+		Map<String, LatencyHistogram> latencies = new TreeMap<String, LatencyHistogram>(LATENCIES);
+		header(sb, "ws_request_duration_seconds", "histogram", "Time to receive response of request call");
+		for (Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+			String call = "call=\"" + escape(entry.getKey()) + "\"";
+			long[] counts = entry.getValue().getCumulativeCounts();
+			for (int i = 0; i < LatencyHistogram.BOUNDS.length; i++) {
+				sb.append("ws_request_duration_seconds_bucket{").append(call).append(",le=\"")
+						.append(seconds(LatencyHistogram.BOUNDS[i] * 1000000L)).append("\"} ").append(counts[i])
+						.append('\n');
+			}
+			sb.append("ws_request_duration_seconds_bucket{").append(call).append(",le=\"+Inf\"} ")
+					.append(counts[counts.length - 1]).append('\n');
+			sb.append("ws_request_duration_seconds_sum{").append(call).append("} ")
+					.append(seconds(entry.getValue().getSum())).append('\n');
+			sb.append("ws_request_duration_seconds_count{").append(call).append("} ")
+					.append(counts[counts.length - 1]).append('\n');
+		}
+		counters(sb, "ws_request_failures_total", "Responses with status 400 or above", "call", FAILURES);
+		counters(sb, "ws_request_errors_total", "Requests failed with exception", "call", ERRORS);
+		Map<String, CacheStats> caches = new TreeMap<String, CacheStats>(CACHES);
+		header(sb, "ws_cache_hits_total", "counter", "Cache hits");
+		for (Entry<String, CacheStats> entry : caches.entrySet()) {
+			sb.append("ws_cache_hits_total{cache=\"").append(escape(entry.getKey())).append("\"} ")
+					.append(entry.getValue().getHits()).append('\n');
+		}
+		header(sb, "ws_cache_misses_total", "counter", "Cache misses");
+		for (Entry<String, CacheStats> entry : caches.entrySet()) {
+			sb.append("ws_cache_misses_total{cache=\"").append(escape(entry.getKey())).append("\"} ")
+					.append(entry.getValue().getMisses()).append('\n');
+		}
+		header(sb, "ws_pool_connections", "gauge", "Connections of pool by state");
+		for (Entry<String, Long> entry : getPoolConnections().entrySet()) {
+			String[] name = entry.getKey().split("\\|", 2);
+			sb.append("ws_pool_connections{pool=\"").append(escape(name[0])).append("\",state=\"").append(name[1])
+					.append("\"} ").append(entry.getValue()).append('\n');
+		}
+		counters(sb, "ws_retries_total", "Retried requests", "source", RETRIES);
+		header(sb, "ws_rate_limit_wait_seconds_total", "counter", "Time waited as requested by server");
+		for (Entry<String, AtomicLong> entry : new TreeMap<String, AtomicLong>(WAITS).entrySet()) {
+			sb.append("ws_rate_limit_wait_seconds_total{source=\"").append(escape(entry.getKey())).append("\"} ")
+					.append(seconds(entry.getValue().get() * 1000000L)).append('\n');
+		}
+		counters(sb, "ws_token_refreshes_total", "Access token or authentication challenge refreshes", "source",
+				REFRESHES);
+		return sb.toString();
+	}
+
+	/**
+	 * @return metrics as json, latencies are in milliseconds
+	 */
+	public static String toJson() {
+		Map<String, Object> json = new TreeMap<String, Object>();
+		Map<String, Object> requests = new TreeMap<String, Object>();
+		// errors are recorded without latency
+		Set<String> keys = new TreeSet<String>(LATENCIES.keySet());
+		keys.addAll(FAILURES.keySet());
+		keys.addAll(ERRORS.keySet());
+		for (String key : keys) {
+			LatencyHistogram histogram = LATENCIES.get(key);
+			Map<String, Object> call = new TreeMap<String, Object>();
+			if (null != histogram) {
+				call.put("count", histogram.getCount());
+				call.put("mean",
+						histogram.getCount() == 0 ? 0 : histogram.getSum() / 1000000.0 / histogram.getCount());
+				call.put("p50", histogram.getPercentile(50));
+				call.put("p90", histogram.getPercentile(90));
+				call.put("p99", histogram.getPercentile(99));
+				call.put("max", histogram.getMax() / 1000000.0);
+			} else {
+				call.put("count", 0L);
+			}
+			call.put("failures", value(FAILURES, key));
+			call.put("errors", value(ERRORS, key));
+			requests.put(key, call);
+		}
+		json.put("requests", requests);
+		Map<String, Object> caches = new TreeMap<String, Object>();
+		for (Entry<String, CacheStats> entry : CACHES.entrySet()) {
+			Map<String, Object> cache = new TreeMap<String, Object>();
+			cache.put("hits", entry.getValue().getHits());
+			cache.put("misses", entry.getValue().getMisses());
+			cache.put("hitRate", entry.getValue().getHitRate());
+			caches.put(entry.getKey(), cache);
+		}
+		json.put("caches", caches);
+		json.put("pools", getPoolConnections());
+		json.put("retries", values(RETRIES));
+		json.put("rateLimitWaitMillis", values(WAITS));
+		json.put("tokenRefreshes", values(REFRESHES));
+		return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+	}
+
+	/**
+	 * @return connection count by <code>pool|state</code>
+	 */
+	private static Map<String, Long> getPoolConnections() {
+		Map<String, Long> connections = new TreeMap<String, Long>();
+		for (Entry<String, ConnPoolControl<?>> entry : POOLS.entrySet()) {
+			PoolStats stats = entry.getValue().getTotalStats();
+			connections.put(entry.getKey() + "|leased", (long) stats.getLeased());
+			connections.put(entry.getKey() + "|pending", (long) stats.getPending());
+			connections.put(entry.getKey() + "|available", (long) stats.getAvailable());
+			connections.put(entry.getKey() + "|max", (long) stats.getMax());
+		}
+		return connections;
+	}
+
+	private static void counters(StringBuilder sb, String name, String help, String label,
+			Map<String, AtomicLong> counters) {
+		header(sb, name, "counter", help);
+		for (Entry<String, AtomicLong> entry : new TreeMap<String, AtomicLong>(counters).entrySet()) {
+			sb.append(name).append('{').append(label).append("=\"").append(escape(entry.getKey())).append("\"} ")
+					.append(entry.getValue().get()).append('\n');
+		}
+	}
+
+	private static void header(StringBuilder sb, String name, String type, String help) {
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static String seconds(long nanos) {
+		return String.format(Locale.US, "%.6f", nanos / 1e9).replaceAll("0+$", "").replaceAll("\\.$", ".0");
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static LatencyHistogram get(ConcurrentMap<String, LatencyHistogram> map, String key) {
+		LatencyHistogram histogram = map.get(key);
+		if (null == histogram) {
+			map.putIfAbsent(key, new LatencyHistogram());
+			histogram = map.get(key);
+		}
+		return histogram;
+	}
+
+	private static AtomicLong counter(ConcurrentMap<String, AtomicLong> map, String key) {
+		AtomicLong counter = map.get(key);
+		if (null == counter) {
+			map.putIfAbsent(key, new AtomicLong());
+			counter = map.get(key);
+		}
+		return counter;
+	}
+
+	private static long value(Map<String, AtomicLong> map, String key) {
+		AtomicLong counter = map.get(key);
+		return null == counter ? 0 : counter.get();
+	}
+
+	private static Map<String, Long> values(Map<String, AtomicLong> map) {
+		Map<String, Long> values = new TreeMap<String, Long>();
+		for (Entry<String, AtomicLong> entry : map.entrySet()) {
+			values.put(entry.getKey(), entry.getValue().get());
+		}
+		return values;
+	}
+
+	private static class MXBean implements WsMetricsMXBean {
+		@Override
+		public Map<String, Long> getRequestCounts() {
+			Map<String, Long> counts = new TreeMap<String, Long>();
+			for (Entry<String, LatencyHistogram> entry : LATENCIES.entrySet()) {
+				counts.put(entry.getKey(), entry.getValue().getCount());
+			}
+			return counts;
+		}
+
+		@Override
+		public Map<String, Double> getMeanLatencies() {
+			Map<String, Double> latencies = new TreeMap<String, Double>();
+			for (Entry<String, LatencyHistogram> entry : LATENCIES.entrySet()) {
+				LatencyHistogram histogram = entry.getValue();
+				latencies.put(entry.getKey(),
+						histogram.getCount() == 0 ? 0 : histogram.getSum() / 1000000.0 / histogram.getCount());
+			}
+			return latencies;
+		}
+
+		@Override
+		public Map<String, Double> getP99Latencies() {
+			Map<String, Double> latencies = new TreeMap<String, Double>();
+			for (Entry<String, LatencyHistogram> entry : LATENCIES.entrySet()) {
+				latencies.put(entry.getKey(), entry.getValue().getPercentile(99));
+			}
+			return latencies;
+		}
+
+		@Override
+		public Map<String, Double> getCacheHitRates() {
+			Map<String, Double> rates = new TreeMap<String, Double>();
+			for (Entry<String, CacheStats> entry : CACHES.entrySet()) {
+				rates.put(entry.getKey(), entry.getValue().getHitRate());
+			}
+			return rates;
+		}
+
+		@Override
+		public Map<String, Long> getPoolConnections() {
+			return WsMetrics.getPoolConnections();
+		}
+
+		@Override
+		public Map<String, Long> getCounters() {
+			Map<String, Long> counters = new TreeMap<String, Long>();
+			for (Entry<String, AtomicLong> entry : FAILURES.entrySet()) {
+				counters.put("failures|" + entry.getKey(), entry.getValue().get());
+			}
+			for (Entry<String, AtomicLong> entry : ERRORS.entrySet()) {
+				counters.put("errors|" + entry.getKey(), entry.getValue().get());
+			}
+			for (Entry<String, AtomicLong> entry : RETRIES.entrySet()) {
+				counters.put("retries|" + entry.getKey(), entry.getValue().get());
+			}
+			for (Entry<String, AtomicLong> entry : WAITS.entrySet()) {
+				counters.put("rateLimitWaitMillis|" + entry.getKey(), entry.getValue().get());
+			}
+			for (Entry<String, AtomicLong> entry : REFRESHES.entrySet()) {
+				counters.put("tokenRefreshes|" + entry.getKey(), entry.getValue().get());
+			}
+			return counters;
+		}
+
+		@Override
+		public String getPrometheusText() {
+			return toPrometheus();
+		}
+
+		@Override
+		public void reset() {
+			WsMetrics.reset();
+		}
+	}
+}
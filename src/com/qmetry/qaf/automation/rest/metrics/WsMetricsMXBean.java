@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link WsMetrics}, registered as
+ * <code>com.qmetry.qaf.automation.rest:type=WsMetrics</code>.
+ * 
+ * @author amit.bhoraniya
+ */
+public interface WsMetricsMXBean {
+	/**
+	 * @return number of requests by request call
+	 */
+	Map<String, Long> getRequestCounts();
+
+	/**
+	 * @return mean latency in milliseconds by request call
+	 */
+	Map<String, Double> getMeanLatencies();
+
+	/**
+	 * @return approximate 99th percentile latency in milliseconds by request
+	 *         call
+	 */
+	Map<String, Double> getP99Latencies();
+
+	/**
+	 * @return hit rate by cache
+	 */
+	Map<String, Double> getCacheHitRates();
+
+	/**
+	 * @return connection counts by pool and state
+	 */
+	Map<String, Long> getPoolConnections();
+
+	/**
+	 * @return failures, errors, retries, rate limit waits and token
+	 *         refreshes
+	 */
+	Map<String, Long> getCounters();
+
+	/**
+	 * @return metrics in prometheus text format
+	 */
+	String getPrometheusText();
+
+	void reset();
+}
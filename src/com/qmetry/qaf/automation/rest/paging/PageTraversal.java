@@ -0,0 +1,359 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.paging;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.core.UriBuilder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.RestRequestBean;
+import com.qmetry.qaf.automation.rest.json.JsonPathEvaluator;
+import com.qmetry.qaf.automation.util.StringUtil;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Traverses items of paginated collection, configured using
+ * <code>paging</code> attribute of request call:
+ * 
+ * <pre>
+ * get.users={'endPoint':'/users','paging':{'type':'cursor','items':'$.data[*]','cursor':'$.meta.next','param':'after'}}
+ * get.orders={'endPoint':'/orders','paging':{'type':'page','items':'$.orders','param':'page','size-param':'per_page','size':100}}
+ * </pre>
+ * <ul>
+ * <li><code>type</code> - <code>cursor</code> (default) sends value at
+ * <code>cursor</code> jsonpath of page as <code>param</code> query parameter
+ * (or requests it when it is url), <code>page</code> increments page number,
+ * <code>offset</code> increments offset by number of items in page and
+ * <code>link</code> requests url with <code>rel="next"</code> in
+ * <code>Link</code> header
+ * <li><code>items</code> - jsonpath of items in page, default
+ * <code>$[*]</code>
+ * <li><code>param</code> - query parameter for cursor, page number or offset,
+ * default same as type
+ * <li><code>start</code> - first page number or offset, default 1 for page
+ * and 0 for offset
+ * <li><code>size-param</code>, <code>size</code> - query parameter and value
+ * of page size, page with less items than size is last page
+ * <li><code>prefetch</code> - number of pages fetched ahead, default 1
+ * <li><code>max-pages</code> - maximum number of pages to traverse
+ * </ul>
+ * Pages are requested and parsed by worker thread while items of previous
+ * page are visited by calling thread. Worker waits when <code>prefetch</code>
+ * pages are pending, so not more than <code>prefetch + 2</code> pages are in
+ * memory regardless of size of collection.
+ * 
+ * @author amit.bhoraniya
+ */
+public class PageTraversal {
+	public static final String TYPE = "type";
+	public static final String ITEMS = "items";
+	public static final String CURSOR = "cursor";
+	public static final String PARAM = "param";
+	public static final String START = "start";
+	public static final String SIZE_PARAM = "size-param";
+	public static final String SIZE = "size";
+	public static final String PREFETCH = "prefetch";
+	public static final String MAX_PAGES = "max-pages";
+	public static final String TYPE_CURSOR = "cursor";
+	public static final String TYPE_PAGE = "page";
+	public static final String TYPE_OFFSET = "offset";
+	public static final String TYPE_LINK = "link";
+
+	private static final Log logger = LogFactory.getLog(PageTraversal.class);
+	private static final Pattern LINK = Pattern.compile("<([^>]*)>([^,]*)");
+	private static final Pattern NEXT = Pattern.compile("rel\\s*=\\s*\"?([^\";]*)");
+	private static final Page END = new Page(Collections.emptyList(), null, null);
+
+	/**
+	 * Sends request of a page.
+	 */
+	public interface Requester {
+		/**
+		 * Called from worker thread, implementation should not use client of
+		 * calling thread.
+		 * 
+		 * @param bean
+		 *            request call of page
+		 * @return response
+		 */
+		ClientResponse request(RestRequestBean bean);
+	}
+
+	/**
+	 * Receives items of collection in order.
+	 */
+	public interface ItemVisitor {
+		/**
+		 * @param item
+		 *            item as {@link Map}, {@link List} or value
+		 * @param index
+		 *            index of item in collection
+		 * @param page
+		 *            index of page
+		 */
+		void visit(Object item, long index, int page);
+	}
+
+	private final RestRequestBean bean;
+	private final Requester requester;
+	private final String type;
+	private final String itemsPath;
+	private final String cursorPath;
+	private final String param;
+	private final int size;
+	private final int prefetch;
+	private final int maxPages;
+	private long offset;
+	private int pages;
+	private long items;
+
+	/**
+	 * @param bean
+	 *            request call of first page with paging settings, it is
+	 *            updated for subsequent pages
+	 * @param requester
+	 *            sends request of page
+	 */
+	public PageTraversal(RestRequestBean bean, Requester requester) {
+		this.bean = bean;
+		this.requester = requester;
+		Map<String, Object> settings = bean.getPaging();
+		type = getString(settings, TYPE, TYPE_CURSOR).toLowerCase();
+		if (!type.equals(TYPE_CURSOR) && !type.equals(TYPE_PAGE) && !type.equals(TYPE_OFFSET)
+				&& !type.equals(TYPE_LINK)) {
+			throw new AutomationError("Unsupported paging type: " + type);
+		}
+		itemsPath = getString(settings, ITEMS, "$[*]");
+		cursorPath = getString(settings, CURSOR, null);
+		if (type.equals(TYPE_CURSOR) && null == cursorPath) {
+			throw new AutomationError("Provide jsonpath of next cursor using paging " + CURSOR + " setting");
+		}
+		param = getString(settings, PARAM, type);
+		size = getInt(settings, SIZE, 0);
+		prefetch = Math.max(1, getInt(settings, PREFETCH, 1));
+		maxPages = getInt(settings, MAX_PAGES, 0);
+
+		Map<String, Object> query = bean.getQueryParameters();
+		String sizeParam = getString(settings, SIZE_PARAM, null);
+		if (null != sizeParam && size > 0 && !query.containsKey(sizeParam)) {
+			query.put(sizeParam, size);
+		}
+		if (type.equals(TYPE_PAGE) || type.equals(TYPE_OFFSET)) {
+			if (!query.containsKey(param)) {
+				query.put(param, getInt(settings, START, type.equals(TYPE_PAGE) ? 1 : 0));
+			}
+			offset = Long.parseLong(String.valueOf(query.get(param)));
+		}
+	}
+
+	/**
+	 * Visits all items of collection.
+	 * 
+	 * @param visitor
+	 * @return number of items visited
+	 */
+	public long traverse(ItemVisitor visitor) {
+		final BlockingQueue<Page> queue = new ArrayBlockingQueue<Page>(prefetch);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					fetchAll(queue);
+				}
+			});
+			for (Page page = queue.take(); page != END; page = queue.take()) {
+				if (null != page.error) {
+					throw page.error;
+				}
+				for (Object item : page.items) {
+					visitor.visit(item, items++, pages);
+				}
+				pages++;
+			}
+			return items;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AutomationError("Pagination interrupted", e);
+		} finally {
+			// stops worker if visitor failed
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return number of pages visited
+	 */
+	public int getPages() {
+		return pages;
+	}
+
+	/**
+	 * @return number of items visited
+	 */
+	public long getItems() {
+		return items;
+	}
+
+	private void fetchAll(BlockingQueue<Page> queue) {
+		try {
+			for (int page = 0; maxPages <= 0 || page < maxPages; page++) {
+				Page next;
+				try {
+					next = fetch();
+				} catch (RuntimeException e) {
+					queue.put(new Page(null, null, e));
+					return;
+				}
+				queue.put(next);
+				if (!prepareNext(next)) {
+					break;
+				}
+			}
+			queue.put(END);
+		} catch (InterruptedException e) {
+			// traversal stopped
+		}
+	}
+
+	private Page fetch() {
+		ClientResponse response = requester.request(bean);
+		String body;
+		String link;
+		try {
+			if (response.getStatus() >= 300) {
+				throw new AutomationError("Request of page " + getUri() + " failed with status " + response.getStatus());
+			}
+			body = response.getEntity(String.class);
+			link = getNextLink(response.getHeaders().get("Link"));
+		} finally {
+			response.close();
+		}
+		List<String> paths = new ArrayList<String>(2);
+		paths.add(itemsPath);
+		if (null != cursorPath) {
+			paths.add(cursorPath);
+		}
+		Map<String, Object> values = JsonPathEvaluator.read(body, paths);
+		Object value = values.get(itemsPath);
+		List<?> pageItems = value instanceof List ? (List<?>) value
+				: null == value ? Collections.emptyList() : Collections.singletonList(value);
+		if (type.equals(TYPE_CURSOR)) {
+			Object cursor = values.get(cursorPath);
+			link = null == cursor ? null : String.valueOf(cursor);
+		}
+		return new Page(pageItems, link, null);
+	}
+
+	/**
+	 * Updates request call for next page.
+	 * 
+	 * @return false if page is last page
+	 */
+	private boolean prepareNext(Page page) {
+		if (type.equals(TYPE_PAGE) || type.equals(TYPE_OFFSET)) {
+			if (page.items.isEmpty() || (size > 0 && page.items.size() < size)) {
+				return false;
+			}
+			offset += type.equals(TYPE_PAGE) ? 1 : page.items.size();
+			bean.getQueryParameters().put(param, offset);
+			return true;
+		}
+		if (StringUtil.isBlank(page.next) || (type.equals(TYPE_CURSOR) && page.items.isEmpty())) {
+			return false;
+		}
+		if (type.equals(TYPE_CURSOR) && !page.next.matches("(?i)https?://.*")) {
+			bean.getQueryParameters().put(param, page.next);
+		} else {
+			// next page url already has all query parameters
+			URI next = getUri().resolve(page.next);
+			logger.debug("Next page: " + next);
+			bean.setBaseUrl(next.toString());
+			bean.setEndPoint("");
+			bean.getQueryParameters().clear();
+		}
+		return true;
+	}
+
+	private URI getUri() {
+		return UriBuilder.fromUri(bean.getBaseUrl()).path(bean.getEndPoint()).build();
+	}
+
+	private static String getNextLink(List<String> headers) {
+		if (null == headers) {
+			return null;
+		}
+		for (String header : headers) {
+			Matcher link = LINK.matcher(header);
+			while (link.find()) {
+				Matcher rel = NEXT.matcher(link.group(2));
+				if (rel.find() && (" " + rel.group(1).trim() + " ").contains(" next ")) {
+					return link.group(1).trim();
+				}
+			}
+		}
+		return null;
+	}
+
+	private static String getString(Map<String, Object> settings, String key, String defaultValue) {
+		Object value = settings.get(key);
+		return null == value || StringUtil.isBlank(String.valueOf(value)) ? defaultValue : String.valueOf(value);
+	}
+
+	private static int getInt(Map<String, Object> settings, String key, int defaultValue) {
+		Object value = settings.get(key);
+		return null == value ? defaultValue : Integer.parseInt(String.valueOf(value));
+	}
+
+	private static class Page {
+		final List<?> items;
+		final String next;
+		final RuntimeException error;
+
+		Page(List<?> items, String next, RuntimeException error) {
+			this.items = items;
+			this.next = next;
+			this.error = error;
+		}
+	}
+}
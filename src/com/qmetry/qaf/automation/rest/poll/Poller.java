@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.poll;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.qmetry.qaf.automation.rest.assertion.AssertionPlan;
+import com.qmetry.qaf.automation.rest.json.JsonPathEvaluator;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
+import com.qmetry.qaf.automation.util.StringUtil;
+import com.qmetry.qaf.automation.ws.Response;
+import com.sun.jersey.api.client.ClientResponse;
+
+/**
+ * Re-sends request until value at jsonpath of response matches expected value
+ * or timeout is reached. Interval between requests starts with
+ * {@link #INITIAL_INTERVAL ws.poll.initial.interval} (default 250ms) and is
+ * multiplied by {@link #MULTIPLIER ws.poll.multiplier} (default 2) after
+ * each attempt up to {@link #MAX_INTERVAL ws.poll.max.interval} (default
+ * 10s). When response has <code>Retry-After</code> header next request is
+ * not sent before time given by server.
+ * <p>
+ * Requests are sent from threads of scheduler shared by all polls, size of
+ * scheduler is set using {@link #THREADS ws.poll.threads}. No thread is
+ * occupied by poll between attempts, so many polls can be in progress using
+ * {@link #start(long)}.
+ * 
+ * @author amit.bhoraniya
+ */
+public class Poller {
+	public static final String INITIAL_INTERVAL = "ws.poll.initial.interval";
+	public static final String MAX_INTERVAL = "ws.poll.max.interval";
+	public static final String MULTIPLIER = "ws.poll.multiplier";
+	public static final String THREADS = "ws.poll.threads";
+
+	private static final Log logger = LogFactory.getLog(Poller.class);
+	private static final String HTTP_DATE = "EEE, dd MMM yyyy HH:mm:ss zzz";
+	private static volatile ScheduledExecutorService scheduler;
+
+	private final Callable<ClientResponse> request;
+	private final String jsonpath;
+	private final AssertionPlan expected;
+	private final long initialInterval;
+	private final long maxInterval;
+	private final double multiplier;
+	private volatile int attempts;
+	private volatile Object lastValue;
+
+	/**
+	 * @param request
+	 *            sends request, called from scheduler threads
+	 * @param jsonpath
+	 *            jsonpath of value to check
+	 * @param expected
+	 *            expected value at jsonpath
+	 */
+	public Poller(Callable<ClientResponse> request, String jsonpath, AssertionPlan expected) {
+		this.request = request;
+		this.jsonpath = jsonpath;
+		this.expected = expected;
+		initialInterval = Math.max(1, getBundle().getLong(INITIAL_INTERVAL, 250));
+		maxInterval = Math.max(initialInterval, getBundle().getLong(MAX_INTERVAL, 10000));
+		multiplier = Math.max(1, getBundle().getDouble(MULTIPLIER, 2));
+	}
+
+	/**
+	 * Starts polling, first request is sent immediately.
+	 * 
+	 * @param timeout
+	 *            timeout in milliseconds
+	 * @return future of response matching condition. It fails with
+	 *         {@link TimeoutException} when condition is not met within
+	 *         timeout.
+	 */
+	public Future<ClientResponse> start(long timeout) {
+		Polling polling = new Polling(System.currentTimeMillis() + timeout);
+		polling.schedule(0);
+		return polling;
+	}
+
+	/**
+	 * @return number of requests sent
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	/**
+	 * @return value at jsonpath in last response, null if not available
+	 */
+	public Object getLastValue() {
+		return lastValue;
+	}
+
+	private boolean isSatisfied(ClientResponse response) {
+		String body = new Response(response).getMessageBody();
+		if (StringUtil.isBlank(body)) {
+			return false;
+		}
+		try {
+			lastValue = JsonPathEvaluator.read(body, jsonpath);
+		} catch (RuntimeException e) {
+			// path not available yet or not a json
+			lastValue = null;
+			return false;
+		}
+		return expected.match(lastValue);
+	}
+
+	private static long getRetryAfter(ClientResponse response) {
+		String retryAfter = response.getHeaders().getFirst("Retry-After");
+		if (StringUtil.isBlank(retryAfter)) {
+			return 0;
+		}
+		retryAfter = retryAfter.trim();
+		if (retryAfter.matches("\\d+")) {
+			return Long.parseLong(retryAfter) * 1000;
+		}
+		try {
+			return new SimpleDateFormat(HTTP_DATE, Locale.US).parse(retryAfter).getTime()
+					- System.currentTimeMillis();
+		} catch (ParseException e) {
+			logger.warn("Ignoring invalid Retry-After header: " + retryAfter);
+			return 0;
+		}
+	}
+
+	private static ScheduledExecutorService getScheduler() {
+		if (null == scheduler) {
+			synchronized (Poller.class) {
+				if (null == scheduler) {
+					final AtomicInteger count = new AtomicInteger();
+					scheduler = Executors.newScheduledThreadPool(
+							getBundle().getInt(THREADS, Math.max(2, Runtime.getRuntime().availableProcessors())),
+							new ThreadFactory() {
+								@Override
+								public Thread newThread(Runnable r) {
+									Thread thread = new Thread(r, "ws-poll-" + count.incrementAndGet());
+									thread.setDaemon(true);
+									return thread;
+								}
+							});
+				}
+			}
+		}
+		return scheduler;
+	}
+
+	private class Polling implements Future<ClientResponse>, Runnable {
+		private final long deadline;
+		private final CountDownLatch done = new CountDownLatch(1);
+		private long interval = initialInterval;
+		private volatile ScheduledFuture<?> next;
+		private volatile boolean cancelled;
+		private ClientResponse result;
+		private Exception error;
+
+		Polling(long deadline) {
+			this.deadline = deadline;
+		}
+
+		@Override
+		public void run() {
+			if (isDone()) {
+				return;
+			}
+			if (++attempts > 1) {
+				WsMetrics.retry("poll");
+			}
+			long delay = interval;
+			try {
+				ClientResponse response = request.call();
+				if (isSatisfied(response)) {
+					complete(response, null);
+					return;
+				}
+				long retryAfter = getRetryAfter(response);
+				if (retryAfter > delay) {
+					WsMetrics.rateLimitWait("poll", retryAfter);
+					delay = retryAfter;
+				}
+			} catch (Exception e) {
+				// retried same as unmatched response until timeout
+				logger.debug("Poll attempt " + attempts + " failed: " + e.getMessage());
+				lastValue = null;
+			}
+			interval = Math.min(maxInterval, (long) (interval * multiplier));
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) {
+				complete(null, new TimeoutException("Value at " + jsonpath + " is not " + expected + " after "
+						+ attempts + " attempts, last value [" + lastValue + "]"));
+			} else {
+				// last attempt at deadline
+				schedule(Math.min(delay, remaining));
+			}
+		}
+
+		void schedule(long delay) {
+			try {
+				next = getScheduler().schedule(this, delay, TimeUnit.MILLISECONDS);
+			} catch (RuntimeException e) {
+				complete(null, e);
+			}
+		}
+
+		private void complete(ClientResponse response, Exception e) {
+			result = response;
+			error = e;
+			done.countDown();
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			if (isDone()) {
+				return false;
+			}
+			cancelled = true;
+			ScheduledFuture<?> scheduled = next;
+			if (null != scheduled) {
+				scheduled.cancel(mayInterruptIfRunning);
+			}
+			complete(null, null);
+			return true;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public boolean isDone() {
+			return done.getCount() == 0;
+		}
+
+		@Override
+		public ClientResponse get() throws InterruptedException, ExecutionException {
+			done.await();
+			return getResult();
+		}
+
+		@Override
+		public ClientResponse get(long timeout, TimeUnit unit)
+				throws InterruptedException, ExecutionException, TimeoutException {
+			if (!done.await(timeout, unit)) {
+				throw new TimeoutException();
+			}
+			return getResult();
+		}
+
+		private ClientResponse getResult() throws ExecutionException {
+			if (cancelled) {
+				throw new CancellationException();
+			}
+			if (null != error) {
+				throw new ExecutionException(error);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,960 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.schema;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.json.JsonValues;
+
+/**
+ * Json schema compiled into graph of immutable nodes, one per (sub)schema.
+ * Supports validation keywords of draft 2020-12 and 2019-09 along with
+ * draft-07/draft-04 forms (<code>definitions</code>,
+ * <code>dependencies</code>, array form of <code>items</code>, boolean
+ * <code>exclusiveMinimum</code>/<code>exclusiveMaximum</code>). References
+ * are resolved within the schema document using json pointer,
+ * <code>$anchor</code> or <code>$id</code> of root; <code>format</code> is
+ * treated as annotation. Schema using <code>unevaluatedProperties</code>,
+ * <code>unevaluatedItems</code>, <code>$dynamicRef</code> or
+ * <code>$recursiveRef</code> is not supported and fails to compile, instead
+ * of passing documents those keywords would reject.
+ * <p>
+ * Document can be validated either as value read using {@link JsonValues} or
+ * directly from {@link JsonParser}. While streaming, members of object and
+ * elements of array are validated one by one as they are parsed; subtree is
+ * read in memory only when schema applicable to it needs whole value
+ * (<code>enum</code>, <code>const</code>, <code>anyOf</code>,
+ * <code>oneOf</code>, <code>not</code>, <code>if</code>,
+ * <code>uniqueItems</code>, <code>contains</code>,
+ * <code>dependentSchemas</code>).
+ * 
+ * @author amit.bhoraniya
+ */
+public final class CompiledSchema {
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final int MAX_MESSAGES = 100;
+	private static final String[] UNSUPPORTED_KEYWORDS = { "unevaluatedProperties", "unevaluatedItems",
+			"$dynamicRef", "$recursiveRef" };
+
+	private final Node root;
+
+	private CompiledSchema(Node root) {
+		this.root = root;
+	}
+
+	/**
+	 * @param schema
+	 *            json schema
+	 * @return compiled schema
+	 */
+	public static CompiledSchema compile(String schema) {
+		try {
+			JsonParser parser = JSON_FACTORY.createParser(schema);
+			try {
+				JsonToken token = parser.nextToken();
+				if (null == token) {
+					throw new AutomationError("Empty json schema");
+				}
+				return new CompiledSchema(new Compiler(JsonValues.read(parser, token)).compile());
+			} finally {
+				parser.close();
+			}
+		} catch (IOException e) {
+			throw new AutomationError("Unable to parse json schema", e);
+		}
+	}
+
+	/**
+	 * @param document
+	 *            value read using {@link JsonValues}
+	 * @return validation messages, empty if document is valid
+	 */
+	public List<String> validate(Object document) {
+		Validation validation = new Validation(MAX_MESSAGES);
+		validation.validate(root, document);
+		return validation.messages;
+	}
+
+	/**
+	 * Validates document while parsing.
+	 * 
+	 * @param parser
+	 *            parser positioned before document
+	 * @return validation messages, empty if document is valid
+	 * @throws IOException
+	 */
+	public List<String> validate(JsonParser parser) throws IOException {
+		JsonToken token = parser.nextToken();
+		if (null == token) {
+			throw new AutomationError("Empty json document");
+		}
+		Validation validation = new Validation(MAX_MESSAGES);
+		validation.validate(Collections.singletonList(root), parser, token);
+		return validation.messages;
+	}
+
+	static final class Node {
+		Boolean constant;
+		String ref;
+		Node refNode;
+		Set<String> types;
+		List<Object> enumValues;
+		boolean hasConst;
+		Object constValue;
+		BigDecimal minimum;
+		BigDecimal maximum;
+		BigDecimal exclusiveMinimum;
+		BigDecimal exclusiveMaximum;
+		BigDecimal multipleOf;
+		Integer minLength;
+		Integer maxLength;
+		Pattern pattern;
+		List<Node> prefixItems;
+		Node items;
+		Integer minItems;
+		Integer maxItems;
+		boolean uniqueItems;
+		Node contains;
+		Integer minContains;
+		Integer maxContains;
+		Map<String, Node> properties;
+		Map<Pattern, Node> patternProperties;
+		Node additionalProperties;
+		List<String> required;
+		Integer minProperties;
+		Integer maxProperties;
+		Node propertyNames;
+		Map<String, List<String>> dependentRequired;
+		Map<String, Node> dependentSchemas;
+		List<Node> allOf;
+		List<Node> anyOf;
+		List<Node> oneOf;
+		Node not;
+		Node ifNode;
+		Node thenNode;
+		Node elseNode;
+		/**
+		 * true if keywords of this node can be validated without reading
+		 * whole value
+		 */
+		boolean streamable;
+
+		boolean isFalse() {
+			return Boolean.FALSE.equals(constant);
+		}
+	}
+
+	/**
+	 * Compiles schema document into nodes. Nodes are keyed by json pointer so
+	 * that recursive references share node.
+	 */
+	private static final class Compiler {
+		private final Object document;
+		private final Map<String, Node> nodes = new HashMap<String, Node>();
+		private final Map<String, String> anchors = new HashMap<String, String>();
+		private final List<Node> references = new ArrayList<Node>();
+		private String rootId;
+
+		Compiler(Object document) {
+			this.document = document;
+		}
+
+		Node compile() {
+			if (document instanceof Map) {
+				Object id = ((Map<?, ?>) document).get("$id");
+				rootId = null == id ? null : stripFragment(String.valueOf(id));
+			}
+			collectAnchors(document, "");
+			Node root = compile(document, "");
+			for (int i = 0; i < references.size(); i++) {
+				Node node = references.get(i);
+				String pointer = resolve(node.ref);
+				node.refNode = compile(at(pointer, node.ref), pointer);
+			}
+			return root;
+		}
+
+		private Node compile(Object schema, String pointer) {
+			Node node = nodes.get(pointer);
+			if (null != node) {
+				return node;
+			}
+			node = new Node();
+			nodes.put(pointer, node);
+			if (schema instanceof Boolean) {
+				node.constant = (Boolean) schema;
+				return node;
+			}
+			if (!(schema instanceof Map)) {
+				throw new AutomationError("Invalid json schema at '" + pointer + "'");
+			}
+			@SuppressWarnings("unchecked")
+			Map<String, Object> map = (Map<String, Object>) schema;
+			for (String keyword : UNSUPPORTED_KEYWORDS) {
+				// true doesn't constrain anything
+				if (map.containsKey(keyword) && !Boolean.TRUE.equals(map.get(keyword))) {
+					throw new AutomationError("Unsupported keyword " + keyword + " at '" + pointer + "'");
+				}
+			}
+			Object ref = map.get("$ref");
+			if (null != ref) {
+				node.ref = String.valueOf(ref);
+				references.add(node);
+			}
+			Object type = map.get("type");
+			if (type instanceof String) {
+				node.types = Collections.singleton((String) type);
+			} else if (type instanceof List) {
+				node.types = new HashSet<String>();
+				for (Object t : (List<?>) type) {
+					node.types.add(String.valueOf(t));
+				}
+			}
+			if (map.get("enum") instanceof List) {
+				node.enumValues = new ArrayList<Object>((List<?>) map.get("enum"));
+			}
+			if (map.containsKey("const")) {
+				node.hasConst = true;
+				node.constValue = map.get("const");
+			}
+
+			node.minimum = decimal(map, "minimum");
+			node.maximum = decimal(map, "maximum");
+			if (Boolean.TRUE.equals(map.get("exclusiveMinimum"))) {
+				node.exclusiveMinimum = node.minimum;
+				node.minimum = null;
+			} else {
+				node.exclusiveMinimum = decimal(map, "exclusiveMinimum");
+			}
+			if (Boolean.TRUE.equals(map.get("exclusiveMaximum"))) {
+				node.exclusiveMaximum = node.maximum;
+				node.maximum = null;
+			} else {
+				node.exclusiveMaximum = decimal(map, "exclusiveMaximum");
+			}
+			node.multipleOf = decimal(map, "multipleOf");
+
+			node.minLength = integer(map, "minLength");
+			node.maxLength = integer(map, "maxLength");
+			if (map.get("pattern") instanceof String) {
+				node.pattern = Pattern.compile((String) map.get("pattern"));
+			}
+
+			Object items = map.get("items");
+			if (items instanceof List) {
+				node.prefixItems = compileAll((List<?>) items, pointer + "/items");
+				if (map.containsKey("additionalItems")) {
+					node.items = compile(map.get("additionalItems"), pointer + "/additionalItems");
+				}
+			} else {
+				if (map.get("prefixItems") instanceof List) {
+					node.prefixItems = compileAll((List<?>) map.get("prefixItems"), pointer + "/prefixItems");
+				}
+				if (null != items) {
+					node.items = compile(items, pointer + "/items");
+				}
+			}
+			node.minItems = integer(map, "minItems");
+			node.maxItems = integer(map, "maxItems");
+			node.uniqueItems = Boolean.TRUE.equals(map.get("uniqueItems"));
+			if (map.containsKey("contains")) {
+				node.contains = compile(map.get("contains"), pointer + "/contains");
+				node.minContains = integer(map, "minContains");
+				node.maxContains = integer(map, "maxContains");
+			}
+
+			if (map.get("properties") instanceof Map) {
+				node.properties = new HashMap<String, Node>();
+				for (Entry<?, ?> property : ((Map<?, ?>) map.get("properties")).entrySet()) {
+					String name = String.valueOf(property.getKey());
+					node.properties.put(name, compile(property.getValue(), pointer + "/properties/" + escape(name)));
+				}
+			}
+			if (map.get("patternProperties") instanceof Map) {
+				node.patternProperties = new LinkedHashMap<Pattern, Node>();
+				for (Entry<?, ?> property : ((Map<?, ?>) map.get("patternProperties")).entrySet()) {
+					String regex = String.valueOf(property.getKey());
+					node.patternProperties.put(Pattern.compile(regex),
+							compile(property.getValue(), pointer + "/patternProperties/" + escape(regex)));
+				}
+			}
+			if (map.containsKey("additionalProperties")) {
+				node.additionalProperties = compile(map.get("additionalProperties"),
+						pointer + "/additionalProperties");
+			}
+			if (map.get("required") instanceof List) {
+				node.required = new ArrayList<String>();
+				for (Object name : (List<?>) map.get("required")) {
+					node.required.add(String.valueOf(name));
+				}
+			}
+			node.minProperties = integer(map, "minProperties");
+			node.maxProperties = integer(map, "maxProperties");
+			if (map.containsKey("propertyNames")) {
+				node.propertyNames = compile(map.get("propertyNames"), pointer + "/propertyNames");
+			}
+			compileDependencies(node, map.get("dependentRequired"), pointer + "/dependentRequired");
+			compileDependencies(node, map.get("dependentSchemas"), pointer + "/dependentSchemas");
+			compileDependencies(node, map.get("dependencies"), pointer + "/dependencies");
+
+			if (map.get("allOf") instanceof List) {
+				node.allOf = compileAll((List<?>) map.get("allOf"), pointer + "/allOf");
+			}
+			if (map.get("anyOf") instanceof List) {
+				node.anyOf = compileAll((List<?>) map.get("anyOf"), pointer + "/anyOf");
+			}
+			if (map.get("oneOf") instanceof List) {
+				node.oneOf = compileAll((List<?>) map.get("oneOf"), pointer + "/oneOf");
+			}
+			if (map.containsKey("not")) {
+				node.not = compile(map.get("not"), pointer + "/not");
+			}
+			if (map.containsKey("if")) {
+				node.ifNode = compile(map.get("if"), pointer + "/if");
+				if (map.containsKey("then")) {
+					node.thenNode = compile(map.get("then"), pointer + "/then");
+				}
+				if (map.containsKey("else")) {
+					node.elseNode = compile(map.get("else"), pointer + "/else");
+				}
+			}
+			node.streamable = null == node.enumValues && !node.hasConst && null == node.anyOf && null == node.oneOf
+					&& null == node.not && null == node.ifNode && !node.uniqueItems && null == node.contains
+					&& null == node.dependentSchemas;
+			return node;
+		}
+
+		private void compileDependencies(Node node, Object dependencies, String pointer) {
+			if (!(dependencies instanceof Map)) {
+				return;
+			}
+			for (Entry<?, ?> dependency : ((Map<?, ?>) dependencies).entrySet()) {
+				String name = String.valueOf(dependency.getKey());
+				if (dependency.getValue() instanceof List) {
+					if (null == node.dependentRequired) {
+						node.dependentRequired = new HashMap<String, List<String>>();
+					}
+					List<String> names = new ArrayList<String>();
+					for (Object required : (List<?>) dependency.getValue()) {
+						names.add(String.valueOf(required));
+					}
+					node.dependentRequired.put(name, names);
+				} else {
+					if (null == node.dependentSchemas) {
+						node.dependentSchemas = new HashMap<String, Node>();
+					}
+					node.dependentSchemas.put(name, compile(dependency.getValue(), pointer + "/" + escape(name)));
+				}
+			}
+		}
+
+		private List<Node> compileAll(List<?> schemas, String pointer) {
+			List<Node> compiled = new ArrayList<Node>(schemas.size());
+			for (int i = 0; i < schemas.size(); i++) {
+				compiled.add(compile(schemas.get(i), pointer + "/" + i));
+			}
+			return compiled;
+		}
+
+		private void collectAnchors(Object schema, String pointer) {
+			if (schema instanceof Map) {
+				for (Entry<?, ?> entry : ((Map<?, ?>) schema).entrySet()) {
+					String key = String.valueOf(entry.getKey());
+					Object value = entry.getValue();
+					if ((key.equals("$anchor") || key.equals("$dynamicAnchor")) && value instanceof String) {
+						anchors.put("#" + value, pointer);
+					} else if ((key.equals("$id") || key.equals("id")) && value instanceof String
+							&& ((String) value).startsWith("#")) {
+						anchors.put((String) value, pointer);
+					} else if (!key.equals("enum") && !key.equals("const")) {
+						collectAnchors(value, pointer + "/" + escape(key));
+					}
+				}
+			} else if (schema instanceof List) {
+				List<?> list = (List<?>) schema;
+				for (int i = 0; i < list.size(); i++) {
+					collectAnchors(list.get(i), pointer + "/" + i);
+				}
+			}
+		}
+
+		/**
+		 * @return json pointer in schema document for reference
+		 */
+		private String resolve(String ref) {
+			String fragment = ref;
+			int hash = ref.indexOf('#');
+			if (hash > 0) {
+				if (null == rootId || !ref.substring(0, hash).equals(rootId)) {
+					throw new AutomationError("Unsupported json schema reference: " + ref);
+				}
+				fragment = ref.substring(hash);
+			} else if (hash < 0) {
+				if (null == rootId || !ref.equals(rootId)) {
+					throw new AutomationError("Unsupported json schema reference: " + ref);
+				}
+				fragment = "#";
+			}
+			if (fragment.equals("#") || fragment.startsWith("#/")) {
+				try {
+					return URLDecoder.decode(fragment.substring(1).replace("+", "%2B"), "UTF-8");
+				} catch (java.io.UnsupportedEncodingException e) {
+					throw new AutomationError(e);
+				}
+			}
+			String pointer = anchors.get(fragment);
+			if (null == pointer) {
+				throw new AutomationError("Unable to resolve json schema reference: " + ref);
+			}
+			return pointer;
+		}
+
+		private Object at(String pointer, String ref) {
+			Object value = document;
+			if (pointer.isEmpty()) {
+				return value;
+			}
+			for (String token : pointer.substring(1).split("/", -1)) {
+				String name = token.replace("~1", "/").replace("~0", "~");
+				if (value instanceof Map && ((Map<?, ?>) value).containsKey(name)) {
+					value = ((Map<?, ?>) value).get(name);
+				} else if (value instanceof List && name.matches("\\d+")
+						&& Integer.parseInt(name) < ((List<?>) value).size()) {
+					value = ((List<?>) value).get(Integer.parseInt(name));
+				} else {
+					throw new AutomationError("Unable to resolve json schema reference: " + ref);
+				}
+			}
+			return value;
+		}
+
+		private static BigDecimal decimal(Map<String, Object> map, String key) {
+			Object value = map.get(key);
+			return value instanceof BigDecimal ? (BigDecimal) value : null;
+		}
+
+		private static Integer integer(Map<String, Object> map, String key) {
+			Object value = map.get(key);
+			return value instanceof BigDecimal ? ((BigDecimal) value).intValue() : null;
+		}
+
+		private static String escape(String name) {
+			return name.replace("~", "~0").replace("/", "~1");
+		}
+
+		private static String stripFragment(String id) {
+			int hash = id.indexOf('#');
+			return hash >= 0 ? id.substring(0, hash) : id;
+		}
+	}
+
+	/**
+	 * State of single validation: current path and collected messages.
+	 */
+	private static final class Validation {
+		private final List<Object> path = new ArrayList<Object>();
+		private List<String> messages = new ArrayList<String>();
+		private int limit;
+
+		Validation(int limit) {
+			this.limit = limit;
+		}
+
+		void validate(Node node, Object value) {
+			if (null != node.constant) {
+				if (!node.constant) {
+					add("value is not allowed");
+				}
+				return;
+			}
+			if (null != node.refNode) {
+				validate(node.refNode, value);
+			}
+			if (null != node.types && !matchesType(node.types, value)) {
+				add("expected type " + join(node.types) + " but was " + typeOf(value));
+			}
+			if (null != node.enumValues && !containsValue(node.enumValues, value)) {
+				add("value " + describe(value) + " is not one of " + describe(node.enumValues));
+			}
+			if (node.hasConst && !valueEquals(node.constValue, value)) {
+				add("value " + describe(value) + " is not " + describe(node.constValue));
+			}
+			if (value instanceof BigDecimal) {
+				validateNumber(node, (BigDecimal) value);
+			} else if (value instanceof String) {
+				validateString(node, (String) value);
+			} else if (value instanceof List) {
+				validateArray(node, (List<?>) value);
+			} else if (value instanceof Map) {
+				validateObject(node, (Map<?, ?>) value);
+			}
+			if (null != node.allOf) {
+				for (Node schema : node.allOf) {
+					validate(schema, value);
+				}
+			}
+			if (null != node.anyOf) {
+				boolean matched = false;
+				for (int i = 0; i < node.anyOf.size() && !matched; i++) {
+					matched = matches(node.anyOf.get(i), value);
+				}
+				if (!matched) {
+					add("value does not match any schema in anyOf");
+				}
+			}
+			if (null != node.oneOf) {
+				int matched = 0;
+				for (Node schema : node.oneOf) {
+					if (matches(schema, value)) {
+						matched++;
+					}
+				}
+				if (matched != 1) {
+					add("value matches " + matched + " schemas in oneOf, expected exactly one");
+				}
+			}
+			if (null != node.not && matches(node.not, value)) {
+				add("value must not match schema in not");
+			}
+			if (null != node.ifNode) {
+				if (matches(node.ifNode, value)) {
+					if (null != node.thenNode) {
+						validate(node.thenNode, value);
+					}
+				} else if (null != node.elseNode) {
+					validate(node.elseNode, value);
+				}
+			}
+		}
+
+		private void validateNumber(Node node, BigDecimal value) {
+			if (null != node.minimum && value.compareTo(node.minimum) < 0) {
+				add("value " + value.toPlainString() + " must be >= " + node.minimum.toPlainString());
+			}
+			if (null != node.exclusiveMinimum && value.compareTo(node.exclusiveMinimum) <= 0) {
+				add("value " + value.toPlainString() + " must be > " + node.exclusiveMinimum.toPlainString());
+			}
+			if (null != node.maximum && value.compareTo(node.maximum) > 0) {
+				add("value " + value.toPlainString() + " must be <= " + node.maximum.toPlainString());
+			}
+			if (null != node.exclusiveMaximum && value.compareTo(node.exclusiveMaximum) >= 0) {
+				add("value " + value.toPlainString() + " must be < " + node.exclusiveMaximum.toPlainString());
+			}
+			if (null != node.multipleOf && node.multipleOf.signum() > 0
+					&& value.remainder(node.multipleOf).signum() != 0) {
+				add("value " + value.toPlainString() + " must be multiple of " + node.multipleOf.toPlainString());
+			}
+		}
+
+		private void validateString(Node node, String value) {
+			if (null != node.minLength || null != node.maxLength) {
+				int length = value.codePointCount(0, value.length());
+				if (null != node.minLength && length < node.minLength) {
+					add("length " + length + " must be >= " + node.minLength);
+				}
+				if (null != node.maxLength && length > node.maxLength) {
+					add("length " + length + " must be <= " + node.maxLength);
+				}
+			}
+			if (null != node.pattern && !node.pattern.matcher(value).find()) {
+				add("value " + describe(value) + " does not match pattern '" + node.pattern.pattern() + "'");
+			}
+		}
+
+		private void validateArray(Node node, List<?> value) {
+			validateSize(node.minItems, node.maxItems, value.size(), "items");
+			for (int i = 0; i < value.size(); i++) {
+				Node schema = itemSchema(node, i);
+				if (null != schema) {
+					path.add(i);
+					validate(schema, value.get(i));
+					path.remove(path.size() - 1);
+				}
+			}
+			if (node.uniqueItems) {
+				Set<Object> seen = new HashSet<Object>();
+				for (Object item : value) {
+					if (!seen.add(canonical(item))) {
+						add("array items must be unique, found duplicate " + describe(item));
+						break;
+					}
+				}
+			}
+			if (null != node.contains) {
+				int matched = 0;
+				for (Object item : value) {
+					if (matches(node.contains, item)) {
+						matched++;
+					}
+				}
+				int min = null == node.minContains ? 1 : node.minContains;
+				if (matched < min) {
+					add("array must contain at least " + min + " matching items but has " + matched);
+				}
+				if (null != node.maxContains && matched > node.maxContains) {
+					add("array must contain at most " + node.maxContains + " matching items but has " + matched);
+				}
+			}
+		}
+
+		private void validateObject(Node node, Map<?, ?> value) {
+			validateSize(node.minProperties, node.maxProperties, value.size(), "properties");
+			validateRequired(node, value.keySet());
+			for (Entry<?, ?> member : value.entrySet()) {
+				String name = String.valueOf(member.getKey());
+				path.add(name);
+				if (null != node.propertyNames) {
+					validate(node.propertyNames, name);
+				}
+				List<Node> schemas = memberSchemas(node, name, null);
+				if (null != schemas) {
+					for (Node schema : schemas) {
+						validate(schema, member.getValue());
+					}
+				}
+				path.remove(path.size() - 1);
+			}
+			if (null != node.dependentSchemas) {
+				for (Entry<String, Node> dependency : node.dependentSchemas.entrySet()) {
+					if (value.containsKey(dependency.getKey())) {
+						validate(dependency.getValue(), value);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Validates value while parsing, all of the schemas apply to value.
+		 */
+		void validate(List<Node> schemas, JsonParser parser, JsonToken token) throws IOException {
+			List<Node> applicable = new ArrayList<Node>();
+			boolean streamable = token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY;
+			for (Node schema : schemas) {
+				streamable = expand(schema, applicable) && streamable;
+			}
+			if (!streamable) {
+				Object value = JsonValues.read(parser, token);
+				for (Node schema : schemas) {
+					validate(schema, value);
+				}
+				return;
+			}
+			String type = token == JsonToken.START_OBJECT ? "object" : "array";
+			for (Node schema : applicable) {
+				if (null != schema.types && !schema.types.contains(type)) {
+					add("expected type " + join(schema.types) + " but was " + type);
+				}
+			}
+			if (token == JsonToken.START_OBJECT) {
+				validateObject(applicable, parser);
+			} else {
+				validateArray(applicable, parser);
+			}
+		}
+
+		private void validateObject(List<Node> schemas, JsonParser parser) throws IOException {
+			Set<String> names = new HashSet<String>();
+			List<Node> memberSchemas = new ArrayList<Node>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				names.add(name);
+				JsonToken token = parser.nextToken();
+				path.add(name);
+				memberSchemas.clear();
+				for (Node schema : schemas) {
+					if (null != schema.propertyNames) {
+						validate(schema.propertyNames, name);
+					}
+					memberSchemas(schema, name, memberSchemas);
+				}
+				if (memberSchemas.isEmpty()) {
+					parser.skipChildren();
+				} else {
+					validate(new ArrayList<Node>(memberSchemas), parser, token);
+				}
+				path.remove(path.size() - 1);
+			}
+			for (Node schema : schemas) {
+				validateSize(schema.minProperties, schema.maxProperties, names.size(), "properties");
+				validateRequired(schema, names);
+			}
+		}
+
+		private void validateArray(List<Node> schemas, JsonParser parser) throws IOException {
+			int index = 0;
+			List<Node> itemSchemas = new ArrayList<Node>();
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				itemSchemas.clear();
+				for (Node schema : schemas) {
+					Node itemSchema = itemSchema(schema, index);
+					if (null != itemSchema) {
+						itemSchemas.add(itemSchema);
+					}
+				}
+				path.add(index++);
+				if (itemSchemas.isEmpty()) {
+					parser.skipChildren();
+				} else {
+					validate(new ArrayList<Node>(itemSchemas), parser, token);
+				}
+				path.remove(path.size() - 1);
+			}
+			for (Node schema : schemas) {
+				validateSize(schema.minItems, schema.maxItems, index, "items");
+			}
+		}
+
+		/**
+		 * Adds schema along with referenced and allOf schemas to applicable.
+		 * 
+		 * @return false if value needs to be read to validate any of schema
+		 */
+		private boolean expand(Node schema, List<Node> applicable) {
+			if (Boolean.TRUE.equals(schema.constant)) {
+				return true;
+			}
+			if (schema.isFalse() || !schema.streamable) {
+				return false;
+			}
+			applicable.add(schema);
+			boolean streamable = null == schema.refNode || expand(schema.refNode, applicable);
+			if (null != schema.allOf) {
+				for (Node allOf : schema.allOf) {
+					streamable = expand(allOf, applicable) && streamable;
+				}
+			}
+			return streamable;
+		}
+
+		/**
+		 * @return schemas applicable to member, null if none. Reports
+		 *         additional property not allowed.
+		 */
+		private List<Node> memberSchemas(Node node, String name, List<Node> schemas) {
+			boolean matched = false;
+			if (null != node.properties) {
+				Node property = node.properties.get(name);
+				if (null != property) {
+					matched = true;
+					schemas = add(schemas, property);
+				}
+			}
+			if (null != node.patternProperties) {
+				for (Entry<Pattern, Node> patternProperty : node.patternProperties.entrySet()) {
+					if (patternProperty.getKey().matcher(name).find()) {
+						matched = true;
+						schemas = add(schemas, patternProperty.getValue());
+					}
+				}
+			}
+			if (!matched && null != node.additionalProperties) {
+				if (node.additionalProperties.isFalse()) {
+					add("additional property is not allowed");
+				} else {
+					schemas = add(schemas, node.additionalProperties);
+				}
+			}
+			return schemas;
+		}
+
+		private static List<Node> add(List<Node> schemas, Node schema) {
+			List<Node> list = null == schemas ? new ArrayList<Node>(2) : schemas;
+			list.add(schema);
+			return list;
+		}
+
+		private static Node itemSchema(Node node, int index) {
+			if (null != node.prefixItems && index < node.prefixItems.size()) {
+				return node.prefixItems.get(index);
+			}
+			return node.items;
+		}
+
+		private void validateRequired(Node node, Set<?> names) {
+			if (null != node.required) {
+				for (String name : node.required) {
+					if (!names.contains(name)) {
+						add("missing required property '" + name + "'");
+					}
+				}
+			}
+			if (null != node.dependentRequired) {
+				for (Entry<String, List<String>> dependency : node.dependentRequired.entrySet()) {
+					if (names.contains(dependency.getKey())) {
+						for (String name : dependency.getValue()) {
+							if (!names.contains(name)) {
+								add("property '" + dependency.getKey() + "' requires property '" + name + "'");
+							}
+						}
+					}
+				}
+			}
+		}
+
+		private void validateSize(Integer min, Integer max, int size, String what) {
+			if (null != min && size < min) {
+				add("must have at least " + min + " " + what + " but has " + size);
+			}
+			if (null != max && size > max) {
+				add("must have at most " + max + " " + what + " but has " + size);
+			}
+		}
+
+		private boolean matches(Node node, Object value) {
+			List<String> recorded = messages;
+			int recordedLimit = limit;
+			messages = new ArrayList<String>(1);
+			limit = 1;
+			try {
+				validate(node, value);
+				return messages.isEmpty();
+			} finally {
+				messages = recorded;
+				limit = recordedLimit;
+			}
+		}
+
+		private void add(String message) {
+			if (messages.size() < limit) {
+				messages.add(JsonValues.formatPath(path) + ": " + message);
+			}
+		}
+	}
+
+	private static boolean matchesType(Set<String> types, Object value) {
+		String type = typeOf(value);
+		return types.contains(type) || (type.equals("integer") && types.contains("number"));
+	}
+
+	private static String typeOf(Object value) {
+		if (null == value) {
+			return "null";
+		}
+		if (value instanceof Boolean) {
+			return "boolean";
+		}
+		if (value instanceof String) {
+			return "string";
+		}
+		if (value instanceof BigDecimal) {
+			BigDecimal number = (BigDecimal) value;
+			return number.signum() == 0 || number.scale() <= 0 || number.stripTrailingZeros().scale() <= 0
+					? "integer" : "number";
+		}
+		return value instanceof Map ? "object" : "array";
+	}
+
+	private static boolean containsValue(List<Object> values, Object value) {
+		for (Object candidate : values) {
+			if (valueEquals(candidate, value)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean valueEquals(Object expected, Object actual) {
+		if (expected instanceof BigDecimal && actual instanceof BigDecimal) {
+			return ((BigDecimal) expected).compareTo((BigDecimal) actual) == 0;
+		}
+		return null == expected ? null == actual : canonical(expected).equals(canonical(actual));
+	}
+
+	/**
+	 * @return value with numbers normalized so that equal json values are
+	 *         equal java objects
+	 */
+	private static Object canonical(Object value) {
+		if (value instanceof BigDecimal) {
+			BigDecimal number = (BigDecimal) value;
+			return number.signum() == 0 ? BigDecimal.ZERO : number.stripTrailingZeros();
+		}
+		if (value instanceof Map) {
+			Map<Object, Object> map = new HashMap<Object, Object>();
+			for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				map.put(entry.getKey(), canonical(entry.getValue()));
+			}
+			return map;
+		}
+		if (value instanceof List) {
+			List<Object> list = new ArrayList<Object>();
+			for (Object item : (List<?>) value) {
+				list.add(canonical(item));
+			}
+			return list;
+		}
+		return value;
+	}
+
+	private static String join(Set<String> types) {
+		StringBuilder sb = new StringBuilder();
+		for (String type : types) {
+			sb.append(sb.length() > 0 ? "|" : "").append(type);
+		}
+		return sb.toString();
+	}
+
+	private static String describe(Object value) {
+		if (value instanceof String) {
+			String s = (String) value;
+			return "\"" + (s.length() > 60 ? s.substring(0, 60) + "..." : s) + "\"";
+		}
+		if (value instanceof BigDecimal) {
+			return ((BigDecimal) value).toPlainString();
+		}
+		if (value instanceof Map) {
+			return "object";
+		}
+		if (value instanceof List) {
+			StringBuilder sb = new StringBuilder("[");
+			for (Object item : (List<?>) value) {
+				sb.append(sb.length() > 1 ? ", " : "").append(describe(item));
+			}
+			return sb.append(']').toString();
+		}
+		return String.valueOf(value);
+	}
+}
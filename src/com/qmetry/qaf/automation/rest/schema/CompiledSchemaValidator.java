@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.schema;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.json.JsonValues;
+import com.qmetry.qaf.automation.rest.metrics.CacheStats;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
+
+/**
+ * {@link SchemaValidator} for json schema draft 2020-12 and 2019-09 (draft-07
+ * and draft-04 keywords are also understood) using {@link CompiledSchema}.
+ * Compiled schema is cached and shared between threads. Document read from
+ * stream is validated while parsing, see
+ * {@link CompiledSchema#validate(JsonParser)}.
+ * 
+ * @author amit.bhoraniya
+ */
+public class CompiledSchemaValidator implements SchemaValidator {
+	private static final int MAX_CACHE_SIZE = 256;
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final CacheStats STATS = WsMetrics.cache("json-schema");
+
+	private final ConcurrentMap<String, CompiledSchema> schemas = new ConcurrentHashMap<String, CompiledSchema>();
+
+	@Override
+	public List<String> validate(String schema, String document) {
+		try {
+			JsonParser parser = JSON_FACTORY.createParser(document);
+			try {
+				JsonToken token = parser.nextToken();
+				if (null == token) {
+					throw new AutomationError("Empty json document");
+				}
+				return getSchema(schema).validate(JsonValues.read(parser, token));
+			} finally {
+				parser.close();
+			}
+		} catch (IOException e) {
+			throw new AutomationError("Unable to parse json document", e);
+		}
+	}
+
+	@Override
+	public List<String> validate(String schema, Reader document) {
+		try {
+			JsonParser parser = JSON_FACTORY.createParser(document);
+			try {
+				return getSchema(schema).validate(parser);
+			} finally {
+				parser.close();
+			}
+		} catch (IOException e) {
+			throw new AutomationError("Unable to parse json document", e);
+		}
+	}
+
+	/**
+	 * @param schema
+	 *            json schema
+	 * @return compiled schema from cache
+	 */
+	public CompiledSchema getSchema(String schema) {
+		CompiledSchema compiled = schemas.get(schema);
+		STATS.record(null != compiled);
+		if (null == compiled) {
+			compiled = CompiledSchema.compile(schema);
+			if (schemas.size() < MAX_CACHE_SIZE) {
+				schemas.putIfAbsent(schema, compiled);
+			}
+		}
+		return compiled;
+	}
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.schema;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.main.JsonSchema;
+import com.github.fge.jsonschema.main.JsonSchemaFactory;
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.metrics.CacheStats;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
+
+/**
+ * {@link SchemaValidator} using fge json-schema-validator (draft-04). Document
+ * is always loaded as {@link JsonNode}, including when validated from
+ * stream.
+ * 
+ * @author amit.bhoraniya
+ */
+public class FgeSchemaValidator implements SchemaValidator {
+	private static final int MAX_CACHE_SIZE = 256;
+	private static final JsonSchemaFactory FACTORY = JsonSchemaFactory.byDefault();
+	private static final CacheStats STATS = WsMetrics.cache("json-schema");
+
+	private final ConcurrentMap<String, JsonSchema> schemas = new ConcurrentHashMap<String, JsonSchema>();
+
+	@Override
+	public List<String> validate(String schema, String document) {
+		try {
+			return validate(getSchema(schema), JsonLoader.fromString(document));
+		} catch (IOException e) {
+			throw new AutomationError("Unable to parse json document", e);
+		}
+	}
+
+	@Override
+	public List<String> validate(String schema, Reader document) {
+		try {
+			return validate(getSchema(schema), JsonLoader.fromReader(document));
+		} catch (IOException e) {
+			throw new AutomationError("Unable to parse json document", e);
+		}
+	}
+
+	private List<String> validate(JsonSchema schema, JsonNode document) {
+		List<String> messages = new ArrayList<String>();
+		try {
+			ProcessingReport report = schema.validate(document);
+			if (!report.isSuccess()) {
+				for (ProcessingMessage message : report) {
+					String pointer = message.asJson().path("instance").path("pointer").asText();
+					messages.add(pointer.isEmpty() ? message.getMessage() : pointer + ": " + message.getMessage());
+				}
+			}
+		} catch (ProcessingException e) {
+			throw new AutomationError("Unable to validate json schema", e);
+		}
+		return messages;
+	}
+
+	/**
+	 * @param schema
+	 *            json schema
+	 * @return syntax errors of schema, empty if schema is valid
+	 */
+	public List<String> checkSchema(String schema) {
+		List<String> messages = new ArrayList<String>();
+		try {
+			ProcessingReport report = FACTORY.getSyntaxValidator().validateSchema(JsonLoader.fromString(schema));
+			for (ProcessingMessage message : report) {
+				String pointer = message.asJson().path("schema").path("pointer").asText();
+				messages.add(pointer.isEmpty() ? message.getMessage() : pointer + ": " + message.getMessage());
+			}
+		} catch (IOException e) {
+			throw new AutomationError("Unable to parse json schema", e);
+		}
+		return messages;
+	}
+
+	/**
+	 * @param schema
+	 *            json schema
+	 * @return compiled schema from cache
+	 */
+	public JsonSchema getSchema(String schema) {
+		JsonSchema jsonSchema = schemas.get(schema);
+		STATS.record(null != jsonSchema);
+		if (null == jsonSchema) {
+			try {
+				jsonSchema = FACTORY.getJsonSchema(JsonLoader.fromString(schema));
+			} catch (IOException e) {
+				throw new AutomationError("Unable to parse json schema", e);
+			} catch (ProcessingException e) {
+				throw new AutomationError("Invalid json schema", e);
+			}
+			if (schemas.size() < MAX_CACHE_SIZE) {
+				schemas.putIfAbsent(schema, jsonSchema);
+			}
+		}
+		return jsonSchema;
+	}
+}
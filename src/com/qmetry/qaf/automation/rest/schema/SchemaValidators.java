@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.schema;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+
+/**
+ * Provides {@link SchemaValidator} configured using
+ * {@link #VALIDATOR ws.schema.validator} property. Value can be
+ * <code>fge</code> (default, draft-04 using fge json-schema-validator),
+ * <code>draft2020</code> ({@link CompiledSchemaValidator}, draft 2020-12 and
+ * 2019-09) or fully qualified name of class implementing
+ * {@link SchemaValidator}.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class SchemaValidators {
+	public static final String VALIDATOR = "ws.schema.validator";
+	/**
+	 * When set to true response body is validated as stream, see
+	 * {@link SchemaValidator#validate(String, java.io.Reader)}.
+	 */
+	public static final String STREAMING = "ws.schema.validation.streaming";
+
+	public static final String FGE = "fge";
+	public static final String DRAFT_2020 = "draft2020";
+
+	private static final ConcurrentMap<String, SchemaValidator> VALIDATORS = new ConcurrentHashMap<String, SchemaValidator>();
+
+	private SchemaValidators() {
+	}
+
+	/**
+	 * @return validator configured using {@link #VALIDATOR} property
+	 */
+	public static SchemaValidator get() {
+		return get(getBundle().getString(VALIDATOR, FGE));
+	}
+
+	/**
+	 * @param name
+	 *            <code>fge</code>, <code>draft2020</code> or class name
+	 * @return validator
+	 */
+	public static SchemaValidator get(String name) {
+		SchemaValidator validator = VALIDATORS.get(name);
+		if (null == validator) {
+			VALIDATORS.putIfAbsent(name, create(name));
+			validator = VALIDATORS.get(name);
+		}
+		return validator;
+	}
+
+	/**
+	 * Compiles json schema using configured validator, so that compiled
+	 * schema is available from cache of validator. Schema for custom
+	 * validator is checked by validating empty object.
+	 * 
+	 * @param schema
+	 *            json schema
+	 * @throws AutomationError
+	 *             if schema is not valid
+	 */
+	public static void precompile(String schema) {
+		SchemaValidator validator = get();
+		if (validator instanceof FgeSchemaValidator) {
+			List<String> messages = ((FgeSchemaValidator) validator).checkSchema(schema);
+			if (!messages.isEmpty()) {
+				throw new AutomationError("Invalid json schema: " + messages);
+			}
+			((FgeSchemaValidator) validator).getSchema(schema);
+		} else if (validator instanceof CompiledSchemaValidator) {
+			((CompiledSchemaValidator) validator).getSchema(schema);
+		} else {
+			validator.validate(schema, "{}");
+		}
+	}
+
+	private static SchemaValidator create(String name) {
+		if (name.equalsIgnoreCase(FGE)) {
+			return new FgeSchemaValidator();
+		}
+		if (name.equalsIgnoreCase(DRAFT_2020)) {
+			return new CompiledSchemaValidator();
+		}
+		try {
+			return (SchemaValidator) Class.forName(name).newInstance();
+		} catch (Exception e) {
+			throw new AutomationError("Unable to create schema validator using " + name, e);
+		}
+	}
+}
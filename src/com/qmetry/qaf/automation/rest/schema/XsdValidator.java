@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.schema;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.transform.Source;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.metrics.CacheStats;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
+
+/**
+ * Validates xml documents, for example SOAP responses, against XML schema.
+ * Compiled {@link Schema} is thread safe, it is cached and shared between
+ * threads. Document is validated over {@link StAXSource} so it is not
+ * loaded as DOM. For SOAP envelope each element in <code>Body</code> is
+ * validated unless {@link #SOAP_BODY ws.xsd.soap.body} is set to false.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class XsdValidator {
+	/**
+	 * Validate content of <code>Body</code> instead of SOAP envelope, default
+	 * true.
+	 */
+	public static final String SOAP_BODY = "ws.xsd.soap.body";
+
+	private static final String SOAP_11_NS = "http://schemas.xmlsoap.org/soap/envelope/";
+	private static final String SOAP_12_NS = "http://www.w3.org/2003/05/soap-envelope";
+	private static final int MAX_CACHE_SIZE = 256;
+	private static final ConcurrentMap<String, Schema> SCHEMAS = new ConcurrentHashMap<String, Schema>();
+	private static final CacheStats STATS = WsMetrics.cache("xsd");
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+	static {
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	private XsdValidator() {
+	}
+
+	/**
+	 * @param schema
+	 *            xsd file, url or xsd content
+	 * @return true if given schema is XML schema
+	 */
+	public static boolean isXsd(String schema) {
+		String s = schema.trim();
+		return s.startsWith("<") || s.toLowerCase(Locale.ROOT).endsWith(".xsd");
+	}
+
+	/**
+	 * @param schema
+	 *            xsd file, url or xsd content
+	 * @param document
+	 *            xml document
+	 * @return validation messages, empty if document is valid
+	 */
+	public static List<String> validate(String schema, Reader document) {
+		final List<String> messages = new ArrayList<String>();
+		Validator validator = getSchema(schema).newValidator();
+		validator.setErrorHandler(new ErrorHandler() {
+			@Override
+			public void warning(SAXParseException exception) {
+			}
+
+			@Override
+			public void error(SAXParseException exception) {
+				messages.add(format(exception));
+			}
+
+			@Override
+			public void fatalError(SAXParseException exception) throws SAXException {
+				throw exception;
+			}
+		});
+		XMLStreamReader reader = null;
+		try {
+			reader = INPUT_FACTORY.createXMLStreamReader(document);
+			reader.nextTag();
+			if (isEnvelope(reader) && getBundle().getBoolean(SOAP_BODY, true)) {
+				// declarations of Envelope and Body are in scope of Body elements
+				Map<String, String> namespaces = new LinkedHashMap<String, String>();
+				addNamespaces(reader, namespaces);
+				while (reader.nextTag() == XMLStreamConstants.START_ELEMENT && !reader.getLocalName().equals("Body")) {
+					skipElement(reader);
+				}
+				if (!reader.isStartElement()) {
+					messages.add("SOAP envelope has no Body");
+				} else {
+					addNamespaces(reader, namespaces);
+					while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+						validator.validate(new StAXSource(new ElementReader(reader, namespaces)));
+					}
+				}
+			} else {
+				validator.validate(new StAXSource(reader));
+			}
+		} catch (SAXParseException e) {
+			messages.add(format(e));
+		} catch (SAXException e) {
+			messages.add(rootMessage(e));
+		} catch (XMLStreamException e) {
+			messages.add(rootMessage(e));
+		} catch (IOException e) {
+			throw new AutomationError("Unable to read xml document", e);
+		} finally {
+			if (null != reader) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					// ignore
+				}
+			}
+		}
+		return messages;
+	}
+
+	/**
+	 * @param schema
+	 *            xsd file, url or xsd content
+	 * @return compiled schema from cache
+	 */
+	public static Schema getSchema(String schema) {
+		Schema compiled = SCHEMAS.get(schema);
+		STATS.record(null != compiled);
+		if (null == compiled) {
+			compiled = compile(schema);
+			if (SCHEMAS.size() < MAX_CACHE_SIZE) {
+				SCHEMAS.putIfAbsent(schema, compiled);
+			}
+		}
+		return compiled;
+	}
+
+	private static Schema compile(String schema) {
+		String s = schema.trim();
+		Source source;
+		if (s.startsWith("<")) {
+			source = new StreamSource(new StringReader(s));
+		} else if (new File(s).exists()) {
+			// system id allows relative include/import
+			source = new StreamSource(new File(s));
+		} else {
+			source = new StreamSource(s);
+		}
+		try {
+			SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+			return factory.newSchema(source);
+		} catch (SAXException e) {
+			throw new AutomationError("Unable to compile xml schema " + (s.startsWith("<") ? "" : s), e);
+		}
+	}
+
+	private static boolean isEnvelope(XMLStreamReader reader) {
+		return reader.getLocalName().equals("Envelope")
+				&& (SOAP_11_NS.equals(reader.getNamespaceURI()) || SOAP_12_NS.equals(reader.getNamespaceURI()));
+	}
+
+	private static void addNamespaces(XMLStreamReader reader, Map<String, String> namespaces) {
+		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			namespaces.put(null == prefix ? "" : prefix, reader.getNamespaceURI(i));
+		}
+	}
+
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private static String rootMessage(Exception e) {
+		Throwable cause = e;
+		while (null != cause.getCause() && cause.getCause() != cause) {
+			cause = cause.getCause();
+		}
+		return cause.getMessage();
+	}
+
+	private static String format(SAXParseException e) {
+		return "line " + e.getLineNumber() + ", column " + e.getColumnNumber() + ": " + e.getMessage();
+	}
+
+	/**
+	 * Reader over single element, it reports end of document after end of
+	 * element so that underlying reader remains positioned at end of element.
+	 * Namespace declarations of ancestors, not redeclared by element, are
+	 * reported as declarations of element so that prefixes used in values,
+	 * for example <code>xsi:type</code>, can be resolved.
+	 */
+	private static final class ElementReader extends StreamReaderDelegate {
+		private final List<String> inheritedPrefixes = new ArrayList<String>();
+		private final List<String> inheritedUris = new ArrayList<String>();
+		private int depth = 1;
+		private boolean ended;
+
+		ElementReader(XMLStreamReader reader, Map<String, String> namespaces) {
+			super(reader);
+			Map<String, String> inherited = new LinkedHashMap<String, String>(namespaces);
+			for (int i = 0; i < reader.getNamespaceCount(); i++) {
+				String prefix = reader.getNamespacePrefix(i);
+				inherited.remove(null == prefix ? "" : prefix);
+			}
+			for (Entry<String, String> namespace : inherited.entrySet()) {
+				inheritedPrefixes.add(namespace.getKey().isEmpty() ? null : namespace.getKey());
+				inheritedUris.add(namespace.getValue());
+			}
+		}
+
+		@Override
+		public int next() throws XMLStreamException {
+			inheritedPrefixes.clear();
+			inheritedUris.clear();
+			if (depth == 0) {
+				ended = true;
+				return XMLStreamConstants.END_DOCUMENT;
+			}
+			int event = super.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+			return event;
+		}
+
+		@Override
+		public boolean hasNext() throws XMLStreamException {
+			return !ended;
+		}
+
+		@Override
+		public int getEventType() {
+			return ended ? XMLStreamConstants.END_DOCUMENT : super.getEventType();
+		}
+
+		@Override
+		public int getNamespaceCount() {
+			return super.getNamespaceCount() + inheritedPrefixes.size();
+		}
+
+		@Override
+		public String getNamespacePrefix(int index) {
+			int count = super.getNamespaceCount();
+			return index < count ? super.getNamespacePrefix(index) : inheritedPrefixes.get(index - count);
+		}
+
+		@Override
+		public String getNamespaceURI(int index) {
+			int count = super.getNamespaceCount();
+			return index < count ? super.getNamespaceURI(index) : inheritedUris.get(index - count);
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.soap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.data.RecordIterator;
+import com.qmetry.qaf.automation.util.StringUtil;
+
+/**
+ * Writes SOAP envelope directly to request entity stream using
+ * {@link XMLStreamWriter}, configured using <code>soap</code> attribute of
+ * request call:
+ * 
+ * <pre>
+ * create.users={'endPoint':'/UserService','method':'POST','soap':{'version':'1.1','action':'urn:CreateUsers','namespaces':{'u':'urn:users'},'header':'&lt;u:Token&gt;${token}&lt;/u:Token&gt;','body':'&lt;u:CreateUsers&gt;&lt;?records?&gt;&lt;/u:CreateUsers&gt;','repeat':'&lt;u:User id="${id}"&gt;&lt;u:Name&gt;${name}&lt;/u:Name&gt;&lt;/u:User&gt;','data':'resources/users.csv'}}
+ * </pre>
+ * <ul>
+ * <li><code>version</code> - <code>1.1</code> (default) or <code>1.2</code>
+ * <li><code>action</code> - SOAP action
+ * <li><code>namespaces</code> - prefix to namespace uri, declared on
+ * envelope
+ * <li><code>header</code>, <code>body</code> - xml fragment templates for
+ * header and body, can be <code>file:</code>
+ * <li><code>repeat</code> - xml fragment template written for each record at
+ * <code>&lt;?records?&gt;</code> in body or at the end of body
+ * <li><code>data</code> - csv, json or ndjson file with records for
+ * <code>repeat</code>, see {@link RecordIterator}
+ * </ul>
+ * Records are read one by one while writing, so envelope is never kept in
+ * memory.
+ * 
+ * @author amit.bhoraniya
+ */
+public class SoapEnvelopeWriter implements StreamingOutput {
+	public static final String VERSION = "version";
+	public static final String ACTION = "action";
+	public static final String NAMESPACES = "namespaces";
+	public static final String HEADER = "header";
+	public static final String BODY = "body";
+	public static final String REPEAT = "repeat";
+	public static final String DATA = "data";
+
+	public static final String SOAP_11_NS = "http://schemas.xmlsoap.org/soap/envelope/";
+	public static final String SOAP_12_NS = "http://www.w3.org/2003/05/soap-envelope";
+	private static final String SOAP_PREFIX = "soap";
+
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	private final boolean soap12;
+	private final String action;
+	private final Map<String, String> namespaces = new LinkedHashMap<String, String>();
+	private final XmlTemplate header;
+	private final XmlTemplate body;
+	private final XmlTemplate repeat;
+	private final String data;
+	private Iterator<Map<String, Object>> records;
+	private Map<String, Object> values;
+
+	/**
+	 * @param settings
+	 *            <code>soap</code> attribute of request call
+	 */
+	public SoapEnvelopeWriter(Map<String, Object> settings) {
+		soap12 = "1.2".equals(String.valueOf(settings.get(VERSION)));
+		action = settings.containsKey(ACTION) ? String.valueOf(settings.get(ACTION)) : null;
+		if (settings.get(NAMESPACES) instanceof Map) {
+			for (Entry<?, ?> namespace : ((Map<?, ?>) settings.get(NAMESPACES)).entrySet()) {
+				namespaces.put(String.valueOf(namespace.getKey()), String.valueOf(namespace.getValue()));
+			}
+		}
+		header = template(settings, HEADER);
+		body = template(settings, BODY);
+		repeat = template(settings, REPEAT);
+		data = settings.containsKey(DATA) ? String.valueOf(settings.get(DATA)) : null;
+	}
+
+	/**
+	 * Provide records for repeated section instead of <code>data</code> file.
+	 * 
+	 * @param records
+	 * @return this
+	 */
+	public SoapEnvelopeWriter withRecords(Iterator<Map<String, Object>> records) {
+		this.records = records;
+		return this;
+	}
+
+	/**
+	 * Provide values for placeholders, used when record doesn't have field
+	 * with same name.
+	 * 
+	 * @param values
+	 * @return this
+	 */
+	public SoapEnvelopeWriter withValues(Map<String, Object> values) {
+		this.values = values;
+		return this;
+	}
+
+	/**
+	 * @return true for SOAP 1.2
+	 */
+	public boolean isSoap12() {
+		return soap12;
+	}
+
+	/**
+	 * @return SOAP action, can be null
+	 */
+	public String getAction() {
+		return action;
+	}
+
+	/**
+	 * @return content type for SOAP version
+	 */
+	public String getContentType() {
+		if (soap12) {
+			return "application/soap+xml; charset=UTF-8"
+					+ (StringUtil.isNotBlank(action) ? "; action=\"" + action + "\"" : "");
+		}
+		return "text/xml; charset=UTF-8";
+	}
+
+	@Override
+	public void write(OutputStream output) throws IOException {
+		Iterator<Map<String, Object>> iterator = records;
+		if (null == iterator && null != repeat && StringUtil.isNotBlank(data)) {
+			iterator = RecordIterator.open(data);
+		}
+		try {
+			XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(output, "UTF-8");
+			String ns = soap12 ? SOAP_12_NS : SOAP_11_NS;
+			writer.writeStartDocument("UTF-8", "1.0");
+			writer.writeStartElement(SOAP_PREFIX, "Envelope", ns);
+			writer.writeNamespace(SOAP_PREFIX, ns);
+			for (Entry<String, String> namespace : namespaces.entrySet()) {
+				writer.writeNamespace(namespace.getKey(), namespace.getValue());
+			}
+			if (null != header) {
+				writer.writeStartElement(SOAP_PREFIX, "Header", ns);
+				header.write(writer, null, values, null);
+				writer.writeEndElement();
+			}
+			writer.writeStartElement(SOAP_PREFIX, "Body", ns);
+			XmlTemplate.RecordsWriter recordsWriter = null == repeat || null == iterator ? null
+					: new RepeatWriter(iterator);
+			if (null != body) {
+				body.write(writer, null, values, recordsWriter);
+			}
+			if (null != recordsWriter && (null == body || !body.hasRecordsMarker())) {
+				recordsWriter.write(writer);
+			}
+			writer.writeEndElement();
+			writer.writeEndElement();
+			writer.writeEndDocument();
+			writer.flush();
+			writer.close();
+		} catch (XMLStreamException e) {
+			throw new IOException("Unable to write SOAP envelope", e);
+		} finally {
+			if (iterator instanceof RecordIterator) {
+				((RecordIterator) iterator).close();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "SOAP " + (soap12 ? "1.2" : "1.1") + " envelope"
+				+ (null != repeat && StringUtil.isNotBlank(data) ? " with records from " + data : "");
+	}
+
+	private XmlTemplate template(Map<String, Object> settings, String key) {
+		Object fragment = settings.get(key);
+		if (null == fragment || StringUtil.isBlank(fragment.toString())) {
+			return null;
+		}
+		try {
+			return XmlTemplate.compile(fragment.toString(), namespaces);
+		} catch (AutomationError e) {
+			throw new AutomationError("Invalid SOAP " + key + " template", e);
+		}
+	}
+
+	private final class RepeatWriter implements XmlTemplate.RecordsWriter {
+		private final Iterator<Map<String, Object>> iterator;
+
+		RepeatWriter(Iterator<Map<String, Object>> iterator) {
+			this.iterator = iterator;
+		}
+
+		@Override
+		public void write(XMLStreamWriter writer) throws XMLStreamException {
+			while (iterator.hasNext()) {
+				repeat.write(writer, iterator.next(), values, null);
+			}
+		}
+	}
+}
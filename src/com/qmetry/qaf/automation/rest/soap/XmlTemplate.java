@@ -0,0 +1,326 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.soap;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.metrics.CacheStats;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
+
+/**
+ * Xml fragment compiled into events that can be written to
+ * {@link XMLStreamWriter} any number of times. <code>${name}</code>
+ * placeholders in text and attribute values are replaced with value from
+ * record, or from values provided for all records, while writing, values are
+ * escaped by writer. Processing instruction
+ * <code>&lt;?records?&gt;</code> marks position where repeated section is
+ * written. Prefixes used in fragment can be declared by namespaces provided
+ * while compiling.
+ * 
+ * @author amit.bhoraniya
+ */
+public final class XmlTemplate {
+	public static final String RECORDS_MARKER = "records";
+
+	private static final int MAX_CACHE_SIZE = 256;
+	private static final ConcurrentMap<String, XmlTemplate> TEMPLATES = new ConcurrentHashMap<String, XmlTemplate>();
+	private static final CacheStats STATS = WsMetrics.cache("xml-template");
+	private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newInstance();
+
+	static {
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+	}
+
+	/**
+	 * Callback to write repeated section at position of
+	 * <code>&lt;?records?&gt;</code>
+	 */
+	public interface RecordsWriter {
+		void write(XMLStreamWriter writer) throws XMLStreamException;
+	}
+
+	private enum Type {
+		START, END, TEXT, COMMENT, RECORDS
+	}
+
+	private static final class Event {
+		final Type type;
+		final String prefix;
+		final String localName;
+		final String namespace;
+		final String[][] namespaces;
+		final Attribute[] attributes;
+		final Text text;
+
+		Event(Type type, String prefix, String localName, String namespace, String[][] namespaces,
+				Attribute[] attributes, Text text) {
+			this.type = type;
+			this.prefix = prefix;
+			this.localName = localName;
+			this.namespace = namespace;
+			this.namespaces = namespaces;
+			this.attributes = attributes;
+			this.text = text;
+		}
+	}
+
+	private static final class Attribute {
+		final String prefix;
+		final String namespace;
+		final String localName;
+		final Text value;
+
+		Attribute(String prefix, String namespace, String localName, Text value) {
+			this.prefix = prefix;
+			this.namespace = namespace;
+			this.localName = localName;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Text with placeholders, even parts are literals and odd parts are
+	 * placeholder names.
+	 */
+	private static final class Text {
+		final String[] parts;
+
+		Text(String text) {
+			List<String> list = new ArrayList<String>();
+			int start = 0;
+			int open;
+			while ((open = text.indexOf("${", start)) >= 0) {
+				int close = text.indexOf('}', open + 2);
+				if (close < 0) {
+					break;
+				}
+				list.add(text.substring(start, open));
+				list.add(text.substring(open + 2, close));
+				start = close + 1;
+			}
+			list.add(text.substring(start));
+			parts = list.toArray(new String[list.size()]);
+		}
+
+		String resolve(Map<String, Object> record, Map<String, Object> values) {
+			if (parts.length == 1) {
+				return parts[0];
+			}
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < parts.length; i++) {
+				if (i % 2 == 0) {
+					sb.append(parts[i]);
+				} else if (null != record && record.containsKey(parts[i])) {
+					append(sb, record.get(parts[i]));
+				} else if (null != values && values.containsKey(parts[i])) {
+					append(sb, values.get(parts[i]));
+				} else {
+					sb.append("${").append(parts[i]).append('}');
+				}
+			}
+			return sb.toString();
+		}
+
+		private static void append(StringBuilder sb, Object value) {
+			sb.append(null == value ? ""
+					: value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString());
+		}
+	}
+
+	private final List<Event> events;
+
+	private XmlTemplate(List<Event> events) {
+		this.events = events;
+	}
+
+	/**
+	 * @param fragment
+	 *            xml fragment, can have multiple root elements
+	 * @param namespaces
+	 *            prefix to namespace uri for prefixes used in fragment
+	 * @return compiled template from cache
+	 */
+	public static XmlTemplate compile(String fragment, Map<String, String> namespaces) {
+		String key = namespaces + fragment;
+		XmlTemplate template = TEMPLATES.get(key);
+		STATS.record(null != template);
+		if (null == template) {
+			template = new XmlTemplate(parse(fragment, namespaces));
+			if (TEMPLATES.size() < MAX_CACHE_SIZE) {
+				TEMPLATES.putIfAbsent(key, template);
+			}
+		}
+		return template;
+	}
+
+	/**
+	 * @return true if template has <code>&lt;?records?&gt;</code> marker
+	 */
+	public boolean hasRecordsMarker() {
+		for (Event event : events) {
+			if (event.type == Type.RECORDS) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param writer
+	 * @param record
+	 *            values for placeholders, can be null
+	 * @param values
+	 *            values for placeholders not in record, can be null
+	 * @param records
+	 *            writes repeated section at marker, can be null
+	 * @throws XMLStreamException
+	 */
+	public void write(XMLStreamWriter writer, Map<String, Object> record, Map<String, Object> values,
+			RecordsWriter records)
+			throws XMLStreamException {
+		for (Event event : events) {
+			switch (event.type) {
+				case START :
+					writer.writeStartElement(event.prefix, event.localName, event.namespace);
+					for (String[] namespace : event.namespaces) {
+						if (namespace[0].isEmpty()) {
+							writer.writeDefaultNamespace(namespace[1]);
+						} else {
+							writer.writeNamespace(namespace[0], namespace[1]);
+						}
+					}
+					for (Attribute attribute : event.attributes) {
+						writer.writeAttribute(attribute.prefix, attribute.namespace, attribute.localName,
+								attribute.value.resolve(record, values));
+					}
+					break;
+				case END :
+					writer.writeEndElement();
+					break;
+				case TEXT :
+					writer.writeCharacters(event.text.resolve(record, values));
+					break;
+				case COMMENT :
+					writer.writeComment(event.text.resolve(record, values));
+					break;
+				case RECORDS :
+					if (null != records) {
+						records.write(writer);
+					}
+					break;
+			}
+		}
+	}
+
+	private static List<Event> parse(String fragment, Map<String, String> namespaces) {
+		StringBuilder wrapped = new StringBuilder("<fragment");
+		for (Entry<String, String> namespace : namespaces.entrySet()) {
+			wrapped.append(" xmlns:").append(namespace.getKey()).append("=\"")
+					.append(namespace.getValue().replace("\"", "&quot;")).append('"');
+		}
+		wrapped.append('>').append(fragment).append("</fragment>");
+		List<Event> events = new ArrayList<Event>();
+		try {
+			XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(wrapped.toString()));
+			try {
+				int depth = 0;
+				while (reader.hasNext()) {
+					int event = reader.next();
+					switch (event) {
+						case XMLStreamConstants.START_ELEMENT :
+							if (depth++ > 0) {
+								events.add(startElement(reader));
+							}
+							break;
+						case XMLStreamConstants.END_ELEMENT :
+							if (--depth > 0) {
+								events.add(new Event(Type.END, null, null, null, null, null, null));
+							}
+							break;
+						case XMLStreamConstants.CHARACTERS :
+						case XMLStreamConstants.CDATA :
+						case XMLStreamConstants.SPACE :
+							events.add(new Event(Type.TEXT, null, null, null, null, null, new Text(reader.getText())));
+							break;
+						case XMLStreamConstants.COMMENT :
+							events.add(new Event(Type.COMMENT, null, null, null, null, null, new Text(reader.getText())));
+							break;
+						case XMLStreamConstants.PROCESSING_INSTRUCTION :
+							if (RECORDS_MARKER.equals(reader.getPITarget())) {
+								events.add(new Event(Type.RECORDS, null, null, null, null, null, null));
+							}
+							break;
+						default :
+							break;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new AutomationError("Invalid xml template: " + fragment, e);
+		}
+		return Collections.unmodifiableList(events);
+	}
+
+	private static Event startElement(XMLStreamReader reader) {
+		String[][] namespaces = new String[reader.getNamespaceCount()][];
+		for (int i = 0; i < namespaces.length; i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			namespaces[i] = new String[] { null == prefix ? "" : prefix, reader.getNamespaceURI(i) };
+		}
+		Attribute[] attributes = new Attribute[reader.getAttributeCount()];
+		for (int i = 0; i < attributes.length; i++) {
+			String prefix = reader.getAttributePrefix(i);
+			String namespace = reader.getAttributeNamespace(i);
+			attributes[i] = new Attribute(null == prefix ? "" : prefix, null == namespace ? "" : namespace,
+					reader.getAttributeLocalName(i), new Text(reader.getAttributeValue(i)));
+		}
+		String prefix = reader.getPrefix();
+		String namespace = reader.getNamespaceURI();
+		return new Event(Type.START, null == prefix ? "" : prefix, reader.getLocalName(),
+				null == namespace ? "" : namespace, namespaces, attributes, null);
+	}
+}
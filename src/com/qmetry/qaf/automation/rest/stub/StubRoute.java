@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.stub;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.text.StrSubstitutor;
+import org.json.JSONObject;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.RestRequestBean;
+import com.qmetry.qaf.automation.rest.WSCRepositoryConstants;
+import com.qmetry.qaf.automation.rest.WscRepository;
+import com.qmetry.qaf.automation.util.FileUtil;
+import com.qmetry.qaf.automation.util.StringMatcher;
+import com.qmetry.qaf.automation.util.StringUtil;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Canned response of {@link WscStubServer} for a request call, matched on
+ * method and endPoint. Response is defined using optional
+ * {@link WSCRepositoryConstants#STUB_RESPONSE stub-response} attribute of
+ * request call, for example:
+ * 
+ * <pre>
+ * get.user={'endPoint':'/users/${id}','method':'GET','stub-response':{'status':200,'headers':{'Content-Type':'application/json'},'body':'{"id":"${request.path.2}"}','latency':20}}
+ * </pre>
+ * 
+ * Body can be plain text, <code>file:&lt;path&gt;</code> or template using
+ * <code>${request.method}</code>, <code>${request.path}</code>,
+ * <code>${request.path.&lt;n&gt;}</code>, <code>${request.query.&lt;name&gt;}</code>,
+ * <code>${request.header.&lt;name&gt;}</code> and <code>${request.body}</code>.
+ * When body is not provided, json body of <code>payload-size</code> bytes
+ * is generated. Route is matched from start of request path, optionally
+ * preceded by path of baseUrl of request call.
+ * 
+ * @author amit.bhoraniya
+ */
+class StubRoute {
+	private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]+)\\}");
+	// scheme and authority, or placeholder for it like ${ws.stub.baseurl}
+	private static final Pattern BASE_URL_ROOT = Pattern
+			.compile("^(?:\\$\\{[^}]+\\}|[a-zA-Z][a-zA-Z0-9+.-]*://[^/]*)");
+
+	private final String key;
+	private final String method;
+	private final Pattern path;
+	private final int wildcards;
+	private final int status;
+	private final Map<String, String> headers = new HashMap<String, String>();
+	private final long latency;
+	private final String template;
+	private final boolean readsBody;
+	private final byte[] body;
+
+	StubRoute(String key, long defaultLatency, int defaultPayloadSize) {
+		this.key = key;
+		RestRequestBean bean = new RestRequestBean();
+		bean.fillData(key);
+		method = bean.getMethod().toUpperCase();
+
+		StringBuffer regex = new StringBuffer();
+		String basePath = getBasePath(bean.getBaseUrl());
+		if (basePath.length() > 0) {
+			regex.append("(?:").append(Pattern.quote(basePath)).append(")?");
+		}
+		String endPoint = bean.getEndPoint().startsWith("/") ? bean.getEndPoint() : "/" + bean.getEndPoint();
+		Matcher matcher = PLACEHOLDER.matcher(endPoint);
+		int lastEnd = 0;
+		int count = 0;
+		while (matcher.find()) {
+			regex.append(Pattern.quote(endPoint.substring(lastEnd, matcher.start())));
+			if (getBundle().containsKey(matcher.group(1))) {
+				regex.append(Pattern.quote(getBundle().getString(matcher.group(1))));
+			} else {
+				regex.append("[^/]*");
+				count++;
+			}
+			lastEnd = matcher.end();
+		}
+		regex.append(Pattern.quote(endPoint.substring(lastEnd))).append("/?");
+		path = Pattern.compile(regex.toString());
+		wildcards = count;
+
+		Object def = WscRepository.getAttribute(key, WSCRepositoryConstants.STUB_RESPONSE);
+		JSONObject response = def instanceof JSONObject ? (JSONObject) def : new JSONObject();
+		status = response.optInt("status", 200);
+		latency = response.optLong("latency", defaultLatency);
+		JSONObject headersDef = response.optJSONObject(WSCRepositoryConstants.HEADERS);
+		if (null != headersDef) {
+			for (String name : JSONObject.getNames(headersDef) == null ? new String[] {}
+					: JSONObject.getNames(headersDef)) {
+				headers.put(name, headersDef.getString(name));
+			}
+		}
+
+		String bodyDef = response.optString(WSCRepositoryConstants.BODY, "");
+		if (StringMatcher.startsWithIgnoringCase("file:").match(bodyDef)) {
+			String file = bodyDef.split(":", 2)[1];
+			try {
+				bodyDef = FileUtil.readFileToString(new File(file), StandardCharsets.UTF_8);
+			} catch (IOException e) {
+				throw new AutomationError("Unable to read stub response file: " + file, e);
+			}
+		}
+		if (StringUtil.isBlank(bodyDef)) {
+			bodyDef = generatePayload(response.optInt("payload-size", defaultPayloadSize));
+			if (!headers.containsKey("Content-Type")) {
+				headers.put("Content-Type", "application/json");
+			}
+		}
+		if (bodyDef.contains("${")) {
+			template = bodyDef;
+			readsBody = bodyDef.contains("${request.body}");
+			body = null;
+		} else {
+			template = null;
+			readsBody = false;
+			body = bodyDef.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	String getKey() {
+		return key;
+	}
+
+	int getWildcards() {
+		return wildcards;
+	}
+
+	int getPatternLength() {
+		return path.pattern().length();
+	}
+
+	boolean matches(String requestMethod, String requestPath) {
+		return method.equalsIgnoreCase(requestMethod) && path.matcher(requestPath).matches();
+	}
+
+	void respond(HttpExchange exchange) throws IOException {
+		byte[] content = body;
+		if (null != template) {
+			content = render(exchange).getBytes(StandardCharsets.UTF_8);
+		} else {
+			drain(exchange.getRequestBody());
+		}
+		if (latency > 0) {
+			try {
+				Thread.sleep(latency);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for (Entry<String, String> header : headers.entrySet()) {
+			exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+		}
+		boolean noBody = content.length == 0 || "HEAD".equalsIgnoreCase(exchange.getRequestMethod());
+		exchange.sendResponseHeaders(status, noBody ? -1 : content.length);
+		if (!noBody) {
+			OutputStream out = exchange.getResponseBody();
+			out.write(content);
+			out.close();
+		}
+		exchange.close();
+	}
+
+	/**
+	 * @param baseUrl
+	 * @return path of base url without trailing slash, empty if base url
+	 *         has no path
+	 */
+	private static String getBasePath(String baseUrl) {
+		if (StringUtil.isBlank(baseUrl)) {
+			return "";
+		}
+		String basePath = BASE_URL_ROOT.matcher(baseUrl.trim()).replaceFirst("");
+		while (basePath.endsWith("/")) {
+			basePath = basePath.substring(0, basePath.length() - 1);
+		}
+		return basePath.isEmpty() || basePath.startsWith("/") ? basePath : "/" + basePath;
+	}
+
+	private String render(HttpExchange exchange) throws IOException {
+		Map<String, Object> context = new HashMap<String, Object>();
+		String requestPath = exchange.getRequestURI().getPath();
+		context.put("request.method", exchange.getRequestMethod());
+		context.put("request.path", requestPath);
+		String[] segments = requestPath.split("/");
+		for (int i = 1; i < segments.length; i++) {
+			context.put("request.path." + i, segments[i]);
+		}
+		String query = exchange.getRequestURI().getRawQuery();
+		if (StringUtil.isNotBlank(query)) {
+			for (String param : query.split("&")) {
+				String[] parts = param.split("=", 2);
+				context.put("request.query." + URLDecoder.decode(parts[0], "UTF-8"),
+						parts.length > 1 ? URLDecoder.decode(parts[1], "UTF-8") : "");
+			}
+		}
+		Iterator<Entry<String, List<String>>> headerIter = exchange.getRequestHeaders().entrySet().iterator();
+		while (headerIter.hasNext()) {
+			Entry<String, List<String>> header = headerIter.next();
+			if (!header.getValue().isEmpty()) {
+				context.put("request.header." + header.getKey().toLowerCase(), header.getValue().get(0));
+			}
+		}
+		if (readsBody) {
+			context.put("request.body", IOUtils.toString(exchange.getRequestBody(), "UTF-8"));
+		} else {
+			drain(exchange.getRequestBody());
+		}
+		return StrSubstitutor.replace(template, context);
+	}
+
+	private static void drain(InputStream in) throws IOException {
+		byte[] buffer = new byte[8192];
+		while (in.read(buffer) >= 0) {
+			// discard request body
+		}
+		in.close();
+	}
+
+	private static String generatePayload(int size) {
+		String prefix = "{\"data\":\"";
+		String suffix = "\"}";
+		int fill = size - prefix.length() - suffix.length();
+		StringBuilder payload = new StringBuilder(Math.max(size, prefix.length() + suffix.length()));
+		payload.append(prefix);
+		for (int i = 0; i < fill; i++) {
+			payload.append((char) ('a' + (i % 26)));
+		}
+		return payload.append(suffix).toString();
+	}
+}
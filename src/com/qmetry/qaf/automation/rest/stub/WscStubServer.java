@@ -0,0 +1,223 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.stub;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.WscRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Lightweight embedded http server that serves canned or templated responses
+ * for request calls defined in call repository (<code>.wsc</code> files),
+ * matched on method and endPoint. It can be used to run assertion suites
+ * offline or to measure request/assertion pipeline in isolation. Once
+ * started, base url of the server is available through
+ * {@link #STUB_BASE_URL ws.stub.baseurl} property, for example
+ * <code>env.baseurl=${ws.stub.baseurl}</code>.
+ * <p>
+ * Properties:
+ * <ul>
+ * <li>{@link #STUB_PORT ws.stub.port} - port to listen, default 0 (any free
+ * port)
+ * <li>{@link #STUB_LATENCY ws.stub.latency} - artificial latency in
+ * milliseconds, default 0
+ * <li>{@link #STUB_PAYLOAD_SIZE ws.stub.payload.size} - size in bytes of
+ * generated body for calls without stub-response body, default 2
+ * <li>{@link #STUB_THREADS ws.stub.threads} - number of threads serving
+ * requests, default 2 x available processors
+ * </ul>
+ * 
+ * @see StubRoute
+ * @author amit.bhoraniya
+ */
+public class WscStubServer {
+	public static final String STUB_ENABLED = "ws.stub.enabled";
+	public static final String STUB_PORT = "ws.stub.port";
+	public static final String STUB_LATENCY = "ws.stub.latency";
+	public static final String STUB_PAYLOAD_SIZE = "ws.stub.payload.size";
+	public static final String STUB_THREADS = "ws.stub.threads";
+	public static final String STUB_BASE_URL = "ws.stub.baseurl";
+
+	private static final Log logger = LogFactory.getLog(WscStubServer.class);
+	private static WscStubServer instance;
+
+	private final List<StubRoute> routes = new ArrayList<StubRoute>();
+	private HttpServer server;
+	private ExecutorService executor;
+
+	/**
+	 * Creates server with routes for all request calls available in
+	 * repository.
+	 */
+	public WscStubServer() {
+		this(WscRepository.getCallKeys());
+	}
+
+	/**
+	 * @param callKeys
+	 *            request calls to be served
+	 */
+	public WscStubServer(Collection<String> callKeys) {
+		long latency = getBundle().getLong(STUB_LATENCY, 0);
+		int payloadSize = getBundle().getInt(STUB_PAYLOAD_SIZE, 2);
+		for (String key : callKeys) {
+			try {
+				routes.add(new StubRoute(key, latency, payloadSize));
+			} catch (Exception e) {
+				logger.warn("Unable to create stub for " + key, e);
+			}
+		}
+		// exact end-points take precedence over parameterized one
+		Collections.sort(routes, new Comparator<StubRoute>() {
+			@Override
+			public int compare(StubRoute r1, StubRoute r2) {
+				int res = r1.getWildcards() - r2.getWildcards();
+				return res != 0 ? res : r2.getPatternLength() - r1.getPatternLength();
+			}
+		});
+	}
+
+	/**
+	 * @param port
+	 *            port to listen, 0 for any free port
+	 * @return base url of started server
+	 */
+	public synchronized String start(int port) {
+		if (null != server) {
+			return getBaseUrl();
+		}
+		try {
+			server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+		} catch (IOException e) {
+			throw new AutomationError("Unable to start stub server on port " + port, e);
+		}
+		executor = Executors.newFixedThreadPool(
+				getBundle().getInt(STUB_THREADS, Runtime.getRuntime().availableProcessors() * 2));
+		server.setExecutor(executor);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				serve(exchange);
+			}
+		});
+		server.start();
+		logger.info("Stub server started at " + getBaseUrl() + " serving " + routes.size() + " calls");
+		return getBaseUrl();
+	}
+
+	public synchronized void stop() {
+		if (null != server) {
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+			executor = null;
+		}
+	}
+
+	public int getPort() {
+		return null != server ? server.getAddress().getPort() : -1;
+	}
+
+	public String getBaseUrl() {
+		return "http://localhost:" + getPort();
+	}
+
+	public boolean isRunning() {
+		return null != server;
+	}
+
+	/**
+	 * Starts shared stub server on {@link #STUB_PORT} and sets
+	 * {@link #STUB_BASE_URL} property.
+	 * 
+	 * @return shared stub server
+	 */
+	public static synchronized WscStubServer startServer() {
+		if (null == instance) {
+			instance = new WscStubServer();
+		}
+		getBundle().setProperty(STUB_BASE_URL, instance.start(getBundle().getInt(STUB_PORT, 0)));
+		return instance;
+	}
+
+	/**
+	 * stops shared stub server if running.
+	 */
+	public static synchronized void stopServer() {
+		if (null != instance) {
+			instance.stop();
+			instance = null;
+			getBundle().clearProperty(STUB_BASE_URL);
+		}
+	}
+
+	/**
+	 * @return shared stub server or null if not started.
+	 */
+	public static synchronized WscStubServer getServer() {
+		return instance;
+	}
+
+	private void serve(HttpExchange exchange) throws IOException {
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getPath();
+		for (StubRoute route : routes) {
+			if (route.matches(method, path)) {
+				route.respond(exchange);
+				return;
+			}
+		}
+		byte[] content = ("{\"error\":\"No stub for " + method + " " + path + "\"}").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(404, content.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(content);
+		out.close();
+		exchange.close();
+	}
+}
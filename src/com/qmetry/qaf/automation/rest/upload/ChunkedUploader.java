@@ -0,0 +1,421 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.upload;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.core.MediaType;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.RestRequestBean;
+import com.qmetry.qaf.automation.rest.client.AuthClientRegistry;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.WebResource.Builder;
+
+/**
+ * Uploads file in chunks, configured using <code>upload</code> attribute of
+ * request call having <code>binary:</code> body:
+ * 
+ * <pre>
+ * upload.file={'endPoint':'/files','method':'PUT','body':'binary:resources/big.bin','upload':{'chunk-size':8388608,'parallel':4,'protocol':'content-range'}}
+ * </pre>
+ * <ul>
+ * <li><code>chunk-size</code> - size of chunk in bytes, default 8MB
+ * <li><code>parallel</code> - number of chunks in flight, default 1
+ * <li><code>protocol</code> - <code>content-range</code> (default) sends each
+ * chunk to request url with <code>Content-Range</code> header,
+ * <code>tus</code> uses <a href="https://tus.io/protocols/resumable-upload">tus
+ * resumable upload protocol</a>, with concatenation extension when parallel
+ * is more than 1
+ * <li><code>retries</code> - number of times failed chunk is retried, default
+ * 3. For tus upload is resumed from offset reported by server.
+ * </ul>
+ * Chunks are read using positional reads of {@link FileChannel}, so only
+ * chunks in flight are in memory. Chunks are sent using shared client of
+ * request, last request (last chunk or tus final concatenation) is sent
+ * using client of current thread so that its response is available as
+ * response of the request call. Chunks of all uploads are sent from threads
+ * of pool shared by all uploads, size of pool is set using
+ * {@link #THREADS ws.upload.threads}, each upload has at most
+ * <code>parallel</code> chunks in flight.
+ * 
+ * @author amit.bhoraniya
+ */
+public class ChunkedUploader {
+	public static final String CHUNK_SIZE = "chunk-size";
+	public static final String PARALLEL = "parallel";
+	public static final String PROTOCOL = "protocol";
+	public static final String RETRIES = "retries";
+	public static final String PROTOCOL_CONTENT_RANGE = "content-range";
+	public static final String PROTOCOL_TUS = "tus";
+	public static final String THREADS = "ws.upload.threads";
+
+	private static final Log logger = LogFactory.getLog(ChunkedUploader.class);
+	private static final String TUS_VERSION = "1.0.0";
+	private static volatile ExecutorService executor;
+
+	private final RestRequestBean bean;
+	private final Client client;
+	private final Client sharedClient;
+	private final int chunkSize;
+	private final int parallel;
+	private final int retries;
+	private final String protocol;
+	private final BlockingQueue<byte[]> buffers;
+
+	/**
+	 * @param bean
+	 *            request call with upload settings
+	 * @param client
+	 *            client of current thread
+	 */
+	public ChunkedUploader(RestRequestBean bean, Client client) {
+		this.bean = bean;
+		this.client = client;
+		sharedClient = AuthClientRegistry.getSharedClient(bean.getAuth());
+		Map<String, Object> settings = bean.getUpload();
+		chunkSize = getInt(settings, CHUNK_SIZE, 8 * 1024 * 1024);
+		parallel = Math.max(1, getInt(settings, PARALLEL, 1));
+		retries = Math.max(0, getInt(settings, RETRIES, 3));
+		protocol = settings.containsKey(PROTOCOL) ? String.valueOf(settings.get(PROTOCOL))
+				: PROTOCOL_CONTENT_RANGE;
+		buffers = new ArrayBlockingQueue<byte[]>(parallel);
+	}
+
+	/**
+	 * @param resource
+	 *            request url with query parameters
+	 * @param file
+	 *            file to upload
+	 * @return response of last request
+	 */
+	public ClientResponse upload(WebResource resource, File file) {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			long size = channel.size();
+			if (PROTOCOL_TUS.equalsIgnoreCase(protocol)) {
+				return parallel > 1 ? uploadTusParallel(resource.getURI(), channel, size)
+						: uploadTus(resource.getURI(), channel, size);
+			}
+			if (PROTOCOL_CONTENT_RANGE.equalsIgnoreCase(protocol)) {
+				return uploadContentRange(resource.getURI(), channel, size);
+			}
+			throw new AutomationError("Unsupported upload protocol: " + protocol);
+		} catch (IOException e) {
+			throw new AutomationError("Unable to upload file: " + file, e);
+		}
+	}
+
+	private ClientResponse uploadContentRange(final URI uri, final FileChannel channel, final long size)
+			throws IOException {
+		int chunks = getChunkCount(size);
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < chunks - 1; i++) {
+			final long start = (long) i * chunkSize;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					for (int attempt = 0;; attempt++) {
+						try {
+							ClientResponse response = sendRange(builder(sharedClient, uri), channel, start, size);
+							response.close();
+							checkStatus(response, "chunk " + start);
+							return null;
+						} catch (RuntimeException e) {
+							retryOrFail(attempt, e);
+						}
+					}
+				}
+			});
+		}
+		invokeAll(tasks);
+
+		long start = (long) (chunks - 1) * chunkSize;
+		for (int attempt = 0;; attempt++) {
+			try {
+				return sendRange(builder(client, uri), channel, start, size);
+			} catch (RuntimeException e) {
+				retryOrFail(attempt, e);
+			}
+		}
+	}
+
+	private ClientResponse sendRange(Builder builder, FileChannel channel, long start, long size) throws IOException {
+		long end = Math.min(start + chunkSize, size);
+		byte[] buffer = acquireBuffer();
+		try {
+			int length = read(channel, buffer, start, end);
+			// empty file has no byte range
+			builder.header("Content-Range",
+					size == 0 ? "bytes */0" : "bytes " + start + "-" + (end - 1) + "/" + size);
+			return builder.type(MediaType.APPLICATION_OCTET_STREAM).method(bean.getMethod(), ClientResponse.class,
+					new ByteArrayInputStream(buffer, 0, length));
+		} finally {
+			buffers.offer(buffer);
+		}
+	}
+
+	private ClientResponse uploadTus(URI uri, FileChannel channel, long size) throws IOException {
+		URI location = createTusUpload(uri, size, null);
+		return patchTus(location, channel, 0, size, true);
+	}
+
+	private ClientResponse uploadTusParallel(URI uri, final FileChannel channel, long size) throws IOException {
+		int chunks = getChunkCount(size);
+		List<Callable<URI>> tasks = new ArrayList<Callable<URI>>();
+		for (int i = 0; i < chunks; i++) {
+			final long start = (long) i * chunkSize;
+			final long end = Math.min(start + chunkSize, size);
+			final URI createUri = uri;
+			tasks.add(new Callable<URI>() {
+				@Override
+				public URI call() throws Exception {
+					URI location = createTusUpload(createUri, end - start, "partial");
+					patchTus(location, channel, start, end, false).close();
+					return location;
+				}
+			});
+		}
+		StringBuilder parts = new StringBuilder("final;");
+		for (URI part : invokeAll(tasks)) {
+			parts.append(part.toString()).append(' ');
+		}
+		Builder builder = builder(client, uri).header("Tus-Resumable", TUS_VERSION).header("Upload-Concat",
+				parts.toString().trim());
+		return builder.post(ClientResponse.class);
+	}
+
+	private URI createTusUpload(URI uri, long length, String concat) {
+		Builder builder = builder(sharedClient, uri).header("Tus-Resumable", TUS_VERSION).header("Upload-Length",
+				length);
+		if (null != concat) {
+			builder.header("Upload-Concat", concat);
+		}
+		ClientResponse response = builder.post(ClientResponse.class);
+		response.close();
+		checkStatus(response, "tus create");
+		String location = response.getHeaders().getFirst("Location");
+		if (null == location) {
+			throw new AutomationError("tus create response doesn't have Location header");
+		}
+		return uri.resolve(location);
+	}
+
+	/**
+	 * Sends bytes from start to end of file to tus upload, resumes from offset
+	 * reported by server on failure.
+	 * 
+	 * @param track
+	 *            send last patch using client of current thread
+	 */
+	private ClientResponse patchTus(URI location, FileChannel channel, long start, long end, boolean track)
+			throws IOException {
+		long offset = 0;
+		int attempt = 0;
+		boolean resume = false;
+		while (true) {
+			try {
+				if (resume) {
+					// part of failed chunk may be received, query is retried same
+					// as chunk when it fails
+					offset = getTusOffset(location);
+					resume = false;
+				}
+				long chunkEnd = Math.min(offset + chunkSize, end - start);
+				boolean last = chunkEnd == end - start;
+				ClientResponse response = sendTusChunk(location, channel, start, offset, chunkEnd, last && track);
+				if (last) {
+					if (!track) {
+						checkStatus(response, "tus patch");
+					}
+					return response;
+				}
+				response.close();
+				checkStatus(response, "tus patch");
+				offset = chunkEnd;
+			} catch (RuntimeException e) {
+				retryOrFail(attempt++, e);
+				resume = true;
+			}
+		}
+	}
+
+	private ClientResponse sendTusChunk(URI location, FileChannel channel, long start, long offset, long end,
+			boolean track) throws IOException {
+		byte[] buffer = acquireBuffer();
+		try {
+			int length = read(channel, buffer, start + offset, start + end);
+			// PATCH is not supported by HttpURLConnection
+			Builder builder = builder(track ? client : sharedClient, location).header("Tus-Resumable", TUS_VERSION)
+					.header("Upload-Offset", offset).header("X-HTTP-Method-Override", "PATCH");
+			return builder.type("application/offset+octet-stream").post(ClientResponse.class,
+					new ByteArrayInputStream(buffer, 0, length));
+		} finally {
+			buffers.offer(buffer);
+		}
+	}
+
+	private long getTusOffset(URI location) {
+		ClientResponse response = builder(sharedClient, location).header("Tus-Resumable", TUS_VERSION)
+				.head();
+		try {
+			checkStatus(response, "tus offset");
+			return Long.parseLong(response.getHeaders().getFirst("Upload-Offset"));
+		} finally {
+			response.close();
+		}
+	}
+
+	private Builder builder(Client client, URI uri) {
+		Builder builder = client.resource(uri).getRequestBuilder();
+		for (Entry<String, Object> header : bean.getHeaders().entrySet()) {
+			if (!header.getKey().equalsIgnoreCase("Content-Type")) {
+				builder.header(header.getKey(), header.getValue());
+			}
+		}
+		return builder;
+	}
+
+	private int read(FileChannel channel, byte[] buffer, long start, long end) throws IOException {
+		int length = (int) (end - start);
+		ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, length);
+		while (byteBuffer.hasRemaining()) {
+			if (channel.read(byteBuffer, start + byteBuffer.position()) < 0) {
+				throw new IOException("Unexpected end of file at " + (start + byteBuffer.position()));
+			}
+		}
+		return length;
+	}
+
+	private byte[] acquireBuffer() {
+		byte[] buffer = buffers.poll();
+		return null == buffer ? new byte[chunkSize] : buffer;
+	}
+
+	private int getChunkCount(long size) {
+		return (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+	}
+
+	private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<T>();
+		if (tasks.isEmpty()) {
+			return results;
+		}
+		ExecutorCompletionService<T> completionService = new ExecutorCompletionService<T>(getExecutor());
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		try {
+			for (int completed = 0; completed < tasks.size(); completed++) {
+				while (futures.size() < tasks.size() && futures.size() - completed < parallel) {
+					futures.add(completionService.submit(tasks.get(futures.size())));
+				}
+				completionService.take().get();
+			}
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AutomationError("Upload interrupted", e);
+		} catch (ExecutionException e) {
+			throw new AutomationError("Unable to upload chunk", e.getCause());
+		} finally {
+			for (Future<T> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private static ExecutorService getExecutor() {
+		if (null == executor) {
+			synchronized (ChunkedUploader.class) {
+				if (null == executor) {
+					final AtomicInteger count = new AtomicInteger();
+					executor = Executors.newFixedThreadPool(
+							getBundle().getInt(THREADS, Math.max(4, Runtime.getRuntime().availableProcessors())),
+							new ThreadFactory() {
+								@Override
+								public Thread newThread(Runnable r) {
+									Thread thread = new Thread(r, "ws-upload-" + count.incrementAndGet());
+									thread.setDaemon(true);
+									return thread;
+								}
+							});
+				}
+			}
+		}
+		return executor;
+	}
+
+	private void retryOrFail(int attempt, RuntimeException e) {
+		if (attempt >= retries) {
+			throw e;
+		}
+		logger.warn("Retrying chunk after failure: " + e.getMessage());
+		WsMetrics.retry("upload");
+	}
+
+	private static void checkStatus(ClientResponse response, String step) {
+		if (response.getStatus() >= 300 && response.getStatus() != 308) {
+			throw new AutomationError(step + " failed with status " + response.getStatus());
+		}
+	}
+
+	private static int getInt(Map<String, Object> settings, String key, int defaultValue) {
+		Object value = settings.get(key);
+		return null == value ? defaultValue : Integer.parseInt(String.valueOf(value));
+	}
+}
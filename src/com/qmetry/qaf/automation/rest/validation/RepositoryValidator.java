@@ -0,0 +1,412 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.validation;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.rest.ConfigSnapshot;
+import com.qmetry.qaf.automation.rest.IndexedWscRepository;
+import com.qmetry.qaf.automation.rest.RestRequestBean;
+import com.qmetry.qaf.automation.rest.WSCRepositoryConstants;
+import com.qmetry.qaf.automation.rest.WscRepository;
+import com.qmetry.qaf.automation.rest.json.JsonPathEvaluator;
+import com.qmetry.qaf.automation.rest.paging.PageTraversal;
+import com.qmetry.qaf.automation.rest.schema.SchemaValidators;
+import com.qmetry.qaf.automation.rest.schema.XsdValidator;
+import com.qmetry.qaf.automation.rest.soap.SoapEnvelopeWriter;
+import com.qmetry.qaf.automation.util.StringUtil;
+
+/**
+ * Validates request calls of repository ahead of time, in parallel using
+ * {@link #THREADS ws.repository.validate.threads} (default number of
+ * processors) threads. For each request call it:
+ * <ol>
+ * <li>parses definition and follows <code>reference</code> chain, reporting
+ * invalid json, missing reference and cyclic reference
+ * <li>checks that each <code>${name}</code> placeholder can be resolved from
+ * <code>parameters</code> of request call or its references or from
+ * configuration. Names listed in {@link #IGNORE ws.repository.validate.ignore}
+ * are considered resolvable, use it for variables provided at run time by
+ * data or by stored response values. Placeholders of
+ * <code>stub-response</code> and soap <code>repeat</code> template are not
+ * checked as they are resolved from request and records.
+ * <li>populates request, which reads <code>file:</code> body and soap
+ * templates, and compiles soap templates, jsonpath of paging settings and
+ * <code>response-schema</code>. Compiled templates, paths and schemas are
+ * cached, so that first test using them doesn't pay for compilation.
+ * </ol>
+ * All problems are collected in single report that is logged and written to
+ * {@link #REPORT ws.repository.validate.report} file if provided. Use
+ * {@link RepositoryValidatorListener} to validate at suite start or run
+ * {@link #main(String[])} from command line.
+ * 
+ * @author amit.bhoraniya
+ */
+public class RepositoryValidator {
+	public static final String ENABLED = "ws.repository.validate";
+	/**
+	 * When true (default) {@link RepositoryValidatorListener} fails suite if
+	 * there is any problem.
+	 */
+	public static final String FAIL = "ws.repository.validate.fail";
+	public static final String REPORT = "ws.repository.validate.report";
+	public static final String IGNORE = "ws.repository.validate.ignore";
+	public static final String THREADS = "ws.repository.validate.threads";
+
+	private static final Log logger = LogFactory.getLog(RepositoryValidator.class);
+	private static final String[] CALL_ATTRIBUTES = { WSCRepositoryConstants.END_POINT,
+			WSCRepositoryConstants.BASE_URL, WSCRepositoryConstants.METHOD, WSCRepositoryConstants.REFERENCE };
+	private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^${}]+)\\}");
+
+	private final Collection<String> callKeys;
+	private final Set<String> ignore;
+	private String report;
+
+	/**
+	 * Validator for all request calls available in repository, including
+	 * json values that look like request call but can not be parsed.
+	 */
+	public RepositoryValidator() {
+		this(getCandidateKeys());
+	}
+
+	/**
+	 * @param callKeys
+	 *            request calls to validate
+	 */
+	public RepositoryValidator(Collection<String> callKeys) {
+		this.callKeys = callKeys;
+		ignore = new HashSet<String>(Arrays.asList(getBundle().getStringArray(IGNORE)));
+	}
+
+	/**
+	 * @return keys of request calls along with keys having value that starts
+	 *         with <code>{</code> and mentions request call attribute but is
+	 *         not valid json, which are not considered request call by
+	 *         {@link WscRepository#getCallKeys()}
+	 */
+	private static Set<String> getCandidateKeys() {
+		Set<String> keys = new LinkedHashSet<String>(WscRepository.getCallKeys());
+		ConfigSnapshot config = ConfigSnapshot.get();
+		Set<String> all = new LinkedHashSet<String>(config.getKeys());
+		all.addAll(IndexedWscRepository.get().getKeys());
+		for (String key : all) {
+			if (!keys.contains(key) && isMalformedCall(config.getValue(key))) {
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+
+	private static boolean isMalformedCall(Object value) {
+		if (!(value instanceof String) || !((String) value).trim().startsWith("{")) {
+			return false;
+		}
+		String s = (String) value;
+		for (String attribute : CALL_ATTRIBUTES) {
+			if (s.contains("'" + attribute + "'") || s.contains("\"" + attribute + "\"")) {
+				try {
+					new JSONObject(s);
+					return false;
+				} catch (JSONException e) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return problems of request calls, sorted by request call key. Empty
+	 *         if all request calls are valid.
+	 */
+	public Map<String, List<String>> validate() {
+		long start = System.currentTimeMillis();
+		Map<String, List<String>> problems = new TreeMap<String, List<String>>();
+		if (!callKeys.isEmpty()) {
+			int threads = getBundle().getInt(THREADS, Runtime.getRuntime().availableProcessors());
+			ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, callKeys.size())));
+			try {
+				List<Callable<List<String>>> tasks = new ArrayList<Callable<List<String>>>();
+				for (final String key : callKeys) {
+					tasks.add(new Callable<List<String>>() {
+						@Override
+						public List<String> call() throws Exception {
+							return validate(key);
+						}
+					});
+				}
+				Iterator<String> keys = callKeys.iterator();
+				for (Future<List<String>> future : executor.invokeAll(tasks)) {
+					String key = keys.next();
+					List<String> messages;
+					try {
+						messages = future.get();
+					} catch (ExecutionException e) {
+						messages = new ArrayList<String>();
+						messages.add(message(e.getCause()));
+					}
+					if (!messages.isEmpty()) {
+						problems.put(key, messages);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new AutomationError("Validation of request calls interrupted", e);
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+		report = format(problems, System.currentTimeMillis() - start);
+		if (problems.isEmpty()) {
+			logger.info(report);
+		} else {
+			logger.error(report);
+		}
+		String file = getBundle().getString(REPORT, "");
+		if (StringUtil.isNotBlank(file)) {
+			try {
+				FileUtils.writeStringToFile(new File(file), report, "UTF-8");
+			} catch (IOException e) {
+				logger.warn("Unable to write validation report to " + file, e);
+			}
+		}
+		return problems;
+	}
+
+	/**
+	 * @return report of last {@link #validate()}
+	 */
+	public String getReport() {
+		return report;
+	}
+
+	/**
+	 * @param key
+	 *            request call key
+	 * @return problems of request call
+	 */
+	List<String> validate(String key) {
+		List<String> problems = new ArrayList<String>();
+		List<JSONObject> chain = getChain(key, problems);
+		if (!problems.isEmpty()) {
+			// request can't be populated from broken chain
+			return problems;
+		}
+		checkPlaceholders(chain, problems);
+		try {
+			RestRequestBean bean = new RestRequestBean();
+			bean.fillData(key);
+			bean.resolveParameters(null);
+			if (!bean.getSoap().isEmpty()) {
+				new SoapEnvelopeWriter(bean.getSoap());
+			}
+			if (!bean.getPaging().isEmpty()) {
+				precompilePath(bean.getPaging(), PageTraversal.ITEMS, problems);
+				precompilePath(bean.getPaging(), PageTraversal.CURSOR, problems);
+			}
+		} catch (RuntimeException e) {
+			problems.add(message(e));
+		}
+		try {
+			precompileSchema(key);
+		} catch (RuntimeException e) {
+			problems.add("response-schema: " + message(e));
+		} catch (IOException e) {
+			problems.add("response-schema: " + message(e));
+		}
+		return problems;
+	}
+
+	/**
+	 * @return definition of request call followed by definitions of its
+	 *         references
+	 */
+	private List<JSONObject> getChain(String key, List<String> problems) {
+		List<JSONObject> chain = new ArrayList<JSONObject>();
+		Set<String> visited = new LinkedHashSet<String>();
+		String current = key;
+		while (StringUtil.isNotBlank(current)) {
+			if (!visited.add(current)) {
+				problems.add("cyclic reference " + StringUtil.join(visited.toArray(new String[0]), " -> ") + " -> "
+						+ current);
+				break;
+			}
+			JSONObject definition;
+			try {
+				definition = getDefinition(current);
+			} catch (JSONException e) {
+				problems.add((current.equals(key) ? "" : "reference " + current + ": ") + "invalid json: "
+						+ e.getMessage());
+				break;
+			}
+			if (null == definition) {
+				problems.add("reference " + current + " not found");
+				break;
+			}
+			chain.add(definition);
+			current = definition.optString(WSCRepositoryConstants.REFERENCE, "").trim();
+		}
+		return chain;
+	}
+
+	private static JSONObject getDefinition(String key) {
+		ConfigSnapshot config = ConfigSnapshot.get();
+		if (config.containsKey(key)) {
+			Object value = config.getValue(key);
+			return null == value ? null : new JSONObject(String.valueOf(value));
+		}
+		return WscRepository.getDefinition(key);
+	}
+
+	private void checkPlaceholders(List<JSONObject> chain, List<String> problems) {
+		Set<String> parameters = new HashSet<String>();
+		for (JSONObject definition : chain) {
+			JSONObject params = definition.optJSONObject(WSCRepositoryConstants.PARAMETERS);
+			if (null != params) {
+				parameters.addAll(params.keySet());
+			}
+		}
+		ConfigSnapshot config = ConfigSnapshot.get();
+		Set<String> unresolved = new LinkedHashSet<String>();
+		for (JSONObject definition : chain) {
+			JSONObject copy = new JSONObject(definition.toString());
+			copy.remove(WSCRepositoryConstants.STUB_RESPONSE);
+			JSONObject soap = copy.optJSONObject(WSCRepositoryConstants.SOAP);
+			if (null != soap) {
+				soap.remove(SoapEnvelopeWriter.REPEAT);
+			}
+			Matcher matcher = PLACEHOLDER.matcher(copy.toString());
+			while (matcher.find()) {
+				String name = matcher.group(1).trim();
+				if (!parameters.contains(name) && !config.containsKey(name) && !ignore.contains(name)
+						&& name.indexOf(':') <= 0) {
+					unresolved.add(name);
+				}
+			}
+		}
+		for (String name : unresolved) {
+			problems.add("placeholder ${" + name + "} has no value in parameters or configuration");
+		}
+	}
+
+	private static void precompilePath(Map<String, Object> paging, String setting, List<String> problems) {
+		Object path = paging.get(setting);
+		if (null != path) {
+			try {
+				JsonPathEvaluator.precompile(String.valueOf(path));
+			} catch (RuntimeException e) {
+				problems.add("paging " + setting + ": " + message(e));
+			}
+		}
+	}
+
+	/**
+	 * Compiles <code>response-schema</code> same as it is read by
+	 * <code>verify response schema for {0}</code> step.
+	 */
+	private static void precompileSchema(String key) throws IOException {
+		String responseSchema = WscRepository.getResponseSchema(key);
+		if (null == responseSchema) {
+			return;
+		}
+		if (XsdValidator.isXsd(responseSchema)) {
+			XsdValidator.getSchema(responseSchema);
+			return;
+		}
+		File file = new File(responseSchema);
+		if (file.exists()) {
+			responseSchema = FileUtils.readFileToString(file, "UTF-8");
+		}
+		SchemaValidators.precompile(responseSchema);
+	}
+
+	private String format(Map<String, List<String>> problems, long time) {
+		int count = 0;
+		StringBuilder details = new StringBuilder();
+		for (Map.Entry<String, List<String>> entry : problems.entrySet()) {
+			for (String message : entry.getValue()) {
+				details.append("\n  ").append(entry.getKey()).append(": ").append(message);
+				count++;
+			}
+		}
+		return "Validated " + callKeys.size() + " request calls in " + time + "ms: " + count + " problems in "
+				+ problems.size() + " request calls" + details;
+	}
+
+	private static String message(Throwable e) {
+		Throwable cause = e;
+		while (null != cause.getCause() && cause.getCause() != cause) {
+			cause = cause.getCause();
+		}
+		String message = StringUtil.isBlank(cause.getMessage()) ? cause.toString() : cause.getMessage();
+		return cause == e || StringUtil.isBlank(e.getMessage()) ? message : e.getMessage() + ": " + message;
+	}
+
+	/**
+	 * Validates request calls in repository and exits with status 1 if there
+	 * is any problem.
+	 * 
+	 * @param args
+	 *            not used
+	 */
+	public static void main(String[] args) {
+		RepositoryValidator validator = new RepositoryValidator();
+		Map<String, List<String>> problems = validator.validate();
+		System.out.println(validator.getReport());
+		System.exit(problems.isEmpty() ? 0 : 1);
+	}
+}
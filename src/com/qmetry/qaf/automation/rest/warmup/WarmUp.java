@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * QMetry Automation Framework provides a powerful and versatile platform to
+ * author
+ * Automated Test Cases in Behavior Driven, Keyword Driven or Code Driven
+ * approach
+ * Copyright 2016 Infostretch Corporation
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more
+ * details.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT
+ * OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE
+ * You should have received a copy of the GNU General Public License along with
+ * this program in the name of LICENSE.txt in the root folder of the
+ * distribution. If not, see https://opensource.org/licenses/gpl-3.0.html
+ * See the NOTICE.TXT file in root folder of this source files distribution
+ * for additional information regarding copyright ownership and licenses
+ * of other open source software / files used by QMetry Automation Framework.
+ * For any inquiry or need additional information, please contact
+ * support-qaf@infostretch.com
+ *******************************************************************************/
+package com.qmetry.qaf.automation.rest.warmup;
+
+import static com.qmetry.qaf.automation.core.ConfigurationManager.getBundle;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.ws.rs.core.MultivaluedMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.qmetry.qaf.automation.core.AutomationError;
+import com.qmetry.qaf.automation.keys.ApplicationProperties;
+import com.qmetry.qaf.automation.rest.ConfigSnapshot;
+import com.qmetry.qaf.automation.rest.RestRequestBean;
+import com.qmetry.qaf.automation.rest.WSCRepositoryConstants;
+import com.qmetry.qaf.automation.rest.WscRepository;
+import com.qmetry.qaf.automation.rest.client.AuthClientRegistry;
+import com.qmetry.qaf.automation.rest.json.JsonPathEvaluator;
+import com.qmetry.qaf.automation.rest.stub.WscStubServer;
+import com.qmetry.qaf.automation.util.StringMatcher;
+import com.qmetry.qaf.automation.util.StringUtil;
+import com.qmetry.qaf.automation.ws.Response;
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+
+/**
+ * Prepares connections and JIT compiled request path before suite, so that
+ * first requests of the suite don't pay for connection setup and
+ * interpretation. Warm-up:
+ * <ol>
+ * <li>collects distinct base urls of request calls in repository along with
+ * authentication profile
+ * <li>resolves host names and sends {@link #METHOD ws.warmup.method}
+ * (default OPTIONS) request to each base url using shared client of the
+ * profile, {@link #CONNECTIONS ws.warmup.connections} (default 1) requests
+ * in parallel. Connections, and TLS sessions for https, are kept by
+ * connection pool of the client for subsequent requests
+ * <li>sends {@link #CALLS ws.warmup.calls} (default 0) request calls of
+ * repository to local {@link WscStubServer stub server} and evaluates
+ * jsonpath on responses
+ * </ol>
+ * Failures are logged and ignored. Use {@link WarmUpListener} to run it at
+ * suite start when {@link #ENABLED ws.warmup.enabled} is true.
+ * 
+ * @author amit.bhoraniya
+ */
+public class WarmUp {
+	public static final String ENABLED = "ws.warmup.enabled";
+	public static final String CONNECTIONS = "ws.warmup.connections";
+	public static final String CALLS = "ws.warmup.calls";
+	public static final String METHOD = "ws.warmup.method";
+
+	private static final Log logger = LogFactory.getLog(WarmUp.class);
+	private static final int MAX_THREADS = 16;
+
+	private final Collection<String> callKeys;
+	private final int connections;
+	private final int calls;
+	private final String method;
+
+	/**
+	 * Warm-up for all request calls available in repository.
+	 */
+	public WarmUp() {
+		this(WscRepository.getCallKeys());
+	}
+
+	/**
+	 * @param callKeys
+	 *            request calls to warm-up
+	 */
+	public WarmUp(Collection<String> callKeys) {
+		this.callKeys = callKeys;
+		connections = Math.max(1, getBundle().getInt(CONNECTIONS, 1));
+		calls = Math.max(0, getBundle().getInt(CALLS, 0));
+		method = getBundle().getString(METHOD, "OPTIONS");
+	}
+
+	/**
+	 * @return time taken by warm-up in milliseconds
+	 */
+	public long run() {
+		long start = System.currentTimeMillis();
+		// calls first, so that idle connections are not expired by pool
+		int sent = calls > 0 ? sendCalls() : 0;
+		long called = System.currentTimeMillis();
+		Map<String, Target> targets = getTargets();
+		connect(targets.values());
+		long end = System.currentTimeMillis();
+		logger.info("Warm-up took " + (end - start) + "ms: " + sent + " calls to stub server in " + (called - start)
+				+ "ms, " + targets.size() + " base urls connected in " + (end - called) + "ms");
+		return end - start;
+	}
+
+	/**
+	 * @return distinct base url and authentication profile pairs of request
+	 *         calls
+	 */
+	private Map<String, Target> getTargets() {
+		Map<String, Target> targets = new LinkedHashMap<String, Target>();
+		for (String key : callKeys) {
+			try {
+				String baseUrl = resolve(WscRepository.getAttribute(key, WSCRepositoryConstants.BASE_URL));
+				if (StringUtil.isBlank(baseUrl)) {
+					baseUrl = ApplicationProperties.SELENIUM_BASE_URL.getStringVal("");
+				}
+				if (StringUtil.isBlank(baseUrl) || baseUrl.contains("${")) {
+					continue;
+				}
+				URI uri = URI.create(baseUrl.trim());
+				if (null == uri.getHost()) {
+					continue;
+				}
+				String auth = resolve(WscRepository.getAttribute(key, WSCRepositoryConstants.AUTH));
+				String origin = uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort() + "|" + auth;
+				if (!targets.containsKey(origin)) {
+					targets.put(origin, new Target(uri, auth));
+				}
+			} catch (RuntimeException e) {
+				logger.debug("Skipping " + key + " for warm-up: " + e.getMessage());
+			}
+		}
+		return targets;
+	}
+
+	private void connect(Collection<Target> targets) {
+		if (targets.isEmpty()) {
+			return;
+		}
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (final Target target : targets) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					long start = System.currentTimeMillis();
+					target.dns = -1;
+					InetAddress.getAllByName(target.uri.getHost());
+					target.dns = System.currentTimeMillis() - start;
+					return null;
+				}
+			});
+		}
+		invokeAll(tasks);
+		tasks.clear();
+		for (final Target target : targets) {
+			for (int i = 0; i < connections && target.dns >= 0; i++) {
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						long start = System.currentTimeMillis();
+						Client client = AuthClientRegistry.getSharedClient(target.auth);
+						client.resource(target.uri).method(method, ClientResponse.class).close();
+						synchronized (target) {
+							target.connect = Math.max(target.connect, System.currentTimeMillis() - start);
+						}
+						return null;
+					}
+				});
+			}
+		}
+		invokeAll(tasks);
+		for (Target target : targets) {
+			if (target.dns >= 0) {
+				logger.info("Warm-up " + target.uri + ": dns " + target.dns + "ms, connect " + target.connect + "ms");
+			}
+		}
+	}
+
+	/**
+	 * @return number of calls sent
+	 */
+	private int sendCalls() {
+		WscStubServer server = WscStubServer.getServer();
+		WscStubServer ownServer = null;
+		if (null == server || !server.isRunning()) {
+			ownServer = new WscStubServer(callKeys);
+			ownServer.start(0);
+			server = ownServer;
+		}
+		try {
+			Client client = AuthClientRegistry.getSharedClient("");
+			List<String> keys = new ArrayList<String>(callKeys);
+			int sent = 0;
+			for (int i = 0; sent < calls && !keys.isEmpty(); i++) {
+				String key = keys.get(i % keys.size());
+				try {
+					send(client, server.getBaseUrl(), key);
+					sent++;
+				} catch (RuntimeException e) {
+					logger.debug("Skipping " + key + " for warm-up: " + e.getMessage());
+					keys.remove(key);
+				}
+			}
+			return sent;
+		} finally {
+			if (null != ownServer) {
+				ownServer.stop();
+			}
+		}
+	}
+
+	private void send(Client client, String baseUrl, String key) {
+		RestRequestBean bean = new RestRequestBean();
+		bean.fillData(key);
+		bean.resolveParameters(null);
+		WebResource resource = client.resource(baseUrl).path(bean.getEndPoint());
+		MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
+		for (Entry<String, Object> entry : bean.getQueryParameters().entrySet()) {
+			queryParams.add(entry.getKey(), String.valueOf(entry.getValue()));
+		}
+		WebResource.Builder builder = resource.queryParams(queryParams).getRequestBuilder();
+		for (Entry<String, Object> header : bean.getHeaders().entrySet()) {
+			builder.header(header.getKey(), header.getValue());
+		}
+		ClientResponse response;
+		String body = bean.getBody();
+		if (StringUtil.isNotBlank(body) && !StringMatcher.startsWithIgnoringCase("binary:").match(body)) {
+			response = builder.method(bean.getMethod(), ClientResponse.class, body);
+		} else {
+			response = builder.method(bean.getMethod(), ClientResponse.class);
+		}
+		String content = new Response(response).getMessageBody();
+		if (StringUtil.isNotBlank(content) && (content.trim().startsWith("{") || content.trim().startsWith("["))) {
+			JsonPathEvaluator.read(content, "$");
+		}
+	}
+
+	private static String resolve(Object value) {
+		return null == value ? "" : ConfigSnapshot.get().resolve(String.valueOf(value));
+	}
+
+	private static void invokeAll(List<Callable<Void>> tasks) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_THREADS, tasks.size()));
+		try {
+			Iterator<Future<Void>> futures = executor.invokeAll(tasks).iterator();
+			while (futures.hasNext()) {
+				try {
+					futures.next().get();
+				} catch (ExecutionException e) {
+					logger.warn("Warm-up failed: " + e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AutomationError("Warm-up interrupted", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static class Target {
+		final URI uri;
+		final String auth;
+		// -1 when host is not resolved
+		volatile long dns;
+		long connect;
+
+		Target(URI uri, String auth) {
+			this.uri = uri;
+			this.auth = auth;
+		}
+	}
+}
@@ -39,46 +39,76 @@ import static com.qmetry.qaf.automation.util.Validator.verifyTrue;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasEntry;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.text.StrSubstitutor;
 import org.hamcrest.Matchers;
 
-import com.github.fge.jackson.JsonLoader;
-import com.github.fge.jsonschema.core.exceptions.ProcessingException;
-import com.github.fge.jsonschema.core.report.ProcessingMessage;
-import com.github.fge.jsonschema.core.report.ProcessingReport;
-import com.github.fge.jsonschema.main.JsonSchema;
-import com.github.fge.jsonschema.main.JsonSchemaFactory;
-import com.google.gson.Gson;
 import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
 import com.qmetry.qaf.automation.core.AutomationError;
 import com.qmetry.qaf.automation.core.ConfigurationManager;
 import com.qmetry.qaf.automation.core.MessageTypes;
 import com.qmetry.qaf.automation.rest.RestRequestBean;
+import com.qmetry.qaf.automation.rest.ScenarioVariables;
 import com.qmetry.qaf.automation.rest.WSCRepositoryConstants;
+import com.qmetry.qaf.automation.rest.WscRepository;
+import com.qmetry.qaf.automation.rest.assertion.AssertionPlan;
+import com.qmetry.qaf.automation.rest.client.AuthClientRegistry;
+import com.qmetry.qaf.automation.rest.data.DataReplay;
+import com.qmetry.qaf.automation.rest.data.DataReplay.RecordVisitor;
+import com.qmetry.qaf.automation.rest.download.StreamingDownload;
+import com.qmetry.qaf.automation.rest.flow.CallFlow;
+import com.qmetry.qaf.automation.rest.history.ResponseHistory;
+import com.qmetry.qaf.automation.rest.json.JsonDiff;
+import com.qmetry.qaf.automation.rest.json.JsonPathEvaluator;
+import com.qmetry.qaf.automation.rest.metrics.WsMetrics;
+import com.qmetry.qaf.automation.rest.paging.PageTraversal;
+import com.qmetry.qaf.automation.rest.paging.PageTraversal.ItemVisitor;
+import com.qmetry.qaf.automation.rest.poll.Poller;
+import com.qmetry.qaf.automation.rest.schema.SchemaValidator;
+import com.qmetry.qaf.automation.rest.schema.SchemaValidators;
+import com.qmetry.qaf.automation.rest.schema.XsdValidator;
+import com.qmetry.qaf.automation.rest.soap.SoapEnvelopeWriter;
+import com.qmetry.qaf.automation.rest.stub.WscStubServer;
+import com.qmetry.qaf.automation.rest.upload.ChunkedUploader;
+import com.qmetry.qaf.automation.rest.warmup.WarmUp;
 import com.qmetry.qaf.automation.util.FileUtil;
-import com.qmetry.qaf.automation.util.JSONUtil;
 import com.qmetry.qaf.automation.util.Reporter;
 import com.qmetry.qaf.automation.util.StringMatcher;
 import com.qmetry.qaf.automation.util.StringUtil;
 import com.qmetry.qaf.automation.util.XPathUtils;
 import com.qmetry.qaf.automation.ws.rest.RestTestBase;
+import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.ClientResponse.Status;
 import com.sun.jersey.api.client.WebResource;
 import com.sun.jersey.api.client.WebResource.Builder;
+import com.sun.jersey.api.client.config.ClientConfig;
 import com.sun.jersey.core.util.MultivaluedMapImpl;
 import com.sun.jersey.multipart.FormDataMultiPart;
 import com.sun.jersey.multipart.file.FileDataBodyPart;
@@ -89,6 +119,7 @@ import com.sun.jersey.multipart.file.FileDataBodyPart;
  * @author chirag
  */
 public final class WsStep {
+	private static final int MAX_ITEM_FAILURES = 20;
 
 	/**
 	 * This method check for the response status of web service
@@ -170,6 +201,33 @@ public final class WsStep {
 		return request(bean);
 	}
 
+	/**
+	 * This method request for the given parameters and keeps response in
+	 * {@link ResponseHistory} with given alias, so it can be verified or
+	 * compared after subsequent requests. History is enabled using
+	 * {@link ResponseHistory#SIZE ws.history.size}.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * user requests 'get.user' as 'before'
+	 * </code>
+	 * <p />
+	 * 
+	 * @param request
+	 *            key or map
+	 * @param alias
+	 *            alias of response
+	 * @return
+	 */
+	@QAFTestStep(description = "user requests {request} as {alias}")
+	public static ClientResponse userRequestsAs(Object request, String alias) {
+		RestRequestBean bean = new RestRequestBean();
+		bean.fillData(request);
+		bean.resolveParameters(null);
+		return requestAs(bean, alias);
+	}
+
 	/**
 	 * This method check given header is there in response of web service
 	 * <p>
@@ -271,10 +329,11 @@ public final class WsStep {
 	public static void responseShouldHaveKeyWithValue(Object expectedValue, String path) {
 		if (!path.startsWith("$"))
 			path = "$." + path;
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), path);
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), path);
 		if (null!=actual && Number.class.isAssignableFrom(actual.getClass())) {
-			assertThat(new BigDecimal(String.valueOf(actual)),
-					Matchers.equalTo(new BigDecimal(String.valueOf(expectedValue))));
+			AssertionPlan plan = AssertionPlan.exact(String.valueOf(expectedValue));
+			String message = "Expected value at jsonpath " + path + " [" + plan + "] actual [" + actual + "]";
+			assertTrue(plan.match(actual), message, message);
 		} else {
 			assertThat(actual, Matchers.equalTo((Object) expectedValue));
 		}
@@ -300,8 +359,8 @@ public final class WsStep {
 	public static void storeResponseBodyto(String path, String variable) {
 		if (!path.startsWith("$"))
 			path = "$." + path;
-		Object value = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), path);
-		getBundle().setProperty(variable, value);
+		Object value = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), path);
+		ScenarioVariables.store(variable, value);
 	}
 
 	/**
@@ -323,7 +382,7 @@ public final class WsStep {
 	public static void responseShouldHaveKeyAndValueContains(String value, String path) {
 		if (!path.startsWith("$"))
 			path = "$." + path;
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), path);
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), path);
 		assertThat(String.valueOf(actual), Matchers.containsString(value));
 	}
 
@@ -344,7 +403,7 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "store response header {0} (in)to {1}")
 	public static void storeResponseHeaderTo(String header, String property) {
-		getBundle().setProperty(property, new RestTestBase().getResponse().getHeaders().get(header));
+		ScenarioVariables.store(property, new RestTestBase().getResponse().getHeaders().getFirst(header));
 	}
 
 	/**
@@ -365,8 +424,8 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response should be less than {expectedvalue} at {jsonpath}")
 	public static void responseShouldLessThan(double expectedValue, String path) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
-		assertThat(Double.parseDouble(String.valueOf(actual)), Matchers.lessThan(expectedValue));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
+		assertThat(AssertionPlan.toDouble(actual), Matchers.lessThan(expectedValue));
 	}
 
 	/**
@@ -387,8 +446,8 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response should be less than or equals to {expectedvalue} at {jsonpath}")
 	public static void responseShouldLessThanOrEqualsTo(double expectedValue, String path) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
-		assertThat(Double.parseDouble(String.valueOf(actual)), Matchers.lessThanOrEqualTo(expectedValue));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
+		assertThat(AssertionPlan.toDouble(actual), Matchers.lessThanOrEqualTo(expectedValue));
 	}
 
 	/**
@@ -409,8 +468,8 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response should be greater than {expectedvalue} at {jsonpath}")
 	public static void responseShouldGreaterThan(double expectedValue, String path) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
-		assertThat(Double.parseDouble(String.valueOf(actual)), Matchers.greaterThan(expectedValue));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
+		assertThat(AssertionPlan.toDouble(actual), Matchers.greaterThan(expectedValue));
 	}
 
 	/**
@@ -431,8 +490,8 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response should be greater than or equals to {expectedvalue} at {jsonpath}")
 	public static void responseShouldGreaterThanOrEqualsTo(double expectedValue, String path) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
-		assertThat(Double.parseDouble(String.valueOf(actual)), Matchers.greaterThanOrEqualTo(expectedValue));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
+		assertThat(AssertionPlan.toDouble(actual), Matchers.greaterThanOrEqualTo(expectedValue));
 	}
 
 	/**
@@ -453,7 +512,7 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response should have value ignoring case {expectedvalue} at {jsonpath}")
 	public static void responseShouldHaveValueIgnoringCase(String expectedValue, String path) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
 		assertThat(String.valueOf(actual), Matchers.equalToIgnoringCase(expectedValue));
 	}
 
@@ -475,7 +534,7 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response should have value contains ignoring case {expectedvalue} at {jsonpath}")
 	public static void responseShouldHaveValueContainsIgnoringCase(String expectedValue, String path) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
 		assertThat(String.valueOf(actual).toUpperCase(), Matchers.containsString(expectedValue.toUpperCase()));
 	}
 
@@ -496,7 +555,7 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response should have value matches with {regEx} at {jsonpath}")
 	public static void responseShouldHaveValueMatchesWith(String regEx, String path) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
 		assertThat(String.valueOf(actual).matches(regEx), Matchers.equalTo(true));
 	}
 
@@ -517,40 +576,97 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response should not have value {expectedvalue} at {jsonpath}")
 	public static void responseShouldNotHaveValue(Object expectedValue, String path) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(path));
 		assertThat(actual, Matchers.not(expectedValue));
 	}
 	
+	/**
+	 * This method validates response body against <code>response-schema</code>
+	 * of given request call. Schema can be provided as json or file, xsd file
+	 * or content is validated using
+	 * {@link #verifyResponseAgainstXsd(String)}. Json schema
+	 * validation engine can be selected using
+	 * {@link SchemaValidators#VALIDATOR ws.schema.validator} property, set
+	 * {@link SchemaValidators#STREAMING ws.schema.validation.streaming} to
+	 * validate response body as stream.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * verify response schema for 'get.users'
+	 * </code>
+	 * <p />
+	 * 
+	 * @param requestKey
+	 *            request call having <code>response-schema</code>
+	 * @return true if response body is valid
+	 */
 	@QAFTestStep(description = "verify response schema for {0}")
 	public static boolean verifyResponseSchema(String requestKey) {
-		ProcessingReport result = null;
+		List<String> messages;
 		try {
-			com.fasterxml.jackson.databind.JsonNode responseNode = JsonLoader
-					.fromString(new RestTestBase().getResponse().getMessageBody());
-			Map<String, Object> map = JSONUtil
-					.toMap(ConfigurationManager.getBundle().getString(requestKey, requestKey));
-			Object responseSchema = map.get(WSCRepositoryConstants.RESPONSE_SCHEMA);
-			if (responseSchema instanceof Map) {
-				responseSchema = new Gson().toJson(responseSchema);
+			String responseSchema = WscRepository.getResponseSchema(requestKey);
+			if (null == responseSchema) {
+				throw new AutomationError(
+						WSCRepositoryConstants.RESPONSE_SCHEMA + " is not provided for " + requestKey);
+			}
+			if (XsdValidator.isXsd(responseSchema)) {
+				return verifyResponseAgainstXsd(responseSchema);
 			} else {
-				File file = new File(responseSchema.toString());
+				File file = new File(responseSchema);
 				if (file.exists())
 					responseSchema = FileUtils.readFileToString(file, "UTF-8");
 			}
-			com.fasterxml.jackson.databind.JsonNode schemaNode = JsonLoader.fromString(String.valueOf(responseSchema));
-			JsonSchema schema = JsonSchemaFactory.byDefault().getJsonSchema(schemaNode);
-			result = schema.validate(responseNode);
-			if (!result.isSuccess()) {
-				for (ProcessingMessage processingMessage : result) {
-					Reporter.log(processingMessage.getMessage(), MessageTypes.Fail);
-				}
-			}
+			String body = new RestTestBase().getResponse().getMessageBody();
+			SchemaValidator validator = SchemaValidators.get();
+			messages = getBundle().getBoolean(SchemaValidators.STREAMING, false)
+					? validator.validate(responseSchema, new StringReader(body))
+					: validator.validate(responseSchema, body);
 		} catch (IOException e) {
 			e.printStackTrace();
-		} catch (ProcessingException e) {
+			return false;
+		} catch (AutomationError e) {
 			e.printStackTrace();
+			return false;
 		}
-		return result != null && result.isSuccess();
+		for (String message : messages) {
+			Reporter.log(message, MessageTypes.Fail);
+		}
+		return messages.isEmpty();
+	}
+
+	/**
+	 * This is verification method to validate xml response, for example SOAP
+	 * response, against XML schema. Schema can be xsd file, url or xsd
+	 * content. For SOAP envelope elements in <code>Body</code> are validated.
+	 * Compiled schema is cached and response is validated as stream. It will
+	 * continue test case even if failure.
+	 * <p>
+	 * Example:
+	 * <p>
+	 * BDD
+	 * </p>
+	 * <code>
+	 * verify response against xsd 'resources/xsd/user.xsd'<br/>
+	 * </code>
+	 * <p>
+	 * KWD
+	 * </p>
+	 * 
+	 * @param schema
+	 *            : {schema} : xsd file, url or xsd content
+	 * @return true if response is valid
+	 */
+	@QAFTestStep(description = "verify response against xsd {schema}")
+	public static boolean verifyResponseAgainstXsd(String schema) {
+		List<String> messages = XsdValidator.validate(schema,
+				new StringReader(new RestTestBase().getResponse().getMessageBody()));
+		for (String message : messages) {
+			Reporter.log(message, MessageTypes.Fail);
+		}
+		String message = "Response is " + (messages.isEmpty() ? "" : "not ") + "valid against xsd "
+				+ (schema.trim().startsWith("<") ? "" : schema);
+		return verifyTrue(messages.isEmpty(), message, message);
 	}
 
 	/**
@@ -580,9 +696,9 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response should have value {val} at jsonpath {path}")
 	public static void responseShouldHaveValueAtJsonpath(Object val, String jsonpath) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(jsonpath));
-		StringMatcher matcher = getMatcher(val);
-		boolean res = matcher.match(String.valueOf(actual));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(jsonpath));
+		AssertionPlan matcher = getMatcher(val);
+		boolean res = matcher.match(actual);
 		String message = "Expected value at jsonpath " + jsonpath + " [" + matcher + "] actual [" + actual + "]";
 		verifyTrue(res, message, message);
 	
@@ -615,9 +731,9 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response should not have value {val} at jsonpath {path}")
 	public static void responseShouldNotHaveValueAtJsonpath(Object val, String jsonpath) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(jsonpath));
-		StringMatcher matcher = getMatcher(val);
-		boolean res = matcher.match(String.valueOf(actual));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(jsonpath));
+		AssertionPlan matcher = getMatcher(val);
+		boolean res = matcher.match(actual);
 		String message = "Expected value at jsonpath " + jsonpath + " is not [" + matcher + "] actual [" + actual + "]";
 		verifyFalse(res, message, message);
 	
@@ -649,9 +765,9 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response has value {val} at jsonpath {jsonpath}")
 	public static void responseHasValueAtJsonpath(Object val, String jsonpath) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(jsonpath));
-		StringMatcher matcher = getMatcher(val);
-		boolean res = matcher.match(String.valueOf(actual));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(jsonpath));
+		AssertionPlan matcher = getMatcher(val);
+		boolean res = matcher.match(actual);
 		String message = "Expected value at jsonpath " + jsonpath + " [" + matcher + "] actual [" + actual + "]";
 		assertTrue(res, message, message);
 	}
@@ -683,12 +799,141 @@ public final class WsStep {
 	 */
 	@QAFTestStep(description = "response has not value {val} at jsonpath {jsonpath}")
 	public static void responseHasValueNotAtJsonpath(Object val, String jsonpath) {
-		Object actual = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), getPath(jsonpath));
-		StringMatcher matcher = getMatcher(val);
-		boolean res = matcher.match(String.valueOf(actual));
+		Object actual = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), getPath(jsonpath));
+		AssertionPlan matcher = getMatcher(val);
+		boolean res = matcher.match(actual);
 		String message = "Expected value at jsonpath " + jsonpath + " is not [" + matcher + "] actual [" + actual + "]";
 		assertFalse(res, message, message);
 	}
+
+	/**
+	 * This is verification method to check values at multiple jsonpaths in
+	 * response of web service. Response body is parsed once for all
+	 * expectations and each expectation is reported separately. It will
+	 * continue test case even if failure. It uses {@link StringMatcher} to
+	 * match expected vs actual values same as
+	 * {@link #responseShouldHaveValueAtJsonpath(Object, String)}
+	 * <p>
+	 * Example:
+	 * <p>
+	 * BDD
+	 * </p>
+	 * <code>
+	 * response should match {'$.Price':'gte:1.90','user.username':'admin','user.email':'containsIgnoringCase:@example.com'}<br/>
+	 * </code>
+	 * <p>
+	 * KWD
+	 * </p>
+	 *
+	 * @param expectations
+	 *            : {expectations} : map of jsonpath to expected value
+	 * @return true if all expectations are matched
+	 */
+	@QAFTestStep(description = "response should match {expectations}")
+	public static boolean responseShouldMatch(Map<String, Object> expectations) {
+		List<String> paths = new ArrayList<String>();
+		for (String jsonpath : expectations.keySet()) {
+			paths.add(getPath(jsonpath));
+		}
+		Map<String, Object> values = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), paths);
+		boolean result = true;
+		for (Entry<String, Object> expectation : expectations.entrySet()) {
+			String jsonpath = expectation.getKey();
+			AssertionPlan matcher = getMatcher(expectation.getValue());
+			if (values.containsKey(getPath(jsonpath))) {
+				Object actual = values.get(getPath(jsonpath));
+				String message = "Expected value at jsonpath " + jsonpath + " [" + matcher + "] actual [" + actual
+						+ "]";
+				result = verifyTrue(matcher.match(actual), message, message) && result;
+			} else {
+				String message = "Expected value at jsonpath " + jsonpath + " [" + matcher + "] but path not found";
+				result = verifyTrue(false, message, message) && result;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * This is verification method to compare response body with expected
+	 * json in golden file. Comparison is structural, member order of objects
+	 * is ignored and numbers are compared by value. Arrays to compare
+	 * ignoring order and numeric tolerance can be set using
+	 * {@link JsonDiff#UNORDERED_ARRAYS ws.json.diff.unordered.arrays} and
+	 * {@link JsonDiff#NUMERIC_TOLERANCE ws.json.diff.numeric.tolerance}
+	 * properties. It will continue test case even if failure.
+	 * <p>
+	 * Example:
+	 * <p>
+	 * BDD
+	 * </p>
+	 * <code>
+	 * response should match golden 'resources/golden/user.json'<br/>
+	 * </code>
+	 * <p>
+	 * KWD
+	 * </p>
+	 * 
+	 * @param file
+	 *            : {file} : golden json file
+	 * @return true if response is matching with golden file
+	 */
+	@QAFTestStep(description = "response should match golden {file}")
+	public static boolean responseShouldMatchGolden(String file) {
+		return responseShouldMatchGoldenIgnoring(file, null);
+	}
+
+	/**
+	 * This is verification method to compare response body with expected
+	 * json in golden file ignoring values at given paths, for example
+	 * generated ids or timestamps. Differences are reported as compact list
+	 * of paths with expected and actual value. It will continue test case
+	 * even if failure.
+	 * <p>
+	 * Example:
+	 * <p>
+	 * BDD
+	 * </p>
+	 * <code>
+	 * response should match golden 'resources/golden/user.json' ignoring ['$.id','$..createdAt']<br/>
+	 * response should match golden 'resources/golden/orders.json' ignoring '$.orders[*].id,$.meta'<br/>
+	 * </code>
+	 * <p>
+	 * KWD
+	 * </p>
+	 * 
+	 * @param file
+	 *            : {file} : golden json file
+	 * @param paths
+	 *            : {paths} : list or comma separated jsonpaths to ignore
+	 * @return true if response is matching with golden file
+	 */
+	@QAFTestStep(description = "response should match golden {file} ignoring {paths}")
+	public static boolean responseShouldMatchGoldenIgnoring(String file, Object paths) {
+		File golden = new File(file);
+		if (!golden.isFile()) {
+			throw new AutomationError("Unable to find golden file: " + file);
+		}
+		List<String> ignorePaths = new ArrayList<String>();
+		if (paths instanceof Collection) {
+			for (Object path : (Collection<?>) paths) {
+				ignorePaths.add(String.valueOf(path));
+			}
+		} else if (null != paths && StringUtil.isNotBlank(paths.toString())) {
+			for (String path : paths.toString().split(",")) {
+				ignorePaths.add(path.trim());
+			}
+		}
+		List<String> differences = JsonDiff.fromConfig(ignorePaths).compare(golden,
+				new RestTestBase().getResponse().getMessageBody());
+		String message = "Response body matches golden file " + file;
+		if (!differences.isEmpty()) {
+			message = "Response body differs from golden file " + file + ":<br/>"
+					+ StringUtil.join(differences, "<br/>");
+		}
+		return verifyTrue(differences.isEmpty(), message, message);
+	}
+
+
 	/**
 	 * This method store value of given json path to
 	 * {@link ConfigurationManager}
@@ -710,8 +955,124 @@ public final class WsStep {
 	public static void sayValueAtJsonPath(String variable, String path) {
 		if (!path.startsWith("$"))
 			path = "$." + path;
-		Object value = JsonPath.read(new RestTestBase().getResponse().getMessageBody(), path);
-		getBundle().setProperty(variable, value);
+		Object value = JsonPathEvaluator.read(new RestTestBase().getResponse().getMessageBody(), path);
+		ScenarioVariables.store(variable, value);
+	}
+
+	/**
+	 * This method check for the status code of earlier response available in
+	 * {@link ResponseHistory}.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * response of 'get.user' should have status code 200
+	 * </code>
+	 * <p />
+	 * 
+	 * @param response
+	 *            alias or request call key of response, or index where 0
+	 *            is latest response
+	 * @param statusCode
+	 *            : Status code, for example 200, 301
+	 */
+	@QAFTestStep(description = "response of {response} should have status code {statusCode}")
+	public static void responseOfShouldHaveStatusCode(String response, int statusCode) {
+		assertThat("Response Status of " + response, ResponseHistory.get(response).getStatus(),
+				Matchers.equalTo(statusCode));
+	}
+
+	/**
+	 * This method validates value for given jsonpath in earlier response
+	 * available in {@link ResponseHistory}. Document of response is parsed
+	 * once for all verifications.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * response of 'before' should have 'admin' at 'user.username'
+	 * </code>
+	 * <p />
+	 * 
+	 * @param response
+	 *            alias or request call key of response, or index where 0
+	 *            is latest response
+	 * @param expectedValue
+	 *            : expected value
+	 * @param path
+	 *            : jsonpath
+	 */
+	@QAFTestStep(description = "response of {response} should have {expectedvalue} at {jsonpath}")
+	public static void responseOfShouldHaveKeyWithValue(String response, Object expectedValue, String path) {
+		path = getPath(path);
+		Object actual = ResponseHistory.get(response).read(path);
+		if (null != actual && Number.class.isAssignableFrom(actual.getClass())) {
+			AssertionPlan plan = AssertionPlan.exact(String.valueOf(expectedValue));
+			String message = "Expected value at jsonpath " + path + " of " + response + " [" + plan + "] actual ["
+					+ actual + "]";
+			assertTrue(plan.match(actual), message, message);
+		} else {
+			assertThat(actual, Matchers.equalTo(expectedValue));
+		}
+	}
+
+	/**
+	 * This method compares values at jsonpath of two responses available in
+	 * {@link ResponseHistory}, without storing values in configuration.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * value at 'user.version' of 'get.user' should be equal to value at 'version' of 'update.user'<br/>
+	 * value at 'total' of 'before' should be equal to value at 'total' of 1
+	 * </code>
+	 * <p />
+	 * 
+	 * @param path
+	 *            jsonpath in first response
+	 * @param response
+	 *            alias or request call key of first response, or index
+	 *            where 0 is latest response
+	 * @param otherPath
+	 *            jsonpath in second response
+	 * @param otherResponse
+	 *            alias or request call key of second response, or index
+	 */
+	@QAFTestStep(description = "value at {jsonpath} of {response} should be equal to value at {other-jsonpath} of {other-response}")
+	public static void valueAtJsonPathOfResponseShouldBeEqual(String path, String response, String otherPath,
+			String otherResponse) {
+		Object actual = ResponseHistory.get(response).read(getPath(path));
+		Object expected = ResponseHistory.get(otherResponse).read(getPath(otherPath));
+		String message = "Value at " + path + " of " + response + " [" + actual + "] and " + otherPath + " of "
+				+ otherResponse + " [" + expected + "]";
+		boolean equal = actual instanceof Number && expected instanceof Number
+				? new BigDecimal(actual.toString()).compareTo(new BigDecimal(expected.toString())) == 0
+				: null == actual ? null == expected : actual.equals(expected);
+		assertTrue(equal, message + " are not equal", message + " are equal");
+	}
+
+	/**
+	 * This method store value of given json path in earlier response
+	 * available in {@link ResponseHistory}
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * say 'userId' is value at jsonpath 'id' of 'create.user'
+	 * </code>
+	 * <p />
+	 * 
+	 * @param variable
+	 *            variable that can be use later
+	 * @param path
+	 *            jsonpath
+	 * @param response
+	 *            alias or request call key of response, or index where 0
+	 *            is latest response
+	 */
+	@QAFTestStep(description = "say {var-name} is value at jsonpath {jsonpath} of {response}")
+	public static void sayValueAtJsonPathOf(String variable, String path, String response) {
+		ScenarioVariables.store(variable, ResponseHistory.get(response).read(getPath(path)));
 	}
 
 	/**
@@ -793,7 +1154,7 @@ public final class WsStep {
 	@QAFTestStep(description = "response should have value {val} at xpath {xpath}")
 	public static void responseShouldHaveValueAtXpath(Object val, String xpath) {
 		String actual = XPathUtils.read(new RestTestBase().getResponse().getMessageBody()).getString(xpath);
-		StringMatcher matcher = getMatcher(val);
+		AssertionPlan matcher = getMatcher(val);
 		boolean res = matcher.match(actual);
 		String message = "Expected value at xpath " + xpath + " [" + matcher + "] actual [" + actual + "]";
 		verifyTrue(res, message, message);
@@ -829,7 +1190,7 @@ public final class WsStep {
 	@QAFTestStep(description = "response should not have value {val} at xpath {xpath}")
 	public static void responseShouldNotHaveValueAtXpath(Object val, String xpath) {
 		String actual = XPathUtils.read(new RestTestBase().getResponse().getMessageBody()).getString(xpath);
-		StringMatcher matcher = getMatcher(val);
+		AssertionPlan matcher = getMatcher(val);
 		boolean res = matcher.match(actual);
 		String message = "Expected value at xpath " + xpath + " is not [" + matcher + "] actual [" + actual + "]";
 		verifyFalse(res, message, message);
@@ -913,7 +1274,7 @@ public final class WsStep {
 	@QAFTestStep(description = "response has value {val} at xpath {xpath}")
 	public static void responseHasValueAtXpath(Object val, String xpath) {
 		String actual = XPathUtils.read(new RestTestBase().getResponse().getMessageBody()).getString(xpath);
-		StringMatcher matcher = getMatcher(val);
+		AssertionPlan matcher = getMatcher(val);
 		boolean res = matcher.match(actual);
 		String message = "Expected value at xpath " + xpath + " [" + matcher + "] actual [" + actual + "]";
 		assertTrue(res, message, message);
@@ -947,7 +1308,7 @@ public final class WsStep {
 	@QAFTestStep(description = "response has not value {val} at xpath {xpath}")
 	public static void responseHasNotValueAtXpath(Object val, String xpath) {
 		String actual = XPathUtils.read(new RestTestBase().getResponse().getMessageBody()).getString(xpath);
-		StringMatcher matcher = getMatcher(val);
+		AssertionPlan matcher = getMatcher(val);
 		boolean res = matcher.match(actual);
 		String message = "Expected value at xpath " + xpath + " is not [" + matcher + "] actual [" + actual + "]";
 		assertFalse(res, message, message);
@@ -973,13 +1334,613 @@ public final class WsStep {
 	@QAFTestStep(description = "say {var-name} is value at xpath {xpath}")
 	public static void sayValueAtXPath(String variable, String path) {
 		Object value = XPathUtils.read(new RestTestBase().getResponse().getMessageBody()).getProperty(path);
-		getBundle().setProperty(variable, value);
+		ScenarioVariables.store(variable, value);
+	}
+
+	/**
+	 * This method starts local stub server serving responses for request calls
+	 * in repository. Base url of the server is available as
+	 * <code>${ws.stub.baseurl}</code>
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * start stub server
+	 * </code>
+	 * <p />
+	 *
+	 * @see WscStubServer
+	 */
+	@QAFTestStep(description = "start stub server")
+	public static void startStubServer() {
+		WscStubServer.startServer();
+	}
+
+	/**
+	 * This method stops local stub server started using
+	 * {@link #startStubServer()}
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * stop stub server
+	 * </code>
+	 * <p />
+	 */
+	@QAFTestStep(description = "stop stub server")
+	public static void stopStubServer() {
+		WscStubServer.stopServer();
+	}
+
+	/**
+	 * This method resolves hosts and opens connections to base urls of
+	 * request calls in repository and sends warm-up calls to local stub
+	 * server as per <code>ws.warmup.*</code> properties.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * warm up web services
+	 * </code>
+	 * <p />
+	 *
+	 * @see WarmUp
+	 */
+	@QAFTestStep(description = "warm up web services")
+	public static void warmUpWebServices() {
+		Reporter.log("Warm-up took " + new WarmUp().run() + "ms");
+	}
+
+	/**
+	 * This method downloads response body of given request to file. Response
+	 * body is streamed to file and is not available as message body of
+	 * response, SHA-256 digest and size of downloaded file are computed while
+	 * writing.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * user downloads 'get.report' to 'downloads/report.zip'
+	 * </code>
+	 * <p />
+	 * 
+	 * @param request
+	 *            key or map
+	 * @param file
+	 *            file to save response body
+	 * @return downloaded file with its size and SHA-256 digest
+	 */
+	@QAFTestStep(description = "user downloads {request} to {file}")
+	public static StreamingDownload userDownloads(Object request, String file) {
+		RestRequestBean bean = new RestRequestBean();
+		bean.fillData(request);
+		bean.resolveParameters(null);
+		ClientResponse response = request(bean, AuthClientRegistry.getStreamingClient(bean.getAuth()));
+		try {
+			StreamingDownload download = StreamingDownload.save(response.getEntityInputStream(), new File(file));
+			Reporter.log("Downloaded " + download);
+			return download;
+		} finally {
+			response.close();
+		}
+	}
+
+	/**
+	 * This method saves response body of last request to file. Body of
+	 * response streamed without request logger, for example by
+	 * <code>user downloads {request} to {file}</code>, can be read only once,
+	 * step fails if it is already consumed.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * save response body to 'downloads/report.zip'
+	 * </code>
+	 * <p />
+	 * 
+	 * @param file
+	 *            file to save response body
+	 */
+	@QAFTestStep(description = "save response body to {file}")
+	public static void saveResponseBodyTo(String file) {
+		ClientResponse response = AuthClientRegistry.getRequestTracker().getClientResponse();
+		if (null == response) {
+			throw new AutomationError("No response available to save");
+		}
+		StreamingDownload download;
+		if (response.getEntityInputStream() instanceof ByteArrayInputStream) {
+			// body buffered by request logger is saved from start and kept for
+			// other response steps, even if it is already read
+			ByteArrayInputStream in = (ByteArrayInputStream) response.getEntityInputStream();
+			in.reset();
+			download = StreamingDownload.save(in, new File(file));
+			in.reset();
+		} else {
+			// marking stream would buffer whole download
+			download = StreamingDownload.save(getUnreadBody(response), new File(file));
+		}
+		Reporter.log("Saved " + download);
+	}
+
+	/**
+	 * @return body stream of not buffered response
+	 * @throws AutomationError
+	 *             if body is closed or already read, while response doesn't
+	 *             declare empty body
+	 */
+	private static InputStream getUnreadBody(ClientResponse response) {
+		String message = "Body of last response " + response.getStatus() + " is already consumed, it can't be saved";
+		PushbackInputStream in = new PushbackInputStream(response.getEntityInputStream(), 1);
+		try {
+			int b = in.read();
+			if (b >= 0) {
+				in.unread(b);
+			} else if (response.getStatus() != Status.NO_CONTENT.getStatusCode()
+					&& !"0".equals(response.getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH))) {
+				throw new AutomationError(message);
+			}
+		} catch (IOException e) {
+			// closed
+			throw new AutomationError(message, e);
+		}
+		return in;
+	}
+
+	/**
+	 * This method verifies SHA-256 digest of last downloaded file
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * downloaded file should have sha256 '9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08'
+	 * </code>
+	 * <p />
+	 * 
+	 * @param hash
+	 *            hex encoded SHA-256 digest
+	 */
+	@QAFTestStep(description = "downloaded file should have sha256 {hash}")
+	public static void downloadedFileShouldHaveSha256(String hash) {
+		StreamingDownload download = getLastDownload();
+		assertThat("SHA-256 of " + download.getFile(), download.getSha256(), equalTo(hash.trim().toLowerCase(Locale.ROOT)));
+	}
+
+	/**
+	 * This method verifies size of last downloaded file
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * downloaded file should have size 1048576
+	 * </code>
+	 * <p />
+	 * 
+	 * @param size
+	 *            expected size in bytes
+	 */
+	@QAFTestStep(description = "downloaded file should have size {size}")
+	public static void downloadedFileShouldHaveSize(long size) {
+		StreamingDownload download = getLastDownload();
+		assertThat("Size of " + download.getFile(), download.getSize(), equalTo(size));
+	}
+
+	/**
+	 * This is verification method to check values at jsonpaths in each item
+	 * of paginated collection. Pages are requested as per <code>paging</code>
+	 * setting of request call, next page is fetched while items of current
+	 * page are checked. Jsonpaths are relative to item. First
+	 * {@value #MAX_ITEM_FAILURES} failures are reported along with summary.
+	 * It will continue test case even if failure.
+	 * <p>
+	 * Example:
+	 * <p>
+	 * BDD
+	 * </p>
+	 * <code>
+	 * each item of 'get.users' should match {'$.status':'active','$.age':'gte:18'}<br/>
+	 * </code>
+	 * <p>
+	 * KWD
+	 * </p>
+	 * 
+	 * @param request
+	 *            : {request} : key or map of request call with paging
+	 * @param expectations
+	 *            : {expectations} : map of jsonpath to expected value
+	 * @return true if all items are matching
+	 * @see PageTraversal
+	 */
+	@QAFTestStep(description = "each item of {request} should match {expectations}")
+	public static boolean eachItemShouldMatch(Object request, Map<String, Object> expectations) {
+		final Map<String, JsonPath> paths = new LinkedHashMap<String, JsonPath>();
+		final Map<String, AssertionPlan> matchers = new LinkedHashMap<String, AssertionPlan>();
+		for (Entry<String, Object> expectation : expectations.entrySet()) {
+			paths.put(expectation.getKey(), JsonPath.compile(getPath(expectation.getKey())));
+			matchers.put(expectation.getKey(), getMatcher(expectation.getValue()));
+		}
+		final long[] failed = { 0 };
+		PageTraversal traversal = traverse(request, new ItemVisitor() {
+			@Override
+			public void visit(Object item, long index, int page) {
+				boolean result = true;
+				for (Entry<String, JsonPath> path : paths.entrySet()) {
+					AssertionPlan matcher = matchers.get(path.getKey());
+					String message;
+					try {
+						Object actual = path.getValue().read(item);
+						message = matcher.match(actual) ? null
+								: "Expected value at jsonpath " + path.getKey() + " [" + matcher + "] actual ["
+										+ actual + "]";
+					} catch (PathNotFoundException e) {
+						message = "Expected value at jsonpath " + path.getKey() + " [" + matcher
+								+ "] but path not found";
+					}
+					if (null != message) {
+						if (result && failed[0]++ < MAX_ITEM_FAILURES) {
+							message = "Item " + index + " (page " + (page + 1) + "): " + message;
+							verifyTrue(false, message, message);
+						}
+						result = false;
+					}
+				}
+			}
+		});
+		String message = traversal.getItems() + " items in " + traversal.getPages() + " pages checked, "
+				+ failed[0] + " not matching";
+		return verifyTrue(failed[0] == 0, message, message);
+	}
+
+	/**
+	 * This method stores values at jsonpath of each item of paginated
+	 * collection as list. Jsonpath is relative to item, items without value
+	 * are skipped.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * store '$.id' of each item of 'get.users' into 'userIds'
+	 * </code>
+	 * <p />
+	 * 
+	 * @param path
+	 *            jsonpath relative to item
+	 * @param request
+	 *            key or map of request call with paging
+	 * @param variable
+	 *            variable that can be use later
+	 * @see PageTraversal
+	 */
+	@QAFTestStep(description = "store {jsonpath} of each item of {request} (in)to {var-name}")
+	public static void storeOfEachItem(String path, Object request, String variable) {
+		final JsonPath jsonPath = JsonPath.compile(getPath(path));
+		final List<Object> values = new ArrayList<Object>();
+		traverse(request, new ItemVisitor() {
+			@Override
+			public void visit(Object item, long index, int page) {
+				try {
+					values.add(jsonPath.read(item));
+				} catch (PathNotFoundException e) {
+					// item without value
+				}
+			}
+		});
+		ScenarioVariables.store(variable, values);
+	}
+
+	/**
+	 * Visits each item of paginated collection. Pages are requested using
+	 * shared client of request call from worker thread, so they are not
+	 * available as last response.
+	 * 
+	 * @param request
+	 *            key or map of request call with paging
+	 * @param visitor
+	 * @return traversal with number of pages and items visited
+	 */
+	public static PageTraversal traverse(Object request, ItemVisitor visitor) {
+		RestRequestBean bean = new RestRequestBean();
+		bean.fillData(request);
+		bean.resolveParameters(null);
+		final Client client = AuthClientRegistry.getSharedClient(bean.getAuth());
+		PageTraversal traversal = new PageTraversal(bean, new PageTraversal.Requester() {
+			@Override
+			public ClientResponse request(RestRequestBean page) {
+				return WsStep.request(page, client);
+			}
+		});
+		long start = System.currentTimeMillis();
+		traversal.traverse(visitor);
+		Reporter.log("Traversed " + traversal.getItems() + " items in " + traversal.getPages() + " pages of "
+				+ request + " in " + (System.currentTimeMillis() - start) + "ms");
+		return traversal;
+	}
+
+	/**
+	 * This method re-sends request until value at jsonpath in response
+	 * matches expected value. Interval between requests grows exponentially
+	 * and <code>Retry-After</code> header of response is honored, see
+	 * {@link Poller}. Timeout is in milliseconds or with unit
+	 * <code>ms</code>, <code>s</code> or <code>m</code>. Response matching
+	 * condition is available for other response steps.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * user polls 'get.job.status' until '$.status' is 'COMPLETED' within '5m'
+	 * </code>
+	 * <p />
+	 * 
+	 * @param request
+	 *            key or map
+	 * @param jsonpath
+	 *            jsonpath of value to check
+	 * @param value
+	 *            expected value, same as
+	 *            {@link #responseShouldHaveValueAtJsonpath(Object, String)}
+	 * @param timeout
+	 *            maximum time to wait
+	 * @return response matching condition
+	 */
+	@QAFTestStep(description = "user polls {request} until {jsonpath} is {value} within {timeout}")
+	public static ClientResponse userPollsUntil(Object request, String jsonpath, Object value, String timeout) {
+		Poller poller = poll(request, jsonpath, value);
+		long millis = toMillis(timeout);
+		try {
+			ClientResponse response = poller.start(millis).get();
+			Reporter.log("Value at " + jsonpath + " is " + poller.getLastValue() + " after " + poller.getAttempts()
+					+ " attempts");
+			return response;
+		} catch (ExecutionException e) {
+			String message = "Polling " + request + " failed: " + e.getCause().getMessage();
+			assertTrue(false, message, message);
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AutomationError("Polling interrupted", e);
+		}
+	}
+
+	/**
+	 * Creates poller for request call. Requests are sent using client of
+	 * current thread, same as other requests, so each attempt is logged and
+	 * response matching condition is available as last response after future
+	 * is completed.
+	 * 
+	 * @param request
+	 *            key or map
+	 * @param jsonpath
+	 *            jsonpath of value to check
+	 * @param value
+	 *            expected value
+	 * @return poller to start
+	 */
+	public static Poller poll(Object request, String jsonpath, Object value) {
+		final RestRequestBean bean = new RestRequestBean();
+		bean.fillData(request);
+		bean.resolveParameters(null);
+		final Client client = StringUtil.isBlank(bean.getAuth()) ? new RestTestBase().getClient()
+				: AuthClientRegistry.getClient(bean.getAuth());
+		return new Poller(new Callable<ClientResponse>() {
+			@Override
+			public ClientResponse call() throws Exception {
+				return request(bean, client);
+			}
+		}, getPath(jsonpath), getMatcher(value));
+	}
+
+	/**
+	 * This method sends request once for each record of data file, using
+	 * record as data same as
+	 * {@link #userRequests(Object, Map) user requests {request} with data
+	 * {data}}. Records are read lazily from csv, json, ndjson or jsonl file
+	 * and requests are sent concurrently as per {@link DataReplay}, so large
+	 * replay file can be used. Response with status 400 or above is
+	 * considered failure. First {@value #MAX_ITEM_FAILURES} failures are
+	 * reported along with summary. It will continue test case even if
+	 * failure.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * user requests 'create.user' with each record of 'resources/data/users.csv'
+	 * </code>
+	 * <p />
+	 * 
+	 * @param request
+	 *            key or map of request call
+	 * @param file
+	 *            data file
+	 * @return true if there is no failure
+	 */
+	@QAFTestStep(description = "user requests {request} with each record of {data-file}")
+	public static boolean userRequestsWithEachRecord(Object request, String file) {
+		return eachRecordShouldMatch(file, request, new LinkedHashMap<String, Object>());
+	}
+
+	/**
+	 * This is verification method to send request once for each record of
+	 * data file and check values at jsonpaths in response of each record.
+	 * Expected value can refer field of record using <code>${field}</code>.
+	 * Response with status 400 or above is considered failure. First
+	 * {@value #MAX_ITEM_FAILURES} failures are reported along with summary.
+	 * It will continue test case even if failure.
+	 * <p>
+	 * Example:
+	 * <p>
+	 * BDD
+	 * </p>
+	 * <code>
+	 * each record of 'resources/data/users.ndjson' for 'get.user' should match {'$.name':'${name}','$.active':'true'}<br/>
+	 * </code>
+	 * <p>
+	 * KWD
+	 * </p>
+	 * 
+	 * @param file
+	 *            : {data-file} : csv, json, ndjson or jsonl data file
+	 * @param request
+	 *            : {request} : key or map of request call
+	 * @param expectations
+	 *            : {expectations} : map of jsonpath to expected value
+	 * @return true if responses of all records are matching
+	 * @see DataReplay
+	 */
+	@QAFTestStep(description = "each record of {data-file} for {request} should match {expectations}")
+	public static boolean eachRecordShouldMatch(String file, Object request, final Map<String, Object> expectations) {
+		final List<String> paths = new ArrayList<String>();
+		for (String jsonpath : expectations.keySet()) {
+			paths.add(getPath(jsonpath));
+		}
+		DataReplay replay = replay(request, file, new RecordVisitor() {
+			@Override
+			public String visit(Map<String, Object> record, long index, ClientResponse response) {
+				if (response.getStatus() >= 400) {
+					return "Response status " + response.getStatus();
+				}
+				if (expectations.isEmpty()) {
+					return null;
+				}
+				Map<String, Object> values = JsonPathEvaluator.read(response.getEntity(String.class), paths);
+				for (Entry<String, Object> expectation : expectations.entrySet()) {
+					Object expected = expectation.getValue();
+					if (expected instanceof String && ((String) expected).contains("${")) {
+						expected = StrSubstitutor.replace(expected, record);
+					}
+					AssertionPlan matcher = getMatcher(expected);
+					String path = getPath(expectation.getKey());
+					if (!values.containsKey(path)) {
+						return "Expected value at jsonpath " + expectation.getKey() + " [" + matcher
+								+ "] but path not found";
+					}
+					if (!matcher.match(values.get(path))) {
+						return "Expected value at jsonpath " + expectation.getKey() + " [" + matcher + "] actual ["
+								+ values.get(path) + "]";
+					}
+				}
+				return null;
+			}
+		});
+		for (String message : replay.getMessages()) {
+			verifyTrue(false, message, message);
+		}
+		String message = replay.getRecords() + " records of " + file + " requested, " + replay.getFailures()
+				+ " failed";
+		return verifyTrue(replay.getFailures() == 0, message, message);
+	}
+
+	/**
+	 * Sends request for each record of data file. Requests are sent using
+	 * shared client of request call from worker threads, so they are not
+	 * available as last response.
+	 * 
+	 * @param request
+	 *            key or map of request call
+	 * @param file
+	 *            data file
+	 * @param visitor
+	 *            checks response of each record
+	 * @return replay with number of records and failures
+	 */
+	public static DataReplay replay(Object request, String file, RecordVisitor visitor) {
+		DataReplay replay = new DataReplay(request, file, new DataReplay.Requester() {
+			@Override
+			public ClientResponse request(RestRequestBean bean) {
+				return WsStep.request(bean, AuthClientRegistry.getSharedClient(bean.getAuth()));
+			}
+		});
+		long time = replay.replay(visitor);
+		Reporter.log("Requested " + request + " with " + replay.getRecords() + " records of " + file + " in " + time
+				+ "ms");
+		return replay;
+	}
+
+	/**
+	 * This method executes flow of request calls as directed acyclic graph,
+	 * see {@link CallFlow}. Independent request calls are sent concurrently
+	 * and values at jsonpath in response are passed to dependent request
+	 * calls in memory. Values listed in <code>store</code> of steps are
+	 * stored as variables. Time of each step and critical path are reported.
+	 * It will stop test case if any step fails.
+	 * <p>
+	 * Example:
+	 * </p>
+	 * <code>
+	 * user executes flow 'checkout.flow'
+	 * </code>
+	 * <p />
+	 * 
+	 * @param flow
+	 *            key, json or map of flow
+	 * @return flow with failures, critical path and stored values
+	 */
+	@QAFTestStep(description = "user executes flow {flow}")
+	public static CallFlow userExecutesFlow(Object flow) {
+		CallFlow callFlow = flow(flow);
+		for (Entry<String, Object> value : callFlow.getStoredValues().entrySet()) {
+			ScenarioVariables.store(value.getKey(), value.getValue());
+		}
+		Reporter.log(callFlow.getReport());
+		String message = "Flow " + flow + " failed: " + callFlow.getFailures()
+				+ (callFlow.getSkipped().isEmpty() ? "" : ", skipped " + callFlow.getSkipped());
+		assertTrue(callFlow.getFailures().isEmpty(), message, "Flow " + flow + " completed");
+		return callFlow;
+	}
+
+	/**
+	 * Executes flow of request calls. Requests are sent using shared client
+	 * of request call from worker threads, so they are not available as last
+	 * response.
+	 * 
+	 * @param flow
+	 *            key, json or map of flow
+	 * @return executed flow
+	 */
+	public static CallFlow flow(Object flow) {
+		CallFlow callFlow = new CallFlow(flow, new CallFlow.Requester() {
+			@Override
+			public ClientResponse request(RestRequestBean bean) {
+				return WsStep.request(bean, AuthClientRegistry.getSharedClient(bean.getAuth()));
+			}
+		});
+		callFlow.run();
+		return callFlow;
 	}
 
 	// move to rest test-base
 	public static ClientResponse request(RestRequestBean bean) {
+		return requestAs(bean, bean.getKey());
+	}
 
-		WebResource resource = new RestTestBase().getWebResource(bean.getBaseUrl(), bean.getEndPoint());
+	private static ClientResponse requestAs(RestRequestBean bean, String alias) {
+		Client client;
+		if (StringUtil.isBlank(bean.getAuth())) {
+			client = new RestTestBase().getClient();
+		} else if (!bean.getSoap().isEmpty()) {
+			// request logger keeps copy of request entity
+			client = AuthClientRegistry.getStreamingClient(bean.getAuth());
+		} else {
+			client = AuthClientRegistry.getClient(bean.getAuth());
+		}
+		ClientResponse response = request(bean, client);
+		ResponseHistory.record(alias, response);
+		return response;
+	}
+
+	public static ClientResponse request(RestRequestBean bean, Client client) {
+		long start = System.nanoTime();
+		try {
+			ClientResponse response = send(bean, client);
+			WsMetrics.recordRequest(bean.getKey(), System.nanoTime() - start, response.getStatus());
+			return response;
+		} catch (RuntimeException e) {
+			WsMetrics.recordError(bean.getKey());
+			throw e;
+		}
+	}
+
+	private static ClientResponse send(RestRequestBean bean, Client client) {
+
+		WebResource resource = client.resource(bean.getBaseUrl()).path(bean.getEndPoint());
 
 		MultivaluedMap<String, String> queryParams = new MultivaluedMapImpl();
 
@@ -987,6 +1948,10 @@ public final class WsStep {
 			queryParams.add(entry.getKey(), entry.getValue().toString());
 		}
 		resource = resource.queryParams(queryParams);
+		if (!bean.getSoap().isEmpty()) {
+			// stream envelope instead of buffering it to compute content length
+			resource.setProperty(ClientConfig.PROPERTY_CHUNKED_ENCODING_SIZE, 0);
+		}
 
 		Builder builder = resource.getRequestBuilder();
 
@@ -997,6 +1962,17 @@ public final class WsStep {
 			builder.header(header.getKey(), header.getValue());
 		}
 
+		if (!bean.getSoap().isEmpty()) {
+			SoapEnvelopeWriter envelope = bean.createSoapEnvelopeWriter();
+			if (!envelope.isSoap12() && !hasHeader(bean, "SOAPAction")) {
+				builder.header("SOAPAction", "\"" + StringUtil.defaultString(envelope.getAction()) + "\"");
+			}
+			if (!hasHeader(bean, "Content-Type")) {
+				builder.type(envelope.getContentType());
+			}
+			return builder.method(bean.getMethod(), ClientResponse.class, envelope);
+		}
+
 		String body = bean.getBody();
 		if (StringUtil.isNotBlank(body)) {
 			// if body then post only body
@@ -1005,6 +1981,9 @@ public final class WsStep {
 			if (StringMatcher.startsWithIgnoringCase("binary:").match(body)) {
 				byte[] bytes = new byte[0];//empty content
 				String file = body.split(":", 2)[1];
+				if (StringUtil.isNotBlank(file) && !bean.getUpload().isEmpty()) {
+					return new ChunkedUploader(bean, client).upload(resource, new File(file));
+				}
 				if(StringUtil.isNotBlank(file)){
 					Path path = Paths.get(new File(file).getAbsolutePath());
 					try {
@@ -1063,13 +2042,30 @@ public final class WsStep {
 	 */
 	private static boolean hasJsonPath(String json, String path) {
 		try {
-			JsonPath.read(json, path);
+			JsonPathEvaluator.read(json, path);
 		} catch (Exception exception) {
 			return false;
 		}
 		return true;
 	}
 
+	private static StreamingDownload getLastDownload() {
+		StreamingDownload download = StreamingDownload.getLast();
+		if (null == download) {
+			throw new AutomationError("No file downloaded");
+		}
+		return download;
+	}
+
+	private static boolean hasHeader(RestRequestBean bean, String name) {
+		for (String header : bean.getHeaders().keySet()) {
+			if (header.equalsIgnoreCase(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	private static boolean isFileUpload(Map<String, Object> formParameters) {
 		for (Entry<String, Object> params : formParameters.entrySet()) {
 			String value = String.valueOf(params.getValue()).trim();
@@ -1090,16 +2086,21 @@ public final class WsStep {
 	}
 
 
-	private static StringMatcher getMatcher(Object o) {
-		if (o instanceof StringMatcher)
-			return (StringMatcher) o;
-		String s = o.toString();
-		if (s.indexOf(':') > 0) {
-			String[] parts = s.split(":", 2);
-			StringMatcher m = StringMatcher.get(parts[0], parts[1]);
-			if (null != m)
-				return m;
+	private static long toMillis(String duration) {
+		String value = duration.trim().toLowerCase(Locale.ROOT);
+		if (value.endsWith("ms")) {
+			return Long.parseLong(value.substring(0, value.length() - 2).trim());
+		}
+		if (value.endsWith("s")) {
+			return Long.parseLong(value.substring(0, value.length() - 1).trim()) * 1000;
 		}
-		return StringMatcher.exact(s);
+		if (value.endsWith("m")) {
+			return Long.parseLong(value.substring(0, value.length() - 1).trim()) * 60000;
+		}
+		return (long) Double.parseDouble(value);
+	}
+
+	private static AssertionPlan getMatcher(Object o) {
+		return AssertionPlan.compile(o);
 	}
 }